@@ -0,0 +1,143 @@
+package com.handsome.summary.rag.service.impl;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+import org.jsoup.Jsoup;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * 正文规整的吞吐量和每次分配的字节数：单次遍历的 {@link DefaultRagContentService#normalize(String)}
+ * 对比原先的正则、{@code reduce} 拼接实现。
+ *
+ * <p>运行：{@code ./gradlew jmh}，分配量见 {@code gc.alloc.rate.norm}。</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DefaultRagContentServiceBenchmark {
+
+    private static final Pattern HTML_PATTERN = Pattern.compile("<[a-zA-Z][\\s\\S]*>");
+    private static final Pattern WHITESPACE_PATTERN = Pattern.compile("[\\t\\x0B\\f\\r ]+");
+    private static final Pattern BLANK_LINES_PATTERN = Pattern.compile("\\n{3,}");
+    private static final String[] WORDS = {
+        "Halo", "插件", "知识库", "索引", "向量", "检索", "the", "post", "content", "summary",
+        "配置", "模型", "文档", "分块", "Lucene", "embedding", "请求", "缓存"
+    };
+
+    /**
+     * 正文长度（字符），分别接近普通文章和长篇导入文档。
+     */
+    @Param({"8000", "64000"})
+    public int length;
+
+    /**
+     * {@code html} 为编辑器保存的文章正文，{@code text} 为 Markdown 或纯文本导入。
+     */
+    @Param({"html", "text"})
+    public String format;
+
+    private final DefaultRagContentService service = new DefaultRagContentService();
+    private String content;
+
+    @Setup
+    public void setUp() {
+        content = "html".equals(format) ? htmlPost(new Random(42), length)
+            : textPost(new Random(42), length);
+    }
+
+    @Benchmark
+    public String singlePass() {
+        return service.normalize(content);
+    }
+
+    @Benchmark
+    public String legacy() {
+        return legacyNormalize(content);
+    }
+
+    private static String htmlPost(Random random, int length) {
+        var builder = new StringBuilder(length + 256);
+        builder.append("<div class=\"post\">\n");
+        var section = 0;
+        while (builder.length() < length) {
+            if (section % 6 == 0) {
+                builder.append("<h2 id=\"s").append(section).append("\">")
+                    .append(sentence(random, 4)).append("</h2>\n");
+            }
+            if (section % 9 == 4) {
+                builder.append("<pre><code>  var value = ").append(section)
+                    .append(";\n\treturn value;\n</code></pre>\n");
+            }
+            if (section % 17 == 8) {
+                builder.append("<script>window.stat && stat(").append(section)
+                    .append(");</script>\n");
+            }
+            builder.append("<p>").append(sentence(random, 20 + random.nextInt(40)))
+                .append(" <a href=\"/archives/").append(section).append("\">")
+                .append(sentence(random, 2)).append("</a>&nbsp;").append(sentence(random, 12))
+                .append("</p>\n\n");
+            section++;
+        }
+        return builder.append("</div>").toString();
+    }
+
+    private static String textPost(Random random, int length) {
+        var builder = new StringBuilder(length + 256);
+        var section = 0;
+        while (builder.length() < length) {
+            if (section % 6 == 0) {
+                builder.append("## ").append(sentence(random, 4)).append("\n\n");
+            }
+            builder.append(sentence(random, 20 + random.nextInt(40))).append("  \n")
+                .append('\t').append(sentence(random, 12)).append("\r\n")
+                .append(section % 3 == 0 ? "\n \n\n" : "\n");
+            section++;
+        }
+        return builder.toString();
+    }
+
+    private static String sentence(Random random, int words) {
+        var builder = new StringBuilder();
+        for (var i = 0; i < words; i++) {
+            if (i > 0) {
+                builder.append(random.nextInt(8) == 0 ? "  " : " ");
+            }
+            builder.append(WORDS[random.nextInt(WORDS.length)]);
+        }
+        return builder.append('。').toString();
+    }
+
+    private static String legacyNormalize(String content) {
+        if (content == null || content.isBlank()) {
+            return "";
+        }
+        var text = content;
+        if (HTML_PATTERN.matcher(text).find()) {
+            var document = Jsoup.parse(text);
+            document.select("script,style,noscript,iframe,svg,canvas,form,input,button").remove();
+            text = document.body() != null ? document.body().text() : document.text();
+        }
+        text = text.replace('\u00A0', ' ');
+        text = WHITESPACE_PATTERN.matcher(text).replaceAll(" ");
+        text = text.lines()
+            .map(String::strip)
+            .filter(line -> !line.isEmpty())
+            .reduce((left, right) -> left + "\n" + right)
+            .orElse("");
+        return BLANK_LINES_PATTERN.matcher(text).replaceAll("\n\n").strip();
+    }
+}
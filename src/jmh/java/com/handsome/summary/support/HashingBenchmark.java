@@ -0,0 +1,80 @@
+package com.handsome.summary.support;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.HexFormat;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * 哈希的吞吐量和每次分配的字节数。
+ *
+ * <p>{@code fingerprint} 与 {@code legacyContentHash}（原先每次新建摘要的 SHA-256）对比内容变化检测；
+ * {@code sha256Hex} 与 {@code legacyFormatHex}（原先逐字节 {@code String.format}）对比稳定名称。
+ * 运行：{@code ./gradlew jmh}。</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class HashingBenchmark {
+
+    /**
+     * 文本长度（字符）：短名称、普通文章和长篇导入文档。
+     */
+    @Param({"64", "8000", "64000"})
+    public int length;
+
+    private String content;
+
+    @Setup
+    public void setUp() {
+        var random = new Random(42);
+        var builder = new StringBuilder(length);
+        for (var i = 0; i < length; i++) {
+            builder.append(random.nextInt(4) == 0 ? (char) ('一' + random.nextInt(2_000))
+                : (char) ('a' + random.nextInt(26)));
+        }
+        content = builder.toString();
+    }
+
+    @Benchmark
+    public String fingerprint() {
+        return Hashing.fingerprint(content);
+    }
+
+    @Benchmark
+    public String legacyContentHash() throws Exception {
+        var digest = MessageDigest.getInstance("SHA-256");
+        return HexFormat.of().formatHex(digest.digest(content.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Benchmark
+    public String sha256Hex() {
+        return Hashing.sha256Hex(content);
+    }
+
+    @Benchmark
+    public String legacyFormatHex() throws Exception {
+        var digest = MessageDigest.getInstance("SHA-256");
+        var hash = digest.digest(content.getBytes(StandardCharsets.UTF_8));
+        var builder = new StringBuilder(hash.length * 2);
+        for (var item : hash) {
+            builder.append(String.format("%02x", item));
+        }
+        return builder.toString();
+    }
+}
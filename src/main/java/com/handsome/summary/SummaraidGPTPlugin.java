@@ -10,6 +10,9 @@ import com.handsome.summary.rag.extension.RagDocument;
 import com.handsome.summary.rag.extension.RagIndexTask;
 import com.handsome.summary.rag.extension.RagKnowledgeBase;
 import com.handsome.summary.rag.service.impl.DefaultRagIndexTaskService;
+import com.handsome.summary.rag.service.impl.DefaultRagKnowledgeBaseStatsService;
+import com.handsome.summary.rag.service.impl.DefaultRagPostSyncService;
+import com.handsome.summary.rag.store.RagIndexReplicator;
 import com.handsome.summary.service.AiRequestSecurityService;
 import java.util.Optional;
 import lombok.extern.slf4j.Slf4j;
@@ -34,24 +37,39 @@ public class SummaraidGPTPlugin extends BasePlugin {
     private final SchemeManager schemeManager;
     private final AiRequestSecurityService aiRequestSecurityService;
     private final DefaultRagIndexTaskService ragIndexTaskService;
+    private final DefaultRagPostSyncService ragPostSyncService;
+    private final DefaultRagKnowledgeBaseStatsService ragKnowledgeBaseStatsService;
+    private final RagIndexReplicator ragIndexReplicator;
 
     public SummaraidGPTPlugin(PluginContext pluginContext, SchemeManager schemeManager,
         AiRequestSecurityService aiRequestSecurityService,
-        DefaultRagIndexTaskService ragIndexTaskService) {
+        DefaultRagIndexTaskService ragIndexTaskService,
+        DefaultRagPostSyncService ragPostSyncService,
+        DefaultRagKnowledgeBaseStatsService ragKnowledgeBaseStatsService,
+        RagIndexReplicator ragIndexReplicator) {
         super(pluginContext);
         this.schemeManager = schemeManager;
         this.aiRequestSecurityService = aiRequestSecurityService;
         this.ragIndexTaskService = ragIndexTaskService;
+        this.ragPostSyncService = ragPostSyncService;
+        this.ragKnowledgeBaseStatsService = ragKnowledgeBaseStatsService;
+        this.ragIndexReplicator = ragIndexReplicator;
     }
 
     @Override
     public void start() {
         registerScheme();
         ragIndexTaskService.resumeRunningTasks();
+        ragPostSyncService.resume();
+        ragKnowledgeBaseStatsService.resume();
+        ragIndexReplicator.resume();
     }
 
     @Override
     public void stop() {
+        ragPostSyncService.dispose();
+        ragKnowledgeBaseStatsService.dispose();
+        ragIndexReplicator.dispose();
         ragIndexTaskService.disposeRunningTasks();
         aiRequestSecurityService.dispose();
         unregisterScheme();
@@ -132,6 +150,10 @@ public class SummaraidGPTPlugin extends BasePlugin {
                 .indexFunc(document -> Optional.ofNullable(document.getSpec())
                     .map(RagDocument.Spec::getSourceName)
                     .orElse(null)));
+            indexSpecs.add(IndexSpecs.<RagDocument, String>single("spec.title", String.class)
+                .indexFunc(document -> Optional.ofNullable(document.getSpec())
+                    .map(RagDocument.Spec::getTitle)
+                    .orElse("")));
         });
         schemeManager.register(RagIndexTask.class, indexSpecs -> {
             indexSpecs.add(IndexSpecs.<RagIndexTask, String>single("spec.knowledgeBase", String.class)
@@ -142,6 +164,10 @@ public class SummaraidGPTPlugin extends BasePlugin {
                 .indexFunc(task -> Optional.ofNullable(task.getStatus())
                     .map(RagIndexTask.Status::getPhase)
                     .orElse(null)));
+            indexSpecs.add(IndexSpecs.<RagIndexTask, String>single("spec.taskType", String.class)
+                .indexFunc(task -> Optional.ofNullable(task.getSpec())
+                    .map(RagIndexTask.Spec::getTaskType)
+                    .orElse(null)));
         });
         schemeManager.register(RagConversation.class, indexSpecs -> {
             indexSpecs.add(IndexSpecs.<RagConversation, String>single("spec.knowledgeBase", String.class)
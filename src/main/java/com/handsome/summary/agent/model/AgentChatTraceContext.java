@@ -1,10 +1,7 @@
 package com.handsome.summary.agent.model;
 
 import com.handsome.summary.ai.AiFoundationCallLog;
-import java.nio.charset.StandardCharsets;
-import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
-import java.util.HexFormat;
+import com.handsome.summary.support.Hashing;
 import java.util.List;
 import java.util.UUID;
 import org.springframework.util.StringUtils;
@@ -119,13 +116,7 @@ public record AgentChatTraceContext(
         if (!StringUtils.hasText(value)) {
             return "";
         }
-        try {
-            var digest = MessageDigest.getInstance("SHA-256")
-                .digest(value.getBytes(StandardCharsets.UTF_8));
-            return HexFormat.of().formatHex(digest, 0, 6);
-        } catch (NoSuchAlgorithmException e) {
-            return Integer.toHexString(value.hashCode());
-        }
+        return Hashing.sha256Hex(value, 6);
     }
 
     private static String safeText(String value) {
@@ -0,0 +1,156 @@
+package com.handsome.summary.rag.cache;
+
+import com.handsome.summary.rag.extension.RagKnowledgeBase;
+import com.handsome.summary.rag.model.RagAnswer;
+import com.handsome.summary.support.Hashing;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import org.springframework.stereotype.Component;
+
+/**
+ * 完整回答的语义缓存。
+ *
+ * <p>缓存以问题向量为键，在同一作用域（知识库集合、索引版本、回答模型、系统提示词、返回数量）内
+ * 按余弦相似度查找；作用域中包含索引版本和最近索引时间，知识库重建或增量索引后旧回答不会再命中。</p>
+ */
+@Component
+public class RagAnswerCache {
+
+    private final Deque<Entry> entries = new ArrayDeque<>();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    public static Scope scope(List<RagKnowledgeBase> knowledgeBases, String modelName,
+        String systemPrompt, Integer limit) {
+        var sorted = knowledgeBases.stream()
+            .sorted(Comparator.comparing(kb -> kb.getMetadata().getName()))
+            .toList();
+        var key = new StringBuilder();
+        for (var kb : sorted) {
+            var status = kb.getStatus();
+            key.append(kb.getMetadata().getName()).append('@')
+                .append(status == null ? "" : status.getIndexVersion()).append('@')
+                .append(status == null || status.getLastIndexedAt() == null
+                    ? "" : status.getLastIndexedAt().toEpochMilli()).append('@')
+                .append(status == null ? "" : status.getEmbeddingModelName()).append(';');
+        }
+        key.append("model=").append(modelName == null ? "" : modelName.strip())
+            .append(";prompt=").append(Hashing.sha256Hex(systemPrompt, 8))
+            .append(";limit=").append(limit == null ? "" : limit);
+        var names = sorted.stream()
+            .map(kb -> kb.getMetadata().getName())
+            .collect(Collectors.toUnmodifiableSet());
+        var embeddingModelName = sorted.isEmpty() || sorted.getFirst().getStatus() == null
+            ? null : sorted.getFirst().getStatus().getEmbeddingModelName();
+        return new Scope(key.toString(), names, embeddingModelName);
+    }
+
+    public Optional<RagAnswer> lookup(Scope scope, float[] vector, double minSimilarity,
+        Duration ttl) {
+        var normalized = normalize(vector);
+        if (normalized == null) {
+            misses.incrementAndGet();
+            return Optional.empty();
+        }
+        var now = System.currentTimeMillis();
+        Entry best = null;
+        var bestSimilarity = minSimilarity;
+        synchronized (entries) {
+            entries.removeIf(entry -> entry.createdAt() + ttl.toMillis() < now);
+            for (var entry : entries) {
+                if (!entry.scopeKey().equals(scope.key())
+                    || entry.vector().length != normalized.length) {
+                    continue;
+                }
+                var similarity = dot(entry.vector(), normalized);
+                if (similarity >= bestSimilarity) {
+                    best = entry;
+                    bestSimilarity = similarity;
+                }
+            }
+        }
+        if (best == null) {
+            misses.incrementAndGet();
+            return Optional.empty();
+        }
+        hits.incrementAndGet();
+        return Optional.of(best.answer());
+    }
+
+    public void store(Scope scope, float[] vector, RagAnswer answer, int maxEntries) {
+        var normalized = normalize(vector);
+        if (normalized == null || answer == null) {
+            return;
+        }
+        var entry = new Entry(scope.key(), scope.knowledgeBases(), normalized,
+            answer.toBuilder().conversationId(null).build(), System.currentTimeMillis());
+        synchronized (entries) {
+            entries.addFirst(entry);
+            while (entries.size() > Math.max(maxEntries, 1)) {
+                entries.removeLast();
+            }
+        }
+    }
+
+    public void evictKnowledgeBase(String knowledgeBase) {
+        synchronized (entries) {
+            entries.removeIf(entry -> entry.knowledgeBases().contains(knowledgeBase));
+        }
+    }
+
+    public void clear() {
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+
+    public Stats stats() {
+        synchronized (entries) {
+            return new Stats(hits.get(), misses.get(), entries.size());
+        }
+    }
+
+    private static float[] normalize(float[] vector) {
+        if (vector == null || vector.length == 0) {
+            return null;
+        }
+        var norm = 0.0d;
+        for (var value : vector) {
+            norm += value * value;
+        }
+        if (norm <= 0) {
+            return null;
+        }
+        var scale = (float) (1.0d / Math.sqrt(norm));
+        var normalized = new float[vector.length];
+        for (var i = 0; i < vector.length; i++) {
+            normalized[i] = vector[i] * scale;
+        }
+        return normalized;
+    }
+
+    private static double dot(float[] left, float[] right) {
+        var sum = 0.0d;
+        for (var i = 0; i < left.length; i++) {
+            sum += left[i] * right[i];
+        }
+        return sum;
+    }
+
+    public record Scope(String key, Set<String> knowledgeBases, String embeddingModelName) {
+    }
+
+    public record Stats(long hits, long misses, int size) {
+    }
+
+    private record Entry(String scopeKey, Set<String> knowledgeBases, float[] vector,
+                         RagAnswer answer, long createdAt) {
+    }
+}
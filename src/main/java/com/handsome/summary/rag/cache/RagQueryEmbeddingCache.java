@@ -0,0 +1,78 @@
+package com.handsome.summary.rag.cache;
+
+import com.handsome.summary.rag.service.RagAiService;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+import reactor.core.publisher.Mono;
+
+/**
+ * 查询向量的短期缓存。
+ *
+ * <p>同一次问答中答案缓存探测和检索都需要问题向量，访客重复提问时也无需再次调用 Embedding。</p>
+ */
+@Component
+@RequiredArgsConstructor
+public class RagQueryEmbeddingCache {
+
+    private static final int MAX_ENTRIES = 512;
+    private static final Duration TTL = Duration.ofMinutes(10);
+
+    private final RagAiService ragAiService;
+    private final Map<String, Entry> entries = new LinkedHashMap<>(64, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+            return size() > MAX_ENTRIES;
+        }
+    };
+
+    public Mono<float[]> embedQuery(String text, String modelName) {
+        if (!StringUtils.hasText(text)) {
+            return ragAiService.embedQuery(text, modelName);
+        }
+        var key = (modelName == null ? "" : modelName.strip()) + "\n" + text.strip();
+        return Mono.defer(() -> {
+            var cached = get(key);
+            if (cached != null) {
+                return Mono.just(cached);
+            }
+            return ragAiService.embedQuery(text, modelName)
+                .doOnNext(vector -> put(key, vector));
+        });
+    }
+
+    private float[] get(String key) {
+        synchronized (entries) {
+            var entry = entries.get(key);
+            if (entry == null) {
+                return null;
+            }
+            if (entry.expiresAt() < System.currentTimeMillis()) {
+                entries.remove(key);
+                return null;
+            }
+            return entry.vector();
+        }
+    }
+
+    private void put(String key, float[] vector) {
+        if (vector == null || vector.length == 0) {
+            return;
+        }
+        synchronized (entries) {
+            entries.put(key, new Entry(vector, System.currentTimeMillis() + TTL.toMillis()));
+        }
+    }
+
+    public void clear() {
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+
+    private record Entry(float[] vector, long expiresAt) {
+    }
+}
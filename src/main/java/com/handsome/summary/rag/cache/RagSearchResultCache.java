@@ -0,0 +1,121 @@
+package com.handsome.summary.rag.cache;
+
+import com.handsome.summary.rag.extension.RagKnowledgeBase;
+import com.handsome.summary.rag.model.RagSearchResult;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import org.springframework.stereotype.Component;
+
+/**
+ * 检索结果的有界 LRU 缓存。
+ *
+ * <p>键由规范化后的查询、知识库作用域（名称、索引版本、最近索引时间）、返回数量、Rerank 模型和检索参数组成，
+ * 知识库重新索引后对应条目会被逐出，旧键也因索引时间变化不再命中。</p>
+ */
+@Component
+public class RagSearchResultCache {
+
+    private static final int MAX_ENTRIES = 1024;
+    private static final Duration TTL = Duration.ofMinutes(30);
+    private static final Pattern WHITESPACE_PATTERN = Pattern.compile("\\s+");
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final Map<String, Entry> entries = new LinkedHashMap<>(128, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+            if (size() > MAX_ENTRIES) {
+                evictions.incrementAndGet();
+                return true;
+            }
+            return false;
+        }
+    };
+
+    public static Key key(String query, List<RagKnowledgeBase> knowledgeBases, int limit,
+        String rerankModelName, String searchOptions) {
+        var sorted = knowledgeBases.stream()
+            .sorted(Comparator.comparing(kb -> kb.getMetadata().getName()))
+            .toList();
+        var value = new StringBuilder();
+        value.append(WHITESPACE_PATTERN.matcher(query.strip()).replaceAll(" ")
+            .toLowerCase(Locale.ROOT)).append('\n');
+        for (var kb : sorted) {
+            var status = kb.getStatus();
+            value.append(kb.getMetadata().getName()).append('@')
+                .append(status == null ? "" : status.getIndexVersion()).append('@')
+                .append(status == null || status.getLastIndexedAt() == null
+                    ? "" : status.getLastIndexedAt().toEpochMilli()).append(';');
+        }
+        value.append("\nlimit=").append(limit)
+            .append(";rerank=").append(rerankModelName == null ? "" : rerankModelName.strip())
+            .append(';').append(searchOptions);
+        var names = sorted.stream()
+            .map(kb -> kb.getMetadata().getName())
+            .collect(Collectors.toUnmodifiableSet());
+        return new Key(value.toString(), names);
+    }
+
+    public List<RagSearchResult> get(Key key) {
+        synchronized (entries) {
+            var entry = entries.get(key.value());
+            if (entry != null && entry.expiresAt() >= System.currentTimeMillis()) {
+                hits.incrementAndGet();
+                return entry.results();
+            }
+            if (entry != null) {
+                entries.remove(key.value());
+                evictions.incrementAndGet();
+            }
+        }
+        misses.incrementAndGet();
+        return null;
+    }
+
+    public void put(Key key, List<RagSearchResult> results) {
+        if (results == null) {
+            return;
+        }
+        synchronized (entries) {
+            entries.put(key.value(), new Entry(key.knowledgeBases(), List.copyOf(results),
+                System.currentTimeMillis() + TTL.toMillis()));
+        }
+    }
+
+    public void evictKnowledgeBase(String knowledgeBase) {
+        synchronized (entries) {
+            var iterator = entries.values().iterator();
+            while (iterator.hasNext()) {
+                if (iterator.next().knowledgeBases().contains(knowledgeBase)) {
+                    iterator.remove();
+                    evictions.incrementAndGet();
+                }
+            }
+        }
+    }
+
+    public Stats stats() {
+        synchronized (entries) {
+            return new Stats(hits.get(), misses.get(), evictions.get(), entries.size());
+        }
+    }
+
+    public record Key(String value, Set<String> knowledgeBases) {
+    }
+
+    public record Stats(long hits, long misses, long evictions, int size) {
+    }
+
+    private record Entry(Set<String> knowledgeBases, List<RagSearchResult> results,
+                         long expiresAt) {
+    }
+}
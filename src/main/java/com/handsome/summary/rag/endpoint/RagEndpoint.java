@@ -2,12 +2,18 @@ package com.handsome.summary.rag.endpoint;
 
 import static org.springdoc.core.fn.builders.apiresponse.Builder.responseBuilder;
 import static org.springdoc.core.fn.builders.parameter.Builder.parameterBuilder;
+import static run.halo.app.extension.index.query.Queries.contains;
 import static run.halo.app.extension.index.query.Queries.equal;
+import static run.halo.app.extension.index.query.Queries.or;
 
+import com.handsome.summary.rag.cache.RagAnswerCache;
+import com.handsome.summary.rag.cache.RagSearchResultCache;
 import com.handsome.summary.rag.extension.RagIndexTask;
 import com.handsome.summary.rag.extension.RagConversation;
 import com.handsome.summary.rag.model.RagAnswer;
 import com.handsome.summary.rag.model.RagChatStreamEvent;
+import com.handsome.summary.rag.model.RagImportProgressEvent;
+import com.handsome.summary.rag.model.RagIndexEstimate;
 import com.handsome.summary.rag.model.RagIndexSummary;
 import com.handsome.summary.rag.model.RagSearchResult;
 import com.handsome.summary.rag.extension.RagDocument;
@@ -18,16 +24,18 @@ import com.handsome.summary.rag.service.RagConversationService;
 import com.handsome.summary.rag.service.RagDocumentImportService;
 import com.handsome.summary.rag.service.RagIndexService;
 import com.handsome.summary.rag.service.RagIndexTaskService;
+import com.handsome.summary.rag.service.RagKnowledgeBaseStatsService;
 import com.handsome.summary.rag.service.RagSearchService;
+import com.handsome.summary.rag.store.RagIndexManifestStore;
 import com.handsome.summary.rag.store.RagVectorStore;
 import com.handsome.summary.service.AiRequestSecurityService;
 import io.swagger.v3.oas.annotations.enums.ParameterIn;
-import java.time.Duration;
 import java.time.Instant;
 import java.util.Comparator;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.Objects;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springdoc.webflux.core.fn.SpringdocRouteBuilder;
@@ -48,6 +56,7 @@ import run.halo.app.core.extension.endpoint.CustomEndpoint;
 import run.halo.app.extension.GroupVersion;
 import run.halo.app.extension.ListOptions;
 import run.halo.app.extension.Metadata;
+import run.halo.app.extension.PageRequestImpl;
 import run.halo.app.extension.ReactiveExtensionClient;
 
 @Slf4j
@@ -56,13 +65,17 @@ import run.halo.app.extension.ReactiveExtensionClient;
 public class RagEndpoint implements CustomEndpoint {
 
     private final AiRequestSecurityService aiRequestSecurityService;
+    private final RagAnswerCache ragAnswerCache;
+    private final RagSearchResultCache ragSearchResultCache;
     private final ReactiveExtensionClient client;
     private final DocsmeDocumentSourceService docsmeDocumentSourceService;
     private final RagContentService ragContentService;
     private final RagConversationService ragConversationService;
     private final RagDocumentImportService ragDocumentImportService;
     private final RagIndexService ragIndexService;
+    private final RagIndexManifestStore ragIndexManifestStore;
     private final RagIndexTaskService ragIndexTaskService;
+    private final RagKnowledgeBaseStatsService ragKnowledgeBaseStatsService;
     private final RagSearchService ragSearchService;
     private final RagVectorStore ragVectorStore;
 
@@ -70,15 +83,21 @@ public class RagEndpoint implements CustomEndpoint {
                                      Boolean rebuildAfterImport) {
     }
 
+    public record ImportPostsStreamRequest(String knowledgeBase, List<String> postNames,
+                                           Boolean rebuildAfterImport, String resumeAfter) {
+    }
+
     public record ImportDocsmeDocumentsRequest(String knowledgeBase, List<String> docNames,
                                                Boolean rebuildAfterImport) {
     }
 
-    public record ImportPostsResponse(String knowledgeBase, int imported,
+    public record ImportPostsResponse(String knowledgeBase, int imported, int created,
+                                      int updated, int unchanged,
                                       RagIndexSummary summary, RagIndexTask task) {
     }
 
-    public record ImportDocsmeDocumentsResponse(String knowledgeBase, int imported,
+    public record ImportDocsmeDocumentsResponse(String knowledgeBase, int imported, int created,
+                                                int updated, int unchanged,
                                                 RagIndexSummary summary, RagIndexTask task) {
     }
 
@@ -137,10 +156,13 @@ public class RagEndpoint implements CustomEndpoint {
     ) {
     }
 
-    public record DocumentResponse(List<RagDocument> items) {
+    public record DocumentResponse(List<RagDocument> items, int page, int size, int total) {
     }
 
-    public record IndexTaskResponse(List<RagIndexTask> items) {
+    public record IndexTaskResponse(List<RagIndexTask> items, int page, int size, int total) {
+        static IndexTaskResponse from(RagIndexTaskService.TaskPage page) {
+            return new IndexTaskResponse(page.items(), page.page(), page.size(), page.total());
+        }
     }
 
     public record ConversationResponse(List<RagConversation> items, int page, int size, int total) {
@@ -193,10 +215,15 @@ public class RagEndpoint implements CustomEndpoint {
         int docsmeDocuments,
         int chunkCount,
         int staleDocuments,
+        int categoryCount,
         boolean needsRebuild
     ) {
     }
 
+    public record CacheStatsResponse(RagSearchResultCache.Stats search,
+                                     RagAnswerCache.Stats answer) {
+    }
+
     public record BatchDocumentsRequest(List<String> names, Boolean rebuildAfterMutation) {
     }
 
@@ -252,6 +279,12 @@ public class RagEndpoint implements CustomEndpoint {
                     .description("Get RAG knowledge base statistics.")
                     .response(responseBuilder().implementation(RagStatsResponse.class))
             )
+            .GET("ragCacheStats", this::cacheStats,
+                builder -> builder.operationId("RagCacheStats")
+                    .tag(tag)
+                    .description("Get RAG search and answer cache hit/miss statistics.")
+                    .response(responseBuilder().implementation(CacheStatsResponse.class))
+            )
             .GET("ragImportablePosts", this::listImportablePosts,
                 builder -> builder.operationId("ListRagImportablePosts")
                     .tag(tag)
@@ -298,6 +331,12 @@ public class RagEndpoint implements CustomEndpoint {
                     .description("Import published public posts into the RAG document store.")
                     .response(responseBuilder().implementation(ImportPostsResponse.class))
             )
+            .POST("ragImportPostsStream", this::importPostsStream,
+                builder -> builder.operationId("RagImportPostsStream")
+                    .tag(tag)
+                    .description("Import published public posts and stream import progress.")
+                    .response(responseBuilder().implementation(RagImportProgressEvent.class))
+            )
             .POST("ragImportDocsmeDocuments", this::importDocsmeDocuments,
                 builder -> builder.operationId("RagImportDocsmeDocuments")
                     .tag(tag)
@@ -334,6 +373,13 @@ public class RagEndpoint implements CustomEndpoint {
                     .description("Synchronously rebuild the local Lucene RAG index.")
                     .response(responseBuilder().implementation(RebuildResponse.class))
             )
+            .GET("ragRebuildEstimate", this::estimateRebuild,
+                builder -> builder.operationId("RagRebuildEstimate")
+                    .tag(tag)
+                    .description("Estimate chunks, tokens and duration of a full rebuild without "
+                        + "calling the embedding model.")
+                    .response(responseBuilder().implementation(RagIndexEstimate.class))
+            )
             .GET("ragIndexTasks", this::listIndexTasks,
                 builder -> builder.operationId("ListRagIndexTasks")
                     .tag(tag)
@@ -429,46 +475,68 @@ public class RagEndpoint implements CustomEndpoint {
             .onErrorResume(this::errorResponse);
     }
 
+    /**
+     * 按索引字段过滤、排序和分页，关键字匹配标题和来源名称，不再读出全部文档后在内存中处理。
+     */
     private Mono<ServerResponse> listDocuments(ServerRequest request) {
-        var knowledgeBase = request.queryParam("knowledgeBase").orElse(null);
-        var keyword = request.queryParam("keyword").orElse(null);
+        var kbName = normalizeKnowledgeBase(request.queryParam("knowledgeBase").orElse(null));
+        var keyword = request.queryParam("keyword").map(String::strip).orElse(null);
         var sourceType = request.queryParam("sourceType").orElse(null);
-        return listDocumentsByKnowledgeBase(normalizeKnowledgeBase(knowledgeBase))
-            .filter(document -> matchesDocument(document, keyword, sourceType))
-            .sort(Comparator.comparing(document -> defaultString(document.getSpec() == null
-                ? null : document.getSpec().getTitle())))
-            .collectList()
-            .map(DocumentResponse::new)
+        var enabled = request.queryParam("enabled").orElse(null);
+        var page = request.queryParam("page")
+            .map(this::parsePage)
+            .orElse(1);
+        var size = request.queryParam("size")
+            .or(() -> request.queryParam("limit"))
+            .map(this::parseLimit)
+            .orElse(20);
+        var options = ListOptions.builder()
+            .fieldQuery(equal("spec.knowledgeBase", kbName));
+        if (StringUtils.hasText(sourceType)) {
+            options.andQuery(equal("spec.sourceType", sourceType.strip().toUpperCase(Locale.ROOT)));
+        }
+        if (StringUtils.hasText(enabled)) {
+            options.andQuery(equal("spec.enabled", String.valueOf(Boolean.parseBoolean(enabled))));
+        }
+        if (StringUtils.hasText(keyword)) {
+            options.andQuery(or(contains("spec.title", keyword),
+                contains("spec.sourceName", keyword)));
+        }
+        var pageRequest = PageRequestImpl.of(page, size,
+            documentSort(request.queryParam("sort").orElse(null)));
+        return Mono.zip(client.listBy(RagDocument.class, options.build(), pageRequest),
+                ragIndexManifestStore.load(kbName))
+            .map(tuple -> {
+                var result = tuple.getT1();
+                result.getItems().forEach(document -> applyManifest(document, tuple.getT2()));
+                return new DocumentResponse(result.getItems(), page, size, (int) result.getTotal());
+            })
             .flatMap(this::ok)
             .onErrorResume(this::errorResponse);
     }
 
+    private Mono<ServerResponse> cacheStats(ServerRequest request) {
+        return ok(new CacheStatsResponse(ragSearchResultCache.stats(), ragAnswerCache.stats()))
+            .onErrorResume(this::errorResponse);
+    }
+
     private Mono<ServerResponse> stats(ServerRequest request) {
         var knowledgeBase = normalizeKnowledgeBase(request.queryParam("knowledgeBase").orElse(null));
-        return listDocumentsByKnowledgeBase(knowledgeBase)
-            .collectList()
-            .map(documents -> {
-                var enabledDocuments = (int) documents.stream().filter(this::documentEnabled).count();
-                var postDocuments = (int) documents.stream()
-                    .filter(document -> hasSourceType(document, "POST"))
-                    .count();
-                var manualDocuments = (int) documents.stream()
-                    .filter(document -> hasSourceType(document, "MANUAL"))
-                    .count();
-                var docsmeDocuments = (int) documents.stream()
-                    .filter(document -> hasSourceType(document, "DOCSME"))
-                    .count();
-                var chunkCount = documents.stream()
-                    .map(RagDocument::getStatus)
-                    .map(status -> status == null || status.getChunkCount() == null
-                        ? 0 : status.getChunkCount())
-                    .reduce(0, Integer::sum);
-                var staleDocuments = (int) documents.stream()
-                    .filter(this::needsIndex)
-                    .count();
-                return new RagStatsResponse(knowledgeBase, documents.size(), enabledDocuments,
-                    documents.size() - enabledDocuments, postDocuments, manualDocuments,
-                    docsmeDocuments, chunkCount, staleDocuments, staleDocuments > 0);
+        var refresh = request.queryParam("refresh").map(Boolean::parseBoolean).orElse(false);
+        var stats = refresh ? ragKnowledgeBaseStatsService.reconcile(knowledgeBase)
+            : ragKnowledgeBaseStatsService.stats(knowledgeBase);
+        return stats
+            .map(documentStats -> {
+                var totalDocuments = defaultInt(documentStats.getTotalDocuments());
+                var enabledDocuments = defaultInt(documentStats.getEnabledDocuments());
+                var staleDocuments = defaultInt(documentStats.getStaleDocuments());
+                return new RagStatsResponse(knowledgeBase, totalDocuments, enabledDocuments,
+                    totalDocuments - enabledDocuments,
+                    defaultInt(documentStats.getPostDocuments()),
+                    defaultInt(documentStats.getManualDocuments()),
+                    defaultInt(documentStats.getDocsmeDocuments()),
+                    defaultInt(documentStats.getChunkCount()), staleDocuments,
+                    defaultInt(documentStats.getCategoryCount()), staleDocuments > 0);
             })
             .flatMap(this::ok)
             .onErrorResume(this::errorResponse);
@@ -499,7 +567,7 @@ public class RagEndpoint implements CustomEndpoint {
         var keyword = request.queryParam("keyword").orElse(null);
         return Mono.zip(
                 docsmeDocumentSourceService.isAvailable(),
-                docsmeDocumentSourceService.listPublished(keyword).collectList(),
+                docsmeDocumentSourceService.listPublishedMetadata(keyword).collectList(),
                 listDocumentsByKnowledgeBase(knowledgeBase)
                     .filter(document -> hasSourceType(document, "DOCSME"))
                     .collectMap(document -> document.getSpec().getSourceName())
@@ -607,20 +675,55 @@ public class RagEndpoint implements CustomEndpoint {
                 var knowledgeBase = normalizeKnowledgeBase(body.knowledgeBase());
                 return ragDocumentImportService.importPublishedPosts(knowledgeBase, body.postNames())
                     .flatMap(importResult -> {
-                        if (enabled(body.rebuildAfterImport(), false)) {
+                        if (enabled(body.rebuildAfterImport(), false)
+                            && !importResult.documentNames().isEmpty()) {
                             return ragIndexTaskService.startDocumentRebuild(knowledgeBase,
                                     importResult.documentNames())
                                 .map(task -> new ImportPostsResponse(knowledgeBase,
-                                    importResult.imported(), null, task));
+                                    importResult.imported(), importResult.created(),
+                                    importResult.updated(), importResult.unchanged(), null, task));
                         }
                         return Mono.just(new ImportPostsResponse(knowledgeBase,
-                            importResult.imported(), null, null));
+                            importResult.imported(), importResult.created(),
+                            importResult.updated(), importResult.unchanged(), null, null));
                     });
             })
             .flatMap(this::ok)
             .onErrorResume(this::errorResponse);
     }
 
+    private Mono<ServerResponse> importPostsStream(ServerRequest request) {
+        return aiRequestSecurityService.secure(request)
+            .then(request.bodyToMono(ImportPostsStreamRequest.class)
+                .defaultIfEmpty(new ImportPostsStreamRequest(null, List.of(), false, null)))
+            .flatMap(body -> {
+                var knowledgeBase = normalizeKnowledgeBase(body.knowledgeBase());
+                var rebuildAfterImport = enabled(body.rebuildAfterImport(), false);
+                var events = ragDocumentImportService.streamPublishedPosts(knowledgeBase,
+                        body.postNames(), body.resumeAfter())
+                    .concatMap(event -> {
+                        if (!"done".equals(event.getType()) || !rebuildAfterImport
+                            || event.getDocumentNames() == null
+                            || event.getDocumentNames().isEmpty()) {
+                            return Mono.just(event);
+                        }
+                        return ragIndexTaskService.startDocumentRebuild(knowledgeBase,
+                                event.getDocumentNames())
+                            .map(task -> event.toBuilder().task(task).build())
+                            .onErrorResume(error -> Mono.just(RagImportProgressEvent.error(
+                                "文章已导入，但索引任务启动失败：" + error.getMessage(),
+                                event.getCursor())));
+                    })
+                    .map(event -> ServerSentEvent.builder(event)
+                        .event(event.getType())
+                        .build());
+                return ServerResponse.ok()
+                    .contentType(MediaType.TEXT_EVENT_STREAM)
+                    .body(events, ServerSentEvent.class);
+            })
+            .onErrorResume(this::errorResponse);
+    }
+
     private Mono<ServerResponse> importDocsmeDocuments(ServerRequest request) {
         return aiRequestSecurityService.secure(request)
             .then(request.bodyToMono(ImportDocsmeDocumentsRequest.class)
@@ -630,14 +733,17 @@ public class RagEndpoint implements CustomEndpoint {
                 return ragDocumentImportService.importPublishedDocsmeDocuments(knowledgeBase,
                         body.docNames())
                     .flatMap(importResult -> {
-                        if (enabled(body.rebuildAfterImport(), false)) {
+                        if (enabled(body.rebuildAfterImport(), false)
+                            && !importResult.documentNames().isEmpty()) {
                             return ragIndexTaskService.startDocumentRebuild(knowledgeBase,
                                     importResult.documentNames())
                                 .map(task -> new ImportDocsmeDocumentsResponse(knowledgeBase,
-                                    importResult.imported(), null, task));
+                                    importResult.imported(), importResult.created(),
+                                    importResult.updated(), importResult.unchanged(), null, task));
                         }
                         return Mono.just(new ImportDocsmeDocumentsResponse(knowledgeBase,
-                            importResult.imported(), null, null));
+                            importResult.imported(), importResult.created(),
+                            importResult.updated(), importResult.unchanged(), null, null));
                     });
             })
             .flatMap(this::ok)
@@ -715,14 +821,25 @@ public class RagEndpoint implements CustomEndpoint {
             .onErrorResume(this::errorResponse);
     }
 
+    private Mono<ServerResponse> estimateRebuild(ServerRequest request) {
+        var knowledgeBase = normalizeKnowledgeBase(request.queryParam("knowledgeBase").orElse(null));
+        return ragIndexService.estimateRebuild(knowledgeBase)
+            .flatMap(this::ok)
+            .onErrorResume(this::errorResponse);
+    }
+
     private Mono<ServerResponse> listIndexTasks(ServerRequest request) {
         var knowledgeBase = normalizeKnowledgeBase(request.queryParam("knowledgeBase").orElse(null));
-        var limit = request.queryParam("limit")
+        var taskType = request.queryParam("taskType").orElse(null);
+        var page = request.queryParam("page")
+            .map(this::parsePage)
+            .orElse(1);
+        var size = request.queryParam("size")
+            .or(() -> request.queryParam("limit"))
             .map(this::parseLimit)
             .orElse(20);
-        return ragIndexTaskService.list(knowledgeBase, limit)
-            .collectList()
-            .map(IndexTaskResponse::new)
+        return ragIndexTaskService.list(knowledgeBase, taskType, page, size)
+            .map(IndexTaskResponse::from)
             .flatMap(this::ok)
             .onErrorResume(this::errorResponse);
     }
@@ -737,8 +854,7 @@ public class RagEndpoint implements CustomEndpoint {
 
     private Mono<ServerResponse> subscribeIndexTask(ServerRequest request) {
         var name = request.pathVariable("name");
-        var taskEvents = Flux.interval(Duration.ZERO, Duration.ofSeconds(1))
-            .flatMap(tick -> ragIndexTaskService.get(name))
+        var taskEvents = ragIndexTaskService.watch(name)
             .takeUntil(this::taskFinished)
             .map(task -> ServerSentEvent.builder(task)
                 .event("task")
@@ -915,13 +1031,30 @@ public class RagEndpoint implements CustomEndpoint {
         spec.setTitle(body.title().strip());
         spec.setUrl(body.url());
         spec.setContent(normalizedContent);
-        spec.setContentHash(ragContentService.hash(normalizedContent));
+        spec.setContentHash(ragContentService.fingerprint(normalizedContent));
         spec.setEnabled(body.enabled() == null || body.enabled());
         spec.setTags(body.tags() == null ? List.of() : body.tags());
         spec.setCategories(body.categories() == null ? List.of() : body.categories());
         return spec;
     }
 
+    /**
+     * 分块数未变化的文档不会在每次索引后回写状态，最近索引时间以索引清单为准；内容已重新导入的文档不使用清单记录。
+     */
+    private void applyManifest(RagDocument document, RagIndexManifestStore.Manifest manifest) {
+        var entry = manifest.documents().get(document.getMetadata().getName());
+        var status = document.getStatus();
+        if (entry == null || status == null || entry.indexedAt() == null
+            || document.getSpec() == null
+            || !Objects.equals(entry.contentHash(), document.getSpec().getContentHash())
+            || (status.getLastIndexedAt() != null
+                && !entry.indexedAt().isAfter(status.getLastIndexedAt()))) {
+            return;
+        }
+        status.setLastIndexedAt(entry.indexedAt());
+        status.setChunkCount(entry.chunkCount());
+    }
+
     private Flux<RagDocument> listDocumentsByKnowledgeBase(String knowledgeBase) {
         var options = ListOptions.builder()
             .fieldQuery(equal("spec.knowledgeBase", normalizeKnowledgeBase(knowledgeBase)))
@@ -995,28 +1128,20 @@ public class RagEndpoint implements CustomEndpoint {
         );
     }
 
-    private boolean matchesDocument(RagDocument document, String keyword, String sourceType) {
-        if (document == null || document.getSpec() == null) {
-            return false;
-        }
-        var spec = document.getSpec();
-        if (StringUtils.hasText(sourceType)
-            && !sourceType.equalsIgnoreCase(defaultString(spec.getSourceType()))) {
-            return false;
-        }
-        if (!StringUtils.hasText(keyword)) {
-            return true;
-        }
-        var lowerKeyword = keyword.toLowerCase(Locale.ROOT);
-        return defaultString(spec.getTitle()).toLowerCase(Locale.ROOT).contains(lowerKeyword)
-            || defaultString(spec.getContent()).toLowerCase(Locale.ROOT).contains(lowerKeyword)
-            || defaultString(spec.getSourceName()).toLowerCase(Locale.ROOT).contains(lowerKeyword);
-    }
-
-    private boolean documentEnabled(RagDocument document) {
-        return document != null
-            && document.getSpec() != null
-            && enabled(document.getSpec().getEnabled(), true);
+    /**
+     * 支持 {@code title}、{@code createdAt}，可用 {@code ,desc} 后缀倒序，默认按标题排序。
+     * 最近索引时间以索引清单为准，文档扩展的 {@code status.lastIndexedAt} 不随每次索引更新，不能用于排序。
+     */
+    private Sort documentSort(String value) {
+        var parts = defaultString(value).split(",");
+        var direction = parts.length > 1 && "desc".equalsIgnoreCase(parts[1].strip())
+            ? Sort.Direction.DESC : Sort.Direction.ASC;
+        var property = switch (parts[0].strip()) {
+            case "createdAt" -> "metadata.creationTimestamp";
+            default -> "spec.title";
+        };
+        return Sort.by(new Sort.Order(direction, property),
+            Sort.Order.asc("metadata.name"));
     }
 
     private boolean hasSourceType(RagDocument document, String sourceType) {
@@ -1025,19 +1150,6 @@ public class RagEndpoint implements CustomEndpoint {
             && sourceType.equalsIgnoreCase(defaultString(document.getSpec().getSourceType()));
     }
 
-    private boolean needsIndex(RagDocument document) {
-        if (!documentEnabled(document) || document.getStatus() == null
-            || !StringUtils.hasText(document.getSpec().getContent())) {
-            return false;
-        }
-        var status = document.getStatus();
-        if (status.getLastIndexedAt() == null) {
-            return true;
-        }
-        return status.getLastImportedAt() != null
-            && status.getLastIndexedAt().isBefore(status.getLastImportedAt());
-    }
-
     private List<String> normalizedNames(List<String> names) {
         if (names == null) {
             return List.of();
@@ -1124,6 +1236,10 @@ public class RagEndpoint implements CustomEndpoint {
         return value == null ? "" : value;
     }
 
+    private int defaultInt(Integer value) {
+        return value == null ? 0 : value;
+    }
+
     private String userAgent(ServerRequest request) {
         return request.headers().firstHeader("User-Agent");
     }
@@ -45,7 +45,7 @@ public class RagDocument extends AbstractExtension {
         @Schema(description = "Normalized text content")
         private String content;
 
-        @Schema(description = "Content SHA-256 hash")
+        @Schema(description = "Normalized content fingerprint, used to skip unchanged imports")
         private String contentHash;
 
         @Schema(description = "Whether this document is indexed")
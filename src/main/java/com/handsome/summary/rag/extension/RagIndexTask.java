@@ -50,9 +50,15 @@ public class RagIndexTask extends AbstractExtension {
         private String errorMessage;
         private Integer attempt = 1;
         private Integer maxAttempts = 3;
+        private Integer queuePosition;
+        private Integer completedBatches;
+        private Integer totalBatches;
+        private Integer resumedFromBatch;
         private Instant startedAt;
         private Instant lastUpdatedAt;
         private Instant completedAt;
+        private String ownerNode;
+        private Instant leaseExpiresAt;
     }
 
     public enum TaskType {
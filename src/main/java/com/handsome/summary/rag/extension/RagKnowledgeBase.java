@@ -51,6 +51,40 @@ public class RagKnowledgeBase extends AbstractExtension {
         private Long indexDurationMillis;
         private Instant lastIndexedAt;
         private String errorMessage;
+        private DocumentStats documentStats;
+        private TaskHistory taskHistory;
+    }
+
+    @Data
+    public static class DocumentStats {
+        private Integer totalDocuments = 0;
+        private Integer enabledDocuments = 0;
+        private Integer postDocuments = 0;
+        private Integer manualDocuments = 0;
+        private Integer docsmeDocuments = 0;
+        private Integer chunkCount = 0;
+        private Integer enabledChunkCount = 0;
+        private Integer staleDocuments = 0;
+        private Integer categoryCount = 0;
+        private Instant reconciledAt;
+    }
+
+    /**
+     * 已合并删除的历史索引任务统计。
+     */
+    @Data
+    public static class TaskHistory {
+        private Integer compactedTasks = 0;
+        private Integer succeededTasks = 0;
+        private Integer failedTasks = 0;
+        private Integer canceledTasks = 0;
+        private Integer fullRebuildTasks = 0;
+        private Integer documentRebuildTasks = 0;
+        private Integer timedTasks = 0;
+        private Long totalDurationMillis = 0L;
+        private Long averageDurationMillis = 0L;
+        private Instant oldestTaskAt;
+        private Instant compactedAt;
     }
 
     public enum IndexState {
@@ -0,0 +1,41 @@
+package com.handsome.summary.rag.model;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonValue;
+
+/**
+ * 分块策略，分块器版本会参与索引版本计算，切换策略后需要全量重建。
+ */
+public enum RagChunkStrategy {
+    PARAGRAPH("paragraph", "chunker-v3"),
+    SENTENCE("sentence", "sentence-v1");
+
+    private final String value;
+    private final String chunkerVersion;
+
+    RagChunkStrategy(String value, String chunkerVersion) {
+        this.value = value;
+        this.chunkerVersion = chunkerVersion;
+    }
+
+    @JsonValue
+    public String value() {
+        return value;
+    }
+
+    public String chunkerVersion() {
+        return chunkerVersion;
+    }
+
+    @JsonCreator
+    public static RagChunkStrategy from(String value) {
+        if (value != null) {
+            for (var strategy : values()) {
+                if (strategy.value.equals(value.strip())) {
+                    return strategy;
+                }
+            }
+        }
+        return PARAGRAPH;
+    }
+}
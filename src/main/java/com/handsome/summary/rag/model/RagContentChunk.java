@@ -0,0 +1,17 @@
+package com.handsome.summary.rag.model;
+
+import lombok.Builder;
+import lombok.Value;
+
+/**
+ * 规整后正文中的一个分块，偏移量为 {@code [startOffset, endOffset)} 半开区间。
+ */
+@Value
+@Builder
+public class RagContentChunk {
+    int index;
+    int paragraphIndex;
+    int startOffset;
+    int endOffset;
+    String text;
+}
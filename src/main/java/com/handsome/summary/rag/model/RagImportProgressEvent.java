@@ -0,0 +1,44 @@
+package com.handsome.summary.rag.model;
+
+import com.handsome.summary.rag.extension.RagIndexTask;
+import java.util.List;
+import lombok.Builder;
+import lombok.Value;
+
+/**
+ * 流式导入文章时推送的进度事件。
+ *
+ * <p>文章按名称顺序导入，{@code cursor} 是已按顺序处理完成的最后一篇文章名称；导入中断后把它作为
+ * {@code resumeAfter} 重新发起导入，即可从下一篇继续。续传时 {@code done} 事件的 {@code documentNames}
+ * 还包含中断前已导入、尚未索引的文章文档。</p>
+ */
+@Value
+@Builder(toBuilder = true)
+public class RagImportProgressEvent {
+    String type;
+    int total;
+    int processed;
+    int created;
+    int updated;
+    int unchanged;
+    String cursor;
+    List<String> documentNames;
+    RagIndexTask task;
+    String error;
+
+    public static RagImportProgressEvent start(int total, String resumeAfter) {
+        return RagImportProgressEvent.builder()
+            .type("start")
+            .total(total)
+            .cursor(resumeAfter)
+            .build();
+    }
+
+    public static RagImportProgressEvent error(String error, String cursor) {
+        return RagImportProgressEvent.builder()
+            .type("error")
+            .error(error)
+            .cursor(cursor)
+            .build();
+    }
+}
@@ -0,0 +1,48 @@
+package com.handsome.summary.rag.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 全量重建的预估结果，只执行分块，不调用 Embedding。
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class RagIndexEstimate {
+    String knowledgeBase;
+    String embeddingModelName;
+    int documentCount;
+    /**
+     * 已停用或没有正文、不会进入索引的文档数量。
+     */
+    int skippedDocumentCount;
+    int chunkCount;
+    /**
+     * 与其他分块内容相同或近似、会直接复用向量的分块数量。
+     */
+    int duplicateChunkCount;
+    /**
+     * 去重后需要向量的分块数量。
+     */
+    int embeddingInputCount;
+    /**
+     * 其中已在 Embedding 检查点中、不需要再次调用的数量。
+     */
+    int cachedInputCount;
+    double cacheMissRatio;
+    long contentChars;
+    long embeddingChars;
+    long estimatedTokens;
+    int documentBatches;
+    int embeddingCalls;
+    /**
+     * 按该模型最近成功调用的吞吐估算的 Embedding 耗时；没有历史调用记录时为空。
+     */
+    Long estimatedDurationMillis;
+    int throughputSampleCalls;
+    long durationMillis;
+}
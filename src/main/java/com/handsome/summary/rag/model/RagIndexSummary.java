@@ -12,6 +12,10 @@ import lombok.NoArgsConstructor;
 public class RagIndexSummary {
     int documentCount;
     int chunkCount;
+    /**
+     * 本次索引中与其他分块内容相同或近似、直接复用向量的分块数量。
+     */
+    int duplicateChunkCount;
     int embeddingDimensions;
     String indexVersion;
     long durationMillis;
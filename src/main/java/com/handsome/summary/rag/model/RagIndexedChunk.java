@@ -18,6 +18,9 @@ public class RagIndexedChunk {
     String url;
     String content;
     int chunkIndex;
+    int paragraphIndex;
+    int startOffset;
+    int endOffset;
     List<String> tags;
     List<String> categories;
     float[] vector;
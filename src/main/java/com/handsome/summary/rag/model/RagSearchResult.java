@@ -16,6 +16,9 @@ public class RagSearchResult {
     String url;
     String content;
     Integer chunkIndex;
+    Integer paragraphIndex;
+    Integer startOffset;
+    Integer endOffset;
     double score;
     Double vectorScore;
     Double keywordScore;
@@ -0,0 +1,33 @@
+package com.handsome.summary.rag.reconciler;
+
+import com.handsome.summary.rag.extension.RagDocument;
+import com.handsome.summary.rag.service.RagKnowledgeBaseStatsService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import run.halo.app.extension.controller.Controller;
+import run.halo.app.extension.controller.ControllerBuilder;
+import run.halo.app.extension.controller.Reconciler;
+
+/**
+ * 监听知识库文档的新增、修改和删除，交给 {@link RagKnowledgeBaseStatsService} 按差值更新统计。
+ */
+@Component
+@RequiredArgsConstructor
+public class RagDocumentStatsReconciler implements Reconciler<Reconciler.Request> {
+
+    private final RagKnowledgeBaseStatsService ragKnowledgeBaseStatsService;
+
+    @Override
+    public Result reconcile(Request request) {
+        ragKnowledgeBaseStatsService.documentChanged(request.name());
+        return Result.doNotRetry();
+    }
+
+    @Override
+    public Controller setupWith(ControllerBuilder builder) {
+        return builder
+            .extension(new RagDocument())
+            .syncAllOnStart(false)
+            .build();
+    }
+}
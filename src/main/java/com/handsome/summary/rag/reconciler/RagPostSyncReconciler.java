@@ -0,0 +1,33 @@
+package com.handsome.summary.rag.reconciler;
+
+import com.handsome.summary.rag.service.RagPostSyncService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import run.halo.app.core.extension.content.Post;
+import run.halo.app.extension.controller.Controller;
+import run.halo.app.extension.controller.ControllerBuilder;
+import run.halo.app.extension.controller.Reconciler;
+
+/**
+ * 监听文章的发布、更新、下线和删除，把变更交给 {@link RagPostSyncService} 合并处理。
+ */
+@Component
+@RequiredArgsConstructor
+public class RagPostSyncReconciler implements Reconciler<Reconciler.Request> {
+
+    private final RagPostSyncService ragPostSyncService;
+
+    @Override
+    public Result reconcile(Request request) {
+        ragPostSyncService.enqueue(request.name());
+        return Result.doNotRetry();
+    }
+
+    @Override
+    public Controller setupWith(ControllerBuilder builder) {
+        return builder
+            .extension(new Post())
+            .syncAllOnStart(false)
+            .build();
+    }
+}
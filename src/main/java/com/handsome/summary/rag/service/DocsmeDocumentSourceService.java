@@ -10,6 +10,11 @@ public interface DocsmeDocumentSourceService {
 
     Flux<DocsmeDocument> listPublished(String keyword);
 
+    /**
+     * 与 {@link #listPublished(String)} 相同，但不加载正文，{@code content} 为 {@code null}，用于列表展示。
+     */
+    Flux<DocsmeDocument> listPublishedMetadata(String keyword);
+
     Flux<DocsmeDocument> listPublishedByNames(List<String> docNames);
 
     record DocsmeDocument(
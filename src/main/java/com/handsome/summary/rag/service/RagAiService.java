@@ -5,6 +5,7 @@ import com.handsome.summary.rag.model.RagChatStreamEvent;
 import com.handsome.summary.rag.model.RagEmbeddingOptions;
 import com.handsome.summary.rag.model.RagSearchResult;
 import java.util.List;
+import java.util.Map;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
@@ -16,7 +17,7 @@ public interface RagAiService {
     Mono<float[]> embedQuery(String text, String modelName);
 
     Mono<List<RagSearchResult>> rerank(String query, List<RagSearchResult> candidates,
-        String modelName, int topN);
+        String modelName, int topN, Map<String, String> callMetadata);
 
     Mono<RagAnswer> generateAnswer(String question, List<RagSearchResult> sources,
         String modelName, String systemPrompt, int maxContextCharacters);
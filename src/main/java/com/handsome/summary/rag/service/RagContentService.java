@@ -1,6 +1,9 @@
 package com.handsome.summary.rag.service;
 
+import com.handsome.summary.rag.model.RagChunkStrategy;
+import com.handsome.summary.rag.model.RagContentChunk;
 import java.util.List;
+import reactor.core.publisher.Flux;
 
 public interface RagContentService {
 
@@ -8,5 +11,21 @@ public interface RagContentService {
 
     String hash(String content);
 
+    /**
+     * 用于判断正文是否变化的快速指纹，不可用于生成资源名称或索引版本。
+     */
+    String fingerprint(String content);
+
     List<String> split(String title, String content, int chunkSize, int chunkOverlap);
+
+    /**
+     * 按需逐个产出分块，偏移量指向 {@link #normalize(String)} 后的正文，分块文本不含标题前缀。
+     */
+    Flux<RagContentChunk> chunks(String content, int chunkSize, int chunkOverlap,
+        RagChunkStrategy strategy);
+
+    /**
+     * 生成 Embedding 时使用的文本，在分块前补上文档标题。
+     */
+    String embeddingText(String title, RagContentChunk chunk);
 }
@@ -1,14 +1,30 @@
 package com.handsome.summary.rag.service;
 
+import com.handsome.summary.rag.model.RagImportProgressEvent;
 import java.util.List;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 public interface RagDocumentImportService {
 
     Mono<ImportResult> importPublishedPosts(String knowledgeBase, List<String> postNames);
 
+    /**
+     * 按文章名称顺序导入并推送进度；{@code resumeAfter} 不为空时只导入名称排在它之后的文章。
+     */
+    Flux<RagImportProgressEvent> streamPublishedPosts(String knowledgeBase, List<String> postNames,
+        String resumeAfter);
+
     Mono<ImportResult> importPublishedDocsmeDocuments(String knowledgeBase, List<String> docNames);
 
-    record ImportResult(int imported, List<String> documentNames) {
+    /**
+     * @param imported 本次参与导入的文档总数
+     * @param created 新建的文档数
+     * @param updated 内容或元数据变化后更新的文档数
+     * @param unchanged 与已有文档一致、未写入的文档数
+     * @param documentNames 需要重新索引的文档：新建、更新，以及虽未变化但自上次导入后尚未索引的文档
+     */
+    record ImportResult(int imported, int created, int updated, int unchanged,
+                        List<String> documentNames) {
     }
 }
@@ -1,6 +1,7 @@
 package com.handsome.summary.rag.service;
 
 import com.handsome.summary.rag.extension.RagKnowledgeBase;
+import com.handsome.summary.rag.model.RagIndexEstimate;
 import com.handsome.summary.rag.model.RagIndexSummary;
 import java.util.List;
 import reactor.core.publisher.Mono;
@@ -20,10 +21,22 @@ public interface RagIndexService {
     Mono<RagIndexSummary> indexDocuments(String knowledgeBase, List<String> documentNames,
         ProgressListener progressListener);
 
+    /**
+     * 按当前配置对知识库执行一次分块但不调用 Embedding，估算全量重建的分块数、Token 数和耗时。
+     */
+    Mono<RagIndexEstimate> estimateRebuild(String knowledgeBase);
+
     @FunctionalInterface
     interface ProgressListener {
         Mono<Void> update(int progress, String message);
 
+        /**
+         * 报告 Embedding 批次进度，{@code resumedFromBatch} 是从检查点直接恢复的批次数。
+         */
+        default Mono<Void> batches(int completedBatches, int totalBatches, int resumedFromBatch) {
+            return Mono.empty();
+        }
+
         static ProgressListener noop() {
             return (progress, message) -> Mono.empty();
         }
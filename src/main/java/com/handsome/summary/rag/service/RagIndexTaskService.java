@@ -17,7 +17,18 @@ public interface RagIndexTaskService {
 
     Mono<RagIndexTask> get(String name);
 
+    /**
+     * 订阅任务进度，先返回当前状态，之后推送每次更新，任务结束后完成。
+     */
+    Flux<RagIndexTask> watch(String name);
+
     Mono<RagIndexTask> latest(String knowledgeBase);
 
-    Flux<RagIndexTask> list(String knowledgeBase, int limit);
+    /**
+     * 按创建时间倒序分页列出任务，{@code taskType} 为空时不过滤任务类型。
+     */
+    Mono<TaskPage> list(String knowledgeBase, String taskType, int page, int size);
+
+    record TaskPage(List<RagIndexTask> items, int page, int size, int total) {
+    }
 }
@@ -0,0 +1,37 @@
+package com.handsome.summary.rag.service;
+
+import com.handsome.summary.rag.extension.RagDocument;
+import com.handsome.summary.rag.extension.RagKnowledgeBase;
+import reactor.core.publisher.Mono;
+
+/**
+ * 按差值维护的知识库文档统计。
+ */
+public interface RagKnowledgeBaseStatsService {
+
+    /**
+     * 读取知识库文档统计；本实例还没有统计过该知识库时返回上次保存的统计并在后台全量统计，
+     * 没有保存过统计时先全量统计一次。
+     */
+    Mono<RagKnowledgeBase.DocumentStats> stats(String knowledgeBase);
+
+    /**
+     * 文档新增、修改或删除后调用，重新读取文档并按差值更新所属知识库的统计。
+     */
+    void documentChanged(String documentName);
+
+    /**
+     * 已经拿到写入后的文档时直接按差值更新统计，不再重新读取。
+     */
+    void record(RagDocument document);
+
+    /**
+     * 全量重新统计知识库，修正累计的误差。
+     */
+    Mono<RagKnowledgeBase.DocumentStats> reconcile(String knowledgeBase);
+
+    /**
+     * 索引任务结束后调用，把索引期间跳过的统计写入知识库状态。
+     */
+    void flush(String knowledgeBase);
+}
@@ -0,0 +1,12 @@
+package com.handsome.summary.rag.service;
+
+/**
+ * 文章变更自动同步到知识库。
+ */
+public interface RagPostSyncService {
+
+    /**
+     * 记录一次文章变更；同一篇文章在防抖时间内的多次变更只同步一次。
+     */
+    void enqueue(String postName);
+}
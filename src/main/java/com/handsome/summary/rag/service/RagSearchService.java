@@ -1,5 +1,6 @@
 package com.handsome.summary.rag.service;
 
+import com.handsome.summary.rag.extension.RagKnowledgeBase;
 import com.handsome.summary.rag.model.RagSearchResult;
 import java.util.List;
 import reactor.core.publisher.Mono;
@@ -7,4 +8,9 @@ import reactor.core.publisher.Mono;
 public interface RagSearchService {
 
     Mono<List<RagSearchResult>> search(String knowledgeBase, String query, Integer limit);
+
+    /**
+     * 解析检索作用域内已启用且索引就绪的知识库；未指定知识库时返回全部可检索知识库。
+     */
+    Mono<List<RagKnowledgeBase>> resolveKnowledgeBases(String knowledgeBase);
 }
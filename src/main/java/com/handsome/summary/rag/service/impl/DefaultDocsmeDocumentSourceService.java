@@ -1,8 +1,13 @@
 package com.handsome.summary.rag.service.impl;
 
+import static run.halo.app.extension.index.query.Queries.in;
+
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.handsome.summary.rag.service.DocsmeDocumentSourceService;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Locale;
@@ -23,6 +28,7 @@ import run.halo.app.extension.ReactiveExtensionClient;
 import run.halo.app.extension.Scheme;
 import run.halo.app.extension.SchemeManager;
 import run.halo.app.extension.Unstructured;
+import run.halo.app.extension.router.selector.FieldSelector;
 
 @Slf4j
 @Service
@@ -38,9 +44,18 @@ public class DefaultDocsmeDocumentSourceService implements DocsmeDocumentSourceS
     private static final GroupVersionKind PROJECT_GVK =
         new GroupVersionKind("doc.halo.run", "v1alpha1", "Project");
 
+    private static final Duration CATALOG_TTL = Duration.ofSeconds(60);
+    private static final int NAME_QUERY_BATCH_SIZE = 200;
+    private static final int LOOKUP_CONCURRENCY = 4;
+
     private final ReactiveExtensionClient client;
     private final SchemeManager schemeManager;
     private final ObjectMapper mapper = Unstructured.OBJECT_MAPPER;
+    /**
+     * 文档树、项目版本和项目变化很少，整表读取一次后缓存一分钟，导入和搜索共用。
+     */
+    private final Mono<Catalog> cachedCatalog = Mono.defer(this::loadCatalog)
+        .cache(ignored -> CATALOG_TTL, error -> Duration.ZERO, () -> Duration.ZERO);
 
     @Override
     public Mono<Boolean> isAvailable() {
@@ -52,11 +67,14 @@ public class DefaultDocsmeDocumentSourceService implements DocsmeDocumentSourceS
 
     @Override
     public Flux<DocsmeDocument> listPublished(String keyword) {
-        return listExtensions(DOC_GVK)
-            .filter(this::canImportDoc)
-            .flatMap(this::toDocument)
-            .filter(document -> matches(document, keyword))
-            .sort(Comparator.comparing(document -> defaultString(document.title())));
+        return publishedEntries(keyword)
+            .flatMapMany(this::withContent);
+    }
+
+    @Override
+    public Flux<DocsmeDocument> listPublishedMetadata(String keyword) {
+        return publishedEntries(keyword)
+            .flatMapIterable(entries -> entries.stream().map(DocEntry::document).toList());
     }
 
     @Override
@@ -65,92 +83,152 @@ public class DefaultDocsmeDocumentSourceService implements DocsmeDocumentSourceS
         if (names.isEmpty()) {
             return listPublished(null);
         }
-        return Flux.fromIterable(names)
-            .flatMap(name -> fetchExtension(DOC_GVK, name))
+        return Flux.fromIterable(batches(names))
+            .flatMap(batch -> listExtensions(DOC_GVK, nameSelector(batch)), LOOKUP_CONCURRENCY)
             .filter(this::canImportDoc)
-            .flatMap(this::toDocument);
+            .collectList()
+            .zipWith(cachedCatalog)
+            .map(tuple -> tuple.getT1().stream()
+                .map(doc -> toEntry(doc, tuple.getT2()))
+                .toList())
+            .flatMapMany(this::withContent);
+    }
+
+    /**
+     * 一次读取全部文档，结合缓存的目录信息按关键词过滤并按标题排序，此时还不加载正文。
+     */
+    private Mono<List<DocEntry>> publishedEntries(String keyword) {
+        return listExtensions(DOC_GVK, ListOptions.builder().build())
+            .filter(this::canImportDoc)
+            .collectList()
+            .zipWith(cachedCatalog)
+            .map(tuple -> tuple.getT1().stream()
+                .map(doc -> toEntry(doc, tuple.getT2()))
+                .filter(entry -> matches(entry.document(), keyword))
+                .sorted(Comparator.comparing(entry -> defaultString(entry.document().title())))
+                .toList());
+    }
+
+    /**
+     * 按名称分批查询发布快照，一次查询取回一批文档的正文。
+     */
+    private Flux<DocsmeDocument> withContent(List<DocEntry> entries) {
+        if (entries.isEmpty()) {
+            return Flux.empty();
+        }
+        var snapshotNames = entries.stream()
+            .map(DocEntry::snapshotName)
+            .filter(StringUtils::hasText)
+            .distinct()
+            .toList();
+        return Flux.fromIterable(batches(snapshotNames))
+            .flatMap(batch -> client.listAll(Snapshot.class, nameSelector(batch), Sort.unsorted()),
+                LOOKUP_CONCURRENCY)
+            .collectMap(snapshot -> snapshot.getMetadata().getName(), this::contentInfo)
+            .flatMapIterable(contents -> entries.stream()
+                .map(entry -> {
+                    var content = contents.getOrDefault(entry.snapshotName(), ContentInfo.empty());
+                    var document = entry.document();
+                    return new DocsmeDocument(
+                        document.docName(),
+                        document.docTreeName(),
+                        document.title(),
+                        document.url(),
+                        firstText(content.content(), content.raw()),
+                        document.projectName(),
+                        document.projectDisplayName(),
+                        document.versionName(),
+                        document.versionSlug()
+                    );
+                })
+                .toList());
     }
 
-    private Mono<DocsmeDocument> toDocument(Extension doc) {
+    private DocEntry toEntry(Extension doc, Catalog catalog) {
         var docData = toMap(doc);
         var docName = metadataName(doc);
         var treeName = nestedString(docData, "spec", "docTreeName");
         var releaseSnapshot = nestedString(docData, "spec", "releaseSnapshot");
         var fallbackTitle = firstText(nestedString(docData, "status", "title"), docName);
+        var tree = treeName == null ? TreeInfo.empty()
+            : catalog.trees().getOrDefault(treeName, TreeInfo.empty());
+        var project = tree.projectVersionName() == null ? ProjectInfo.empty()
+            : catalog.versions().getOrDefault(tree.projectVersionName(), ProjectInfo.empty());
+        return new DocEntry(new DocsmeDocument(
+            docName,
+            treeName,
+            firstText(tree.title(), fallbackTitle),
+            tree.url(),
+            null,
+            project.projectName(),
+            project.projectDisplayName(),
+            project.versionName(),
+            project.versionSlug()
+        ), releaseSnapshot);
+    }
 
-        return Mono.zip(fetchTreeInfo(treeName), fetchContent(releaseSnapshot))
-            .flatMap(tuple -> {
-                var tree = tuple.getT1();
-                var content = tuple.getT2();
-                return fetchProjectInfo(tree.projectVersionName())
-                    .map(project -> new DocsmeDocument(
-                        docName,
-                        treeName,
-                        firstText(tree.title(), fallbackTitle),
-                        tree.url(),
-                        firstText(content.content(), content.raw()),
-                        project.projectName(),
-                        project.projectDisplayName(),
-                        project.versionName(),
-                        project.versionSlug()
-                    ));
+    private Mono<Catalog> loadCatalog() {
+        return Mono.zip(
+                listExtensions(DOC_TREE_GVK, ListOptions.builder().build()).collectList(),
+                listExtensions(PROJECT_VERSION_GVK, ListOptions.builder().build()).collectList(),
+                listExtensions(PROJECT_GVK, ListOptions.builder().build()).collectList())
+            .map(tuple -> {
+                var projectDisplayNames = new HashMap<String, String>();
+                for (var project : tuple.getT3()) {
+                    var displayName = nestedString(toMap(project), "spec", "displayName");
+                    if (metadataName(project) != null && displayName != null) {
+                        projectDisplayNames.put(metadataName(project), displayName);
+                    }
+                }
+                var versions = new HashMap<String, ProjectInfo>();
+                for (var version : tuple.getT2()) {
+                    var versionData = toMap(version);
+                    var versionName = metadataName(version);
+                    var projectName = nestedString(versionData, "spec", "projectName");
+                    if (versionName != null) {
+                        versions.put(versionName, new ProjectInfo(
+                            projectName,
+                            projectName == null ? null : projectDisplayNames.get(projectName),
+                            versionName,
+                            nestedString(versionData, "spec", "slug")
+                        ));
+                    }
+                }
+                var trees = new HashMap<String, TreeInfo>();
+                for (var tree : tuple.getT1()) {
+                    var data = toMap(tree);
+                    if (metadataName(tree) != null) {
+                        trees.put(metadataName(tree), new TreeInfo(
+                            nestedString(data, "spec", "title"),
+                            nestedString(data, "status", "permalink"),
+                            nestedString(data, "spec", "projectVersionName")
+                        ));
+                    }
+                }
+                return new Catalog(Map.copyOf(trees), Map.copyOf(versions));
             });
     }
 
-    private Mono<TreeInfo> fetchTreeInfo(String treeName) {
-        if (!StringUtils.hasText(treeName)) {
-            return Mono.just(TreeInfo.empty());
+    private ContentInfo contentInfo(Snapshot snapshot) {
+        var spec = snapshot.getSpec();
+        if (spec == null) {
+            return ContentInfo.empty();
         }
-        return fetchExtension(DOC_TREE_GVK, treeName)
-            .map(tree -> {
-                var data = toMap(tree);
-                return new TreeInfo(
-                    nestedString(data, "spec", "title"),
-                    nestedString(data, "status", "permalink"),
-                    nestedString(data, "spec", "projectVersionName")
-                );
-            })
-            .defaultIfEmpty(TreeInfo.empty());
+        return new ContentInfo(spec.getRawPatch(), spec.getContentPatch());
     }
 
-    private Mono<ContentInfo> fetchContent(String snapshotName) {
-        if (!StringUtils.hasText(snapshotName)) {
-            return Mono.just(ContentInfo.empty());
-        }
-        return client.fetch(Snapshot.class, snapshotName)
-            .map(snapshot -> {
-                var spec = snapshot.getSpec();
-                if (spec == null) {
-                    return ContentInfo.empty();
-                }
-                return new ContentInfo(spec.getRawPatch(), spec.getContentPatch());
-            })
-            .defaultIfEmpty(ContentInfo.empty());
+    private ListOptions nameSelector(List<String> names) {
+        var options = new ListOptions();
+        options.setFieldSelector(FieldSelector.of(in("metadata.name", names)));
+        return options;
     }
 
-    private Mono<ProjectInfo> fetchProjectInfo(String projectVersionName) {
-        if (!StringUtils.hasText(projectVersionName)) {
-            return Mono.just(ProjectInfo.empty());
+    private List<List<String>> batches(List<String> names) {
+        var batches = new ArrayList<List<String>>();
+        for (var i = 0; i < names.size(); i += NAME_QUERY_BATCH_SIZE) {
+            batches.add(names.subList(i, Math.min(i + NAME_QUERY_BATCH_SIZE, names.size())));
         }
-        return fetchExtension(PROJECT_VERSION_GVK, projectVersionName)
-            .flatMap(version -> {
-                var versionData = toMap(version);
-                var versionName = metadataName(version);
-                var versionSlug = nestedString(versionData, "spec", "slug");
-                var projectName = nestedString(versionData, "spec", "projectName");
-                return fetchExtension(PROJECT_GVK, projectName)
-                    .map(project -> {
-                        var projectData = toMap(project);
-                        return new ProjectInfo(
-                            projectName,
-                            nestedString(projectData, "spec", "displayName"),
-                            versionName,
-                            versionSlug
-                        );
-                    })
-                    .defaultIfEmpty(new ProjectInfo(projectName, null, versionName, versionSlug));
-            })
-            .defaultIfEmpty(ProjectInfo.empty());
+        return batches;
     }
 
     private boolean canImportDoc(Extension doc) {
@@ -192,9 +270,9 @@ public class DefaultDocsmeDocumentSourceService implements DocsmeDocumentSourceS
     }
 
     @SuppressWarnings({"unchecked", "rawtypes"})
-    private Flux<Extension> listExtensions(GroupVersionKind gvk) {
+    private Flux<Extension> listExtensions(GroupVersionKind gvk, ListOptions options) {
         return extensionType(gvk)
-            .map(type -> client.listAll((Class) type, ListOptions.builder().build(), Sort.unsorted())
+            .map(type -> client.listAll((Class) type, options, Sort.unsorted())
                 .cast(Extension.class)
                 .onErrorResume(error -> {
                     log.debug("Failed to list Docsme extensions: {}", gvk, error);
@@ -203,21 +281,6 @@ public class DefaultDocsmeDocumentSourceService implements DocsmeDocumentSourceS
             .orElseGet(Flux::empty);
     }
 
-    @SuppressWarnings({"unchecked", "rawtypes"})
-    private Mono<Extension> fetchExtension(GroupVersionKind gvk, String name) {
-        if (!StringUtils.hasText(name)) {
-            return Mono.empty();
-        }
-        return extensionType(gvk)
-            .map(type -> client.fetch((Class) type, name.strip())
-                .cast(Extension.class)
-                .onErrorResume(error -> {
-                    log.debug("Failed to fetch Docsme extension: {} {}", gvk, name, error);
-                    return Mono.empty();
-                }))
-            .orElseGet(Mono::empty);
-    }
-
     private Optional<Class<? extends Extension>> extensionType(GroupVersionKind gvk) {
         return schemeManager.fetch(gvk).map(Scheme::type);
     }
@@ -299,6 +362,12 @@ public class DefaultDocsmeDocumentSourceService implements DocsmeDocumentSourceS
         }
     }
 
+    private record DocEntry(DocsmeDocument document, String snapshotName) {
+    }
+
+    private record Catalog(Map<String, TreeInfo> trees, Map<String, ProjectInfo> versions) {
+    }
+
     private record ProjectInfo(
         String projectName,
         String projectDisplayName,
@@ -14,6 +14,7 @@ import com.handsome.summary.rag.service.support.RagReferencedSourceFilter;
 import com.handsome.summary.rag.service.support.RagSourceReferenceAssembler;
 import java.time.Duration;
 import java.time.Instant;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -188,7 +189,7 @@ public class DefaultRagAiService implements RagAiService {
 
     @Override
     public Mono<List<RagSearchResult>> rerank(String query, List<RagSearchResult> candidates,
-        String modelName, int topN) {
+        String modelName, int topN, Map<String, String> callMetadata) {
         if (!StringUtils.hasText(query) || candidates == null || candidates.isEmpty()) {
             return Mono.just(List.of());
         }
@@ -243,11 +244,11 @@ public class DefaultRagAiService implements RagAiService {
                 recordCall("rag-rerank", "rerank", logModelName, startedAt,
                     AiFoundationCallLog.elapsedMillis(startNanos), inputStats,
                     results == null ? 0 : results.size(), null, candidates.size(), null, null,
-                    Map.of(
+                    withCallMetadata(Map.of(
                         "queryChars", String.valueOf(AiFoundationCallLog.safeLength(query)),
                         "candidateChars", String.valueOf(candidateStats.totalChars()),
                         "topN", String.valueOf(safeTopN)
-                    ), null);
+                    ), callMetadata), null);
             })
             .doOnError(error -> {
                 log.error(
@@ -260,11 +261,11 @@ public class DefaultRagAiService implements RagAiService {
                 recordCall("rag-rerank", "rerank", logModelName, startedAt,
                     AiFoundationCallLog.elapsedMillis(startNanos), inputStats, 0, null,
                     candidates.size(), null, null,
-                    Map.of(
+                    withCallMetadata(Map.of(
                         "queryChars", String.valueOf(AiFoundationCallLog.safeLength(query)),
                         "candidateChars", String.valueOf(candidateStats.totalChars()),
                         "topN", String.valueOf(safeTopN)
-                    ), error);
+                    ), callMetadata), error);
             });
     }
 
@@ -607,6 +608,20 @@ public class DefaultRagAiService implements RagAiService {
             .build());
     }
 
+    private Map<String, String> withCallMetadata(Map<String, String> metadata,
+        Map<String, String> callMetadata) {
+        if (callMetadata == null || callMetadata.isEmpty()) {
+            return metadata;
+        }
+        var merged = new LinkedHashMap<String, String>(metadata);
+        callMetadata.forEach((key, value) -> {
+            if (key != null && value != null) {
+                merged.putIfAbsent(key, value);
+            }
+        });
+        return merged;
+    }
+
     private int embeddingDimensions(List<float[]> vectors) {
         if (vectors == null || vectors.isEmpty() || vectors.getFirst() == null) {
             return 0;
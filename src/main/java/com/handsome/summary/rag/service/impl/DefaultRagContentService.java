@@ -1,113 +1,133 @@
 package com.handsome.summary.rag.service.impl;
 
+import com.handsome.summary.rag.model.RagChunkStrategy;
+import com.handsome.summary.rag.model.RagContentChunk;
 import com.handsome.summary.rag.service.RagContentService;
-import java.nio.charset.StandardCharsets;
-import java.security.MessageDigest;
+import com.handsome.summary.rag.service.support.RagSentenceChunker;
+import com.handsome.summary.support.Hashing;
 import java.util.ArrayList;
-import java.util.HexFormat;
+import java.util.Iterator;
 import java.util.List;
-import java.util.regex.Pattern;
+import java.util.NoSuchElementException;
 import org.jsoup.Jsoup;
 import org.springframework.stereotype.Service;
 import org.springframework.util.StringUtils;
+import reactor.core.publisher.Flux;
 
 @Service
 public class DefaultRagContentService implements RagContentService {
 
-    private static final Pattern HTML_PATTERN = Pattern.compile("<[a-zA-Z][\\s\\S]*>");
-    private static final Pattern WHITESPACE_PATTERN = Pattern.compile("[\\t\\x0B\\f\\r ]+");
-    private static final Pattern BLANK_LINES_PATTERN = Pattern.compile("\\n{3,}");
-
     @Override
     public String normalize(String content) {
         if (!StringUtils.hasText(content)) {
             return "";
         }
         var text = content;
-        if (HTML_PATTERN.matcher(text).find()) {
+        if (looksLikeHtml(text)) {
             var document = Jsoup.parse(text);
             document.select("script,style,noscript,iframe,svg,canvas,form,input,button").remove();
             text = document.body() != null ? document.body().text() : document.text();
         }
-        text = text.replace('\u00A0', ' ');
-        text = WHITESPACE_PATTERN.matcher(text).replaceAll(" ");
-        text = text.lines()
-            .map(String::strip)
-            .filter(line -> !line.isEmpty())
-            .reduce((left, right) -> left + "\n" + right)
-            .orElse("");
-        return BLANK_LINES_PATTERN.matcher(text).replaceAll("\n\n").strip();
+        return collapseWhitespace(text);
     }
 
-    @Override
-    public String hash(String content) {
-        try {
-            var digest = MessageDigest.getInstance("SHA-256");
-            return HexFormat.of().formatHex(digest.digest(defaultString(content)
-                .getBytes(StandardCharsets.UTF_8)));
-        } catch (Exception e) {
-            throw new IllegalStateException("Failed to hash RAG document content", e);
+    /**
+     * 与 {@code <[a-zA-Z][\s\S]*>} 的 find 语义一致：存在一个 {@code <} 紧跟 ASCII 字母，且其后还有 {@code >}。
+     */
+    static boolean looksLikeHtml(String text) {
+        var lastClose = text.lastIndexOf('>');
+        var open = text.indexOf('<');
+        while (open >= 0 && open + 2 <= lastClose) {
+            var next = text.charAt(open + 1);
+            if ((next >= 'a' && next <= 'z') || (next >= 'A' && next <= 'Z')) {
+                return true;
+            }
+            open = text.indexOf('<', open + 1);
         }
+        return false;
     }
 
-    @Override
-    public List<String> split(String title, String content, int chunkSize, int chunkOverlap) {
-        var normalizedContent = normalize(content);
-        if (!StringUtils.hasText(normalizedContent)) {
-            return List.of();
-        }
-
-        var safeChunkSize = clamp(chunkSize, 200, 3000);
-        var safeOverlap = Math.min(Math.max(chunkOverlap, 0), safeChunkSize / 2);
-        var prefix = StringUtils.hasText(title) ? "标题：" + title.strip() + "\n\n" : "";
-        var paragraphs = normalizedContent.split("\\n+");
-        var chunks = new ArrayList<String>();
-        var current = new StringBuilder();
-
-        for (var paragraph : paragraphs) {
-            var cleanParagraph = paragraph.strip();
-            if (cleanParagraph.isEmpty()) {
+    /**
+     * 单次遍历完成空白规整：不换行空白合并为一个空格，按 {@code \n} 分行后去掉每行首尾空白并丢弃空行。
+     */
+    static String collapseWhitespace(String text) {
+        var out = new StringBuilder(text.length());
+        var lineHasContent = false;
+        var inSpaceRun = false;
+        var contentEnd = 0;
+        for (var i = 0; i < text.length(); i++) {
+            var ch = text.charAt(i);
+            if (ch == '\n') {
+                out.setLength(contentEnd);
+                lineHasContent = false;
+                inSpaceRun = false;
                 continue;
             }
-            if (cleanParagraph.length() > safeChunkSize) {
-                flushChunk(chunks, prefix, current);
-                splitLongParagraph(chunks, prefix, cleanParagraph, safeChunkSize, safeOverlap);
+            if (ch == '\u00A0' || ch == '\t' || ch == '\u000B' || ch == '\f' || ch == '\r'
+                || ch == ' ') {
+                if (lineHasContent && !inSpaceRun) {
+                    out.append(' ');
+                }
+                inSpaceRun = true;
                 continue;
             }
-            if (current.length() > 0 && current.length() + cleanParagraph.length() + 1 > safeChunkSize) {
-                flushChunk(chunks, prefix, current);
+            inSpaceRun = false;
+            if (Character.isWhitespace(ch)) {
+                if (lineHasContent) {
+                    out.append(ch);
+                }
+                continue;
             }
-            if (current.length() > 0) {
-                current.append('\n');
+            if (!lineHasContent) {
+                if (contentEnd > 0) {
+                    out.append('\n');
+                }
+                lineHasContent = true;
             }
-            current.append(cleanParagraph);
+            out.append(ch);
+            contentEnd = out.length();
         }
-        flushChunk(chunks, prefix, current);
-        return chunks;
+        out.setLength(contentEnd);
+        return out.toString();
     }
 
-    private void splitLongParagraph(List<String> chunks, String prefix, String paragraph, int chunkSize,
-        int overlap) {
-        var start = 0;
-        while (start < paragraph.length()) {
-            var end = Math.min(start + chunkSize, paragraph.length());
-            var chunk = paragraph.substring(start, end).strip();
-            if (StringUtils.hasText(chunk)) {
-                chunks.add((prefix + chunk).strip());
-            }
-            if (end >= paragraph.length()) {
-                break;
-            }
-            start = Math.max(end - overlap, start + 1);
+    @Override
+    public String hash(String content) {
+        return Hashing.sha256Hex(content);
+    }
+
+    @Override
+    public String fingerprint(String content) {
+        return Hashing.fingerprint(content);
+    }
+
+    @Override
+    public List<String> split(String title, String content, int chunkSize, int chunkOverlap) {
+        var chunks = new ArrayList<String>();
+        var iterator = new ChunkIterator(normalize(content), clamp(chunkSize, 200, 3000),
+            chunkOverlap);
+        while (iterator.hasNext()) {
+            chunks.add(embeddingText(title, iterator.next()));
         }
+        return chunks;
     }
 
-    private void flushChunk(List<String> chunks, String prefix, StringBuilder current) {
-        if (current.isEmpty()) {
-            return;
+    @Override
+    public Flux<RagContentChunk> chunks(String content, int chunkSize, int chunkOverlap,
+        RagChunkStrategy strategy) {
+        var safeChunkSize = clamp(chunkSize, 200, 3000);
+        if (strategy == RagChunkStrategy.SENTENCE) {
+            return Flux.fromIterable(() -> RagSentenceChunker.iterator(normalize(content),
+                safeChunkSize, chunkOverlap));
         }
-        chunks.add((prefix + current).strip());
-        current.setLength(0);
+        return Flux.fromIterable(() -> new ChunkIterator(normalize(content), safeChunkSize,
+            chunkOverlap));
+    }
+
+    @Override
+    public String embeddingText(String title, RagContentChunk chunk) {
+        var text = chunk == null ? "" : defaultString(chunk.getText());
+        return StringUtils.hasText(title) ? ("标题：" + title.strip() + "\n\n" + text).strip() : text;
     }
 
     private int clamp(int value, int min, int max) {
@@ -117,4 +137,131 @@ public class DefaultRagContentService implements RagContentService {
     private String defaultString(String value) {
         return value == null ? "" : value;
     }
+
+    /**
+     * 在规整后的正文上滑动游标：段落按行切分并尽量合并到分块大小以内，超长段落按固定窗口加重叠切分。
+     * 只保留当前分块的边界，不复制整篇正文。
+     */
+    private static final class ChunkIterator implements Iterator<RagContentChunk> {
+        private final String text;
+        private final int chunkSize;
+        private final int overlap;
+        private int cursor;
+        private int paragraphCount;
+        private int chunkCount;
+        private int pendingStart = -1;
+        private int pendingEnd;
+        private int pendingParagraph;
+        private int longStart = -1;
+        private int longEnd;
+        private int longParagraph;
+        private RagContentChunk next;
+
+        private ChunkIterator(String text, int chunkSize, int chunkOverlap) {
+            this.text = text;
+            this.chunkSize = chunkSize;
+            this.overlap = Math.min(Math.max(chunkOverlap, 0), chunkSize / 2);
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (next == null) {
+                next = advance();
+            }
+            return next != null;
+        }
+
+        @Override
+        public RagContentChunk next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            var chunk = next;
+            next = null;
+            return chunk;
+        }
+
+        private RagContentChunk advance() {
+            while (true) {
+                if (longStart >= 0) {
+                    var chunk = nextWindow();
+                    if (chunk != null) {
+                        return chunk;
+                    }
+                    continue;
+                }
+                if (cursor >= text.length()) {
+                    return pendingStart >= 0 ? flushPending() : null;
+                }
+                var paragraphStart = cursor;
+                var paragraphEnd = text.indexOf('\n', cursor);
+                if (paragraphEnd < 0) {
+                    paragraphEnd = text.length();
+                }
+                cursor = paragraphEnd + 1;
+                var paragraph = paragraphCount++;
+                if (paragraphEnd == paragraphStart) {
+                    continue;
+                }
+                if (paragraphEnd - paragraphStart > chunkSize) {
+                    longStart = paragraphStart;
+                    longEnd = paragraphEnd;
+                    longParagraph = paragraph;
+                    if (pendingStart >= 0) {
+                        return flushPending();
+                    }
+                    continue;
+                }
+                RagContentChunk flushed = null;
+                if (pendingStart >= 0
+                    && pendingEnd - pendingStart + paragraphEnd - paragraphStart + 1 > chunkSize) {
+                    flushed = flushPending();
+                }
+                if (pendingStart < 0) {
+                    pendingStart = paragraphStart;
+                    pendingParagraph = paragraph;
+                }
+                pendingEnd = paragraphEnd;
+                if (flushed != null) {
+                    return flushed;
+                }
+            }
+        }
+
+        private RagContentChunk nextWindow() {
+            var start = longStart;
+            var end = Math.min(start + chunkSize, longEnd);
+            if (end >= longEnd) {
+                longStart = -1;
+            } else {
+                longStart = Math.max(end - overlap, start + 1);
+            }
+            return chunk(longParagraph, start, end);
+        }
+
+        private RagContentChunk flushPending() {
+            var chunk = chunk(pendingParagraph, pendingStart, pendingEnd);
+            pendingStart = -1;
+            return chunk;
+        }
+
+        private RagContentChunk chunk(int paragraph, int start, int end) {
+            while (start < end && Character.isWhitespace(text.charAt(start))) {
+                start++;
+            }
+            while (end > start && Character.isWhitespace(text.charAt(end - 1))) {
+                end--;
+            }
+            if (start >= end) {
+                return null;
+            }
+            return RagContentChunk.builder()
+                .index(chunkCount++)
+                .paragraphIndex(paragraph)
+                .startOffset(start)
+                .endOffset(end)
+                .text(text.substring(start, end))
+                .build();
+        }
+    }
 }
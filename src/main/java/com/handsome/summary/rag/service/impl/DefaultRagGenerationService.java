@@ -1,14 +1,23 @@
 package com.handsome.summary.rag.service.impl;
 
+import com.handsome.summary.rag.cache.RagAnswerCache;
+import com.handsome.summary.rag.cache.RagQueryEmbeddingCache;
 import com.handsome.summary.rag.model.RagAnswer;
 import com.handsome.summary.rag.model.RagChatStreamEvent;
 import com.handsome.summary.rag.model.RagConversationMessage;
+import com.handsome.summary.rag.model.RagSearchResult;
+import com.handsome.summary.rag.model.RagSourceReference;
 import com.handsome.summary.rag.service.RagAiService;
 import com.handsome.summary.rag.service.RagGenerationService;
 import com.handsome.summary.rag.service.RagSearchService;
+import com.handsome.summary.rag.service.support.RagContextPacker;
 import com.handsome.summary.service.SettingConfigGetter;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
@@ -21,9 +30,13 @@ import reactor.core.publisher.Mono;
 @RequiredArgsConstructor
 public class DefaultRagGenerationService implements RagGenerationService {
 
+    private static final int CACHED_DELTA_CHARS = 24;
+
     private final SettingConfigGetter settingConfigGetter;
     private final RagSearchService ragSearchService;
     private final RagAiService ragAiService;
+    private final RagAnswerCache ragAnswerCache;
+    private final RagQueryEmbeddingCache ragQueryEmbeddingCache;
 
     @Override
     public Mono<RagAnswer> ask(String knowledgeBase, String question, Integer limit) {
@@ -33,13 +46,25 @@ public class DefaultRagGenerationService implements RagGenerationService {
     @Override
     public Mono<RagAnswer> askWithHistory(String knowledgeBase, String question, Integer limit,
         List<RagConversationMessage> history) {
-        return ragSearchService.search(knowledgeBase, question, limit)
-            .flatMap(results -> Mono.zip(settingConfigGetter.getAiConfigForFunction("rag"),
-                    settingConfigGetter.getRagConfig())
-                .flatMap(tuple -> ragAiService.generateAnswer(
-                    composeQuestion(question, history, tuple.getT2()), results,
-                    tuple.getT1().getModelName(), tuple.getT1().getSystemPrompt(),
-                    normalizedMaxContextCharacters(tuple.getT2().getMaxContextCharacters()))));
+        return Mono.zip(settingConfigGetter.getAiConfigForFunction("rag"),
+                settingConfigGetter.getRagConfig())
+            .flatMap(tuple -> {
+                var aiConfig = tuple.getT1();
+                var ragConfig = tuple.getT2();
+                return probeAnswerCache(knowledgeBase, question, limit, history, aiConfig,
+                    ragConfig)
+                    .map(Optional::of)
+                    .defaultIfEmpty(Optional.empty())
+                    .flatMap(probe -> {
+                        if (probe.isPresent() && probe.get().cached() != null) {
+                            return Mono.just(probe.get().cached());
+                        }
+                        return generate(knowledgeBase, question, limit, history, aiConfig,
+                            ragConfig)
+                            .doOnNext(answer -> storeAnswer(probe.orElse(null), answer,
+                                ragConfig));
+                    });
+            });
     }
 
     @Override
@@ -50,16 +75,26 @@ public class DefaultRagGenerationService implements RagGenerationService {
     @Override
     public Flux<RagChatStreamEvent> streamWithHistory(String knowledgeBase, String question,
         Integer limit, List<RagConversationMessage> history) {
-        return ragSearchService.search(knowledgeBase, question, limit)
-            .flatMapMany(results -> Mono.zip(settingConfigGetter.getAiConfigForFunction("rag"),
-                    settingConfigGetter.getRagConfig())
-                .flatMapMany(tuple -> Flux.concat(
-                    ragAiService.streamAnswer(composeQuestion(question, history, tuple.getT2()),
-                        results,
-                        tuple.getT1().getModelName(), tuple.getT1().getSystemPrompt(),
-                        normalizedMaxContextCharacters(tuple.getT2().getMaxContextCharacters())),
-                    Flux.just(RagChatStreamEvent.done())
-                )))
+        return Mono.zip(settingConfigGetter.getAiConfigForFunction("rag"),
+                settingConfigGetter.getRagConfig())
+            .flatMapMany(tuple -> {
+                var aiConfig = tuple.getT1();
+                var ragConfig = tuple.getT2();
+                return probeAnswerCache(knowledgeBase, question, limit, history, aiConfig,
+                    ragConfig)
+                    .map(Optional::of)
+                    .defaultIfEmpty(Optional.empty())
+                    .flatMapMany(probe -> {
+                        if (probe.isPresent() && probe.get().cached() != null) {
+                            return Flux.concat(cachedAnswerEvents(probe.get().cached()),
+                                Flux.just(RagChatStreamEvent.done()));
+                        }
+                        return Flux.concat(
+                            streamAndCapture(knowledgeBase, question, limit, history, aiConfig,
+                                ragConfig, probe.orElse(null)),
+                            Flux.just(RagChatStreamEvent.done()));
+                    });
+            })
             .onErrorResume(error -> {
                 log.error("RAG generation stream failed: knowledgeBase={}, limit={}",
                     knowledgeBase, limit, error);
@@ -67,6 +102,165 @@ public class DefaultRagGenerationService implements RagGenerationService {
             });
     }
 
+    private Mono<RagAnswer> generate(String knowledgeBase, String question, Integer limit,
+        List<RagConversationMessage> history, SettingConfigGetter.AiConfigResult aiConfig,
+        SettingConfigGetter.RagConfig ragConfig) {
+        return ragSearchService.search(knowledgeBase, question, limit)
+            .flatMap(results -> ragAiService.generateAnswer(
+                composeQuestion(question, history, ragConfig),
+                packContext(results, aiConfig.getModelName(), ragConfig),
+                aiConfig.getModelName(), aiConfig.getSystemPrompt(),
+                normalizedMaxContextCharacters(ragConfig.getMaxContextCharacters())));
+    }
+
+    private Flux<RagChatStreamEvent> streamAndCapture(String knowledgeBase, String question,
+        Integer limit, List<RagConversationMessage> history,
+        SettingConfigGetter.AiConfigResult aiConfig, SettingConfigGetter.RagConfig ragConfig,
+        AnswerCacheProbe probe) {
+        var answerText = new StringBuilder();
+        var sources = new AtomicReference<List<RagSourceReference>>(List.of());
+        var failed = new AtomicBoolean();
+        return ragSearchService.search(knowledgeBase, question, limit)
+            .flatMapMany(results -> ragAiService.streamAnswer(
+                composeQuestion(question, history, ragConfig),
+                packContext(results, aiConfig.getModelName(), ragConfig),
+                aiConfig.getModelName(), aiConfig.getSystemPrompt(),
+                normalizedMaxContextCharacters(ragConfig.getMaxContextCharacters())))
+            .doOnNext(event -> {
+                if ("delta".equals(event.getType()) && event.getDelta() != null) {
+                    answerText.append(event.getDelta());
+                } else if ("sources".equals(event.getType()) && event.getSources() != null) {
+                    sources.set(event.getSources());
+                } else if ("error".equals(event.getType())) {
+                    failed.set(true);
+                }
+            })
+            .doOnComplete(() -> {
+                if (probe != null && !failed.get()) {
+                    storeAnswer(probe, RagAnswer.builder()
+                        .answer(answerText.toString())
+                        .sources(sources.get())
+                        .build(), ragConfig);
+                }
+            });
+    }
+
+    private Mono<AnswerCacheProbe> probeAnswerCache(String knowledgeBase, String question,
+        Integer limit, List<RagConversationMessage> history,
+        SettingConfigGetter.AiConfigResult aiConfig, SettingConfigGetter.RagConfig ragConfig) {
+        if (!enabled(ragConfig.getEnableAnswerCache(), false)
+            || !StringUtils.hasText(question)
+            || !clipHistory(history, ragConfig).isEmpty()) {
+            return Mono.empty();
+        }
+        return ragSearchService.resolveKnowledgeBases(knowledgeBase)
+            .filter(knowledgeBases -> !knowledgeBases.isEmpty())
+            .flatMap(knowledgeBases -> {
+                var scope = RagAnswerCache.scope(knowledgeBases, aiConfig.getModelName(),
+                    aiConfig.getSystemPrompt(), limit);
+                return ragQueryEmbeddingCache.embedQuery(question.strip(),
+                        scope.embeddingModelName())
+                    .map(vector -> new AnswerCacheProbe(scope, vector,
+                        ragAnswerCache.lookup(scope, vector,
+                                normalizedAnswerCacheSimilarity(
+                                    ragConfig.getAnswerCacheSimilarity()),
+                                Duration.ofMinutes(normalizedAnswerCacheTtlMinutes(
+                                    ragConfig.getAnswerCacheTtlMinutes())))
+                            .orElse(null)));
+            })
+            .doOnNext(probe -> log.debug("RAG answer cache {}: knowledgeBases={} stats={}",
+                probe.cached() == null ? "miss" : "hit", probe.scope().knowledgeBases(),
+                ragAnswerCache.stats()))
+            .onErrorResume(error -> {
+                log.warn("RAG answer cache lookup skipped: {}", error.getMessage());
+                return Mono.empty();
+            });
+    }
+
+    private void storeAnswer(AnswerCacheProbe probe, RagAnswer answer,
+        SettingConfigGetter.RagConfig ragConfig) {
+        if (probe == null || answer == null || !StringUtils.hasText(answer.getAnswer())) {
+            return;
+        }
+        ragAnswerCache.store(probe.scope(), probe.vector(), answer,
+            normalizedAnswerCacheMaxEntries(ragConfig.getAnswerCacheMaxEntries()));
+    }
+
+    private Flux<RagChatStreamEvent> cachedAnswerEvents(RagAnswer answer) {
+        var text = answer.getAnswer() == null ? "" : answer.getAnswer();
+        var events = new ArrayList<RagChatStreamEvent>();
+        var start = 0;
+        while (start < text.length()) {
+            var end = Math.min(start + CACHED_DELTA_CHARS, text.length());
+            if (end < text.length() && Character.isHighSurrogate(text.charAt(end - 1))) {
+                end++;
+            }
+            events.add(RagChatStreamEvent.delta(text.substring(start, end)));
+            start = end;
+        }
+        events.add(RagChatStreamEvent.sources(answer.getSources()));
+        return Flux.fromIterable(events);
+    }
+
+    private List<RagSearchResult> packContext(List<RagSearchResult> results, String modelName,
+        SettingConfigGetter.RagConfig config) {
+        if (results == null || results.isEmpty()) {
+            return List.of();
+        }
+        var startNanos = System.nanoTime();
+        var tokenBudget = normalizedMaxContextTokens(config.getMaxContextTokens());
+        var packed = RagContextPacker.pack(results, tokenBudget,
+            normalizedChunkOverlap(config.getChunkOverlap()), modelName);
+        var durationMillis = (System.nanoTime() - startNanos) / 1_000_000L;
+        log.debug("RAG context packed: sources={} packedSources={} mergedChunks={} "
+                + "droppedSources={} originalChars={} packedChars={} savedChars={} "
+                + "estimatedTokens={} tokenBudget={} model={} durationMs={}",
+            results.size(), packed.sources().size(), packed.mergedChunks(),
+            packed.droppedSources(), packed.originalChars(), packed.packedChars(),
+            packed.savedChars(), packed.estimatedTokens(), tokenBudget, modelName,
+            durationMillis);
+        return packed.sources();
+    }
+
+    private int normalizedMaxContextTokens(Integer value) {
+        if (value == null) {
+            return 6000;
+        }
+        return Math.min(Math.max(value, 500), 128000);
+    }
+
+    private int normalizedChunkOverlap(Integer value) {
+        if (value == null) {
+            return 120;
+        }
+        return Math.min(Math.max(value, 0), 800);
+    }
+
+    private double normalizedAnswerCacheSimilarity(Double value) {
+        if (value == null) {
+            return 0.95d;
+        }
+        return Math.min(Math.max(value, 0.8d), 1.0d);
+    }
+
+    private int normalizedAnswerCacheTtlMinutes(Integer value) {
+        if (value == null) {
+            return 60;
+        }
+        return Math.min(Math.max(value, 1), 1440);
+    }
+
+    private int normalizedAnswerCacheMaxEntries(Integer value) {
+        if (value == null) {
+            return 500;
+        }
+        return Math.min(Math.max(value, 10), 5000);
+    }
+
+    private boolean enabled(Boolean value, boolean defaultValue) {
+        return value == null ? defaultValue : value;
+    }
+
     private int normalizedMaxContextCharacters(Integer value) {
         if (value == null) {
             return 12000;
@@ -137,4 +331,8 @@ public class DefaultRagGenerationService implements RagGenerationService {
     private String roleText(String role) {
         return "assistant".equalsIgnoreCase(role) ? "助手" : "用户";
     }
+
+    private record AnswerCacheProbe(RagAnswerCache.Scope scope, float[] vector,
+                                    RagAnswer cached) {
+    }
 }
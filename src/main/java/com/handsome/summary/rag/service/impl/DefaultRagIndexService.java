@@ -1,32 +1,56 @@
 package com.handsome.summary.rag.service.impl;
 
+import static run.halo.app.extension.index.query.Queries.and;
 import static run.halo.app.extension.index.query.Queries.equal;
 
+import com.handsome.summary.ai.AiFoundationCallLog;
+import com.handsome.summary.ai.extension.AiCallLog;
+import com.handsome.summary.rag.cache.RagAnswerCache;
+import com.handsome.summary.rag.cache.RagSearchResultCache;
 import com.handsome.summary.rag.extension.RagDocument;
 import com.handsome.summary.rag.extension.RagKnowledgeBase;
+import com.handsome.summary.rag.model.RagChunkStrategy;
+import com.handsome.summary.rag.model.RagContentChunk;
 import com.handsome.summary.rag.model.RagEmbeddingOptions;
 import com.handsome.summary.rag.model.RagIndexedChunk;
+import com.handsome.summary.rag.model.RagIndexEstimate;
 import com.handsome.summary.rag.model.RagIndexSummary;
 import com.handsome.summary.rag.service.RagAiService;
 import com.handsome.summary.rag.service.RagContentService;
 import com.handsome.summary.rag.service.RagIndexService;
+import com.handsome.summary.rag.service.RagKnowledgeBaseStatsService;
+import com.handsome.summary.rag.service.support.RagChunkDeduplicator;
+import com.handsome.summary.rag.service.support.RagTokenEstimator;
+import com.handsome.summary.rag.store.RagEmbeddingCheckpointStore;
+import com.handsome.summary.rag.store.RagIndexManifestStore;
 import com.handsome.summary.rag.store.RagVectorStore;
 import com.handsome.summary.service.SettingConfigGetter;
+import com.handsome.summary.support.Hashing;
 import java.time.Duration;
 import java.time.Instant;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.concurrent.CancellationException;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import org.springframework.util.StringUtils;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import reactor.util.retry.Retry;
 import run.halo.app.extension.ListOptions;
 import run.halo.app.extension.Metadata;
+import run.halo.app.extension.PageRequestImpl;
 import run.halo.app.extension.ReactiveExtensionClient;
 
 @Slf4j
@@ -34,17 +58,27 @@ import run.halo.app.extension.ReactiveExtensionClient;
 @RequiredArgsConstructor
 public class DefaultRagIndexService implements RagIndexService {
 
-    private static final String CHUNKER_VERSION = "chunker-v2";
     private static final int DEFAULT_INDEX_DOCUMENT_BATCH_SIZE = 8;
+    private static final int CHUNK_PREPARE_CONCURRENCY =
+        Math.max(2, Runtime.getRuntime().availableProcessors());
     private static final Duration EMBEDDING_HEARTBEAT_INTERVAL = Duration.ofSeconds(60);
     private static final Duration LUCENE_REBUILD_MIN_TIMEOUT = Duration.ofMinutes(2);
     private static final Duration LUCENE_REBUILD_MAX_TIMEOUT = Duration.ofMinutes(30);
+    private static final int STATUS_WRITE_CONCURRENCY = 8;
+    private static final int STATUS_WRITE_MAX_RETRIES = 3;
+    private static final Duration STATUS_WRITE_RETRY_BACKOFF = Duration.ofMillis(100);
+    private static final int THROUGHPUT_SAMPLE_CALLS = 50;
 
     private final ReactiveExtensionClient client;
     private final SettingConfigGetter settingConfigGetter;
     private final RagContentService ragContentService;
     private final RagAiService ragAiService;
     private final RagVectorStore ragVectorStore;
+    private final RagEmbeddingCheckpointStore ragEmbeddingCheckpointStore;
+    private final RagIndexManifestStore ragIndexManifestStore;
+    private final RagKnowledgeBaseStatsService ragKnowledgeBaseStatsService;
+    private final RagAnswerCache ragAnswerCache;
+    private final RagSearchResultCache ragSearchResultCache;
 
     @Override
     public Mono<RagKnowledgeBase> ensureKnowledgeBase(String knowledgeBase) {
@@ -123,41 +157,161 @@ public class DefaultRagIndexService implements RagIndexService {
             });
     }
 
+    @Override
+    public Mono<RagIndexEstimate> estimateRebuild(String knowledgeBase) {
+        var kbName = normalizeKnowledgeBase(knowledgeBase);
+        var startedAt = System.currentTimeMillis();
+        return Mono.zip(settingConfigGetter.getBasicConfig(), settingConfigGetter.getRagConfig())
+            .flatMap(tuple -> {
+                var embeddingModelName = tuple.getT1().getEmbeddingModelName();
+                var ragConfig = tuple.getT2();
+                var options = ListOptions.builder()
+                    .fieldQuery(equal("spec.knowledgeBase", kbName))
+                    .build();
+                return Mono.zip(client.listAll(RagDocument.class, options, Sort.unsorted())
+                            .collectList(),
+                        ragEmbeddingCheckpointStore.load(kbName, embeddingModelName),
+                        embeddingThroughput(embeddingModelName))
+                    .flatMap(loaded -> estimateChunks(kbName, embeddingModelName, ragConfig,
+                        loaded.getT1(), loaded.getT2(), loaded.getT3(), startedAt));
+            });
+    }
+
+    /**
+     * 与 {@link #chunkAndEmbed} 使用相同的分块、批次划分和去重规则，只统计不调用 Embedding。
+     */
+    private Mono<RagIndexEstimate> estimateChunks(String knowledgeBase, String embeddingModelName,
+        SettingConfigGetter.RagConfig ragConfig, List<RagDocument> documents,
+        Map<String, float[]> checkpointVectors, EmbeddingThroughput throughput, long startedAt) {
+        var chunkSettings = chunkSettings(ragConfig);
+        var embeddingBatchSize = embeddingOptions(ragConfig).batchSize();
+        var documentBatchSize = normalizedInt(ragConfig.getIndexDocumentBatchSize(),
+            DEFAULT_INDEX_DOCUMENT_BATCH_SIZE, 1, 50);
+        var eligibleDocuments = documents.stream()
+            .filter(this::hasIndexableContent)
+            .toList();
+        var deduplicator = new RagChunkDeduplicator(
+            enabled(ragConfig.getEnableNearDuplicateReuse(), false));
+        var totals = new EstimateTotals();
+        return Flux.fromIterable(eligibleDocuments)
+            .flatMapSequential(document -> documentChunks(document, chunkSettings),
+                CHUNK_PREPARE_CONCURRENCY)
+            .filter(documentChunks -> !documentChunks.isEmpty())
+            .buffer(documentBatchSize)
+            .doOnNext(documentBatch -> {
+                var missingInBatch = 0;
+                for (var input : documentBatch.stream().flatMap(List::stream).toList()) {
+                    var text = embeddingText(input);
+                    totals.chunks++;
+                    totals.contentChars += input.content().length();
+                    if (deduplicator.slot(text) != totals.embeddingInputs) {
+                        continue;
+                    }
+                    totals.embeddingInputs++;
+                    totals.embeddingChars += text.length();
+                    totals.tokens += RagTokenEstimator.estimate(text, embeddingModelName);
+                    if (checkpointVectors.containsKey(Hashing.fingerprint(text))) {
+                        totals.cachedInputs++;
+                    } else {
+                        missingInBatch++;
+                        totals.missingChars += text.length();
+                    }
+                }
+                totals.documentBatches++;
+                totals.embeddingCalls += (missingInBatch + embeddingBatchSize - 1)
+                    / embeddingBatchSize;
+            })
+            .then(Mono.fromSupplier(() -> {
+                var missing = totals.embeddingInputs - totals.cachedInputs;
+                return RagIndexEstimate.builder()
+                    .knowledgeBase(knowledgeBase)
+                    .embeddingModelName(embeddingModelName)
+                    .documentCount(eligibleDocuments.size())
+                    .skippedDocumentCount(documents.size() - eligibleDocuments.size())
+                    .chunkCount(totals.chunks)
+                    .duplicateChunkCount(deduplicator.duplicateCount())
+                    .embeddingInputCount(totals.embeddingInputs)
+                    .cachedInputCount(totals.cachedInputs)
+                    .cacheMissRatio(totals.embeddingInputs == 0 ? 0d
+                        : (double) missing / totals.embeddingInputs)
+                    .contentChars(totals.contentChars)
+                    .embeddingChars(totals.embeddingChars)
+                    .estimatedTokens(totals.tokens)
+                    .documentBatches(totals.documentBatches)
+                    .embeddingCalls(totals.embeddingCalls)
+                    .estimatedDurationMillis(throughput.estimateMillis(totals.missingChars))
+                    .throughputSampleCalls(throughput.sampleCalls())
+                    .durationMillis(System.currentTimeMillis() - startedAt)
+                    .build();
+            }));
+    }
+
+    /**
+     * 取该模型最近成功的 Embedding 调用记录，按输入字符数和耗时计算吞吐。
+     */
+    private Mono<EmbeddingThroughput> embeddingThroughput(String embeddingModelName) {
+        var options = ListOptions.builder()
+            .fieldQuery(and(equal("spec.operation", "rag-embed-values"),
+                and(equal("spec.modelName", AiFoundationCallLog.modelName(embeddingModelName)),
+                    equal("spec.success", "true"))))
+            .build();
+        var pageRequest = PageRequestImpl.of(1, THROUGHPUT_SAMPLE_CALLS,
+            Sort.by(Sort.Order.desc("metadata.creationTimestamp")));
+        return client.listBy(AiCallLog.class, options, pageRequest)
+            .map(result -> {
+                var chars = 0L;
+                var millis = 0L;
+                var calls = 0;
+                for (var callLog : result.getItems()) {
+                    var spec = callLog.getSpec();
+                    if (spec == null || spec.getInputChars() == null
+                        || spec.getDurationMillis() == null || spec.getDurationMillis() <= 0) {
+                        continue;
+                    }
+                    chars += spec.getInputChars();
+                    millis += spec.getDurationMillis();
+                    calls++;
+                }
+                return new EmbeddingThroughput(chars, millis, calls);
+            })
+            .onErrorResume(error -> {
+                log.warn("Failed to read RAG embedding call history: model={}",
+                    embeddingModelName, error);
+                return Mono.just(new EmbeddingThroughput(0, 0, 0));
+            });
+    }
+
     private Mono<RagIndexSummary> buildAndStore(RagKnowledgeBase knowledgeBase,
         List<RagDocument> documents,
         SettingConfigGetter.BasicConfig basicConfig, SettingConfigGetter.RagConfig ragConfig,
         long startedAt, ProgressListener progressListener) {
         var knowledgeBaseName = knowledgeBaseName(knowledgeBase);
-        var chunkSize = normalizedInt(ragConfig.getChunkSize(), 900, 200, 3000);
-        var chunkOverlap = normalizedInt(ragConfig.getChunkOverlap(), 120, 0, Math.min(800,
-            chunkSize / 2));
-        var chunkInputs = chunkInputs(documents, chunkSize, chunkOverlap);
-
-        if (chunkInputs.isEmpty()) {
-            return progressListener.update(80, "清空空知识库索引")
-                .then(ragVectorStore.rebuild(knowledgeBaseName, "empty", List.of()))
-                .then(updateKnowledgeBaseReady(knowledgeBaseName, documents.size(), 0,
-                    basicConfig.getEmbeddingModelName(), 0, "empty", startedAt,
-                    RagKnowledgeBase.IndexState.EMPTY.name()))
-                .thenReturn(RagIndexSummary.builder()
-                    .documentCount(documents.size())
-                    .chunkCount(0)
-                    .embeddingDimensions(0)
-                    .indexVersion("empty")
-                    .durationMillis(System.currentTimeMillis() - startedAt)
-                    .build());
-        }
-
+        var chunkSettings = chunkSettings(ragConfig);
         var embeddingModelName = basicConfig.getEmbeddingModelName();
-        var embeddingOptions = embeddingOptions(ragConfig);
         return progressListener.update(45, "调用 AI 基座生成 Embedding")
-            .then(embedInDocumentBatches(chunkInputs, embeddingModelName, embeddingOptions, ragConfig,
-                progressListener))
-            .flatMap(vectors -> {
-                validateEmbeddings(vectors, chunkInputs.size());
+            .then(chunkAndEmbed(documents, chunkSettings, embeddingModelName, ragConfig,
+                knowledgeBaseName, progressListener))
+            .flatMap(embedded -> {
+                var chunkInputs = embedded.inputs();
+                if (chunkInputs.isEmpty()) {
+                    return progressListener.update(80, "清空空知识库索引")
+                        .then(ragVectorStore.rebuild(knowledgeBaseName, "empty", List.of()))
+                        .then(updateKnowledgeBaseReady(knowledgeBaseName, documents.size(), 0,
+                            embeddingModelName, 0, "empty", startedAt,
+                            RagKnowledgeBase.IndexState.EMPTY.name()))
+                        .then(ragEmbeddingCheckpointStore.clear(knowledgeBaseName))
+                        .thenReturn(RagIndexSummary.builder()
+                            .documentCount(documents.size())
+                            .chunkCount(0)
+                            .duplicateChunkCount(0)
+                            .embeddingDimensions(0)
+                            .indexVersion("empty")
+                            .durationMillis(System.currentTimeMillis() - startedAt)
+                            .build());
+                }
+                var vectors = embedded.vectors();
                 var dimensions = vectors.getFirst().length;
-                var indexVersion = indexVersion(embeddingModelName, dimensions, chunkSize,
-                    chunkOverlap);
+                var indexVersion = indexVersion(embeddingModelName, dimensions, chunkSettings);
                 var indexedChunks = new ArrayList<RagIndexedChunk>();
                 for (var i = 0; i < chunkInputs.size(); i++) {
                     indexedChunks.add(toIndexedChunk(knowledgeBase, chunkInputs.get(i), vectors.get(i)));
@@ -166,13 +320,16 @@ public class DefaultRagIndexService implements RagIndexService {
                     .then(writeLuceneIndex(knowledgeBaseName, indexVersion, indexedChunks, dimensions))
                     .then(progressListener.update(85, "Lucene 向量索引写入完成"))
                     .then(progressListener.update(90, "更新知识库索引状态"))
-                    .then(updateDocumentStatuses(documents, chunkInputs))
+                    .then(updateDocumentStatuses(knowledgeBaseName, indexVersion, documents,
+                        chunkInputs, true))
                     .then(updateKnowledgeBaseReady(knowledgeBaseName, documents.size(),
                         indexedChunks.size(), embeddingModelName, dimensions, indexVersion, startedAt,
                         RagKnowledgeBase.IndexState.READY.name()))
+                    .then(ragEmbeddingCheckpointStore.clear(knowledgeBaseName))
                     .thenReturn(RagIndexSummary.builder()
                         .documentCount(documents.size())
                         .chunkCount(indexedChunks.size())
+                        .duplicateChunkCount(embedded.duplicateCount())
                         .embeddingDimensions(dimensions)
                         .indexVersion(indexVersion)
                         .durationMillis(System.currentTimeMillis() - startedAt)
@@ -191,25 +348,20 @@ public class DefaultRagIndexService implements RagIndexService {
         if (targetDocuments.isEmpty()) {
             return currentSummary(knowledgeBaseName, startedAt);
         }
-        var chunkSize = normalizedInt(ragConfig.getChunkSize(), 900, 200, 3000);
-        var chunkOverlap = normalizedInt(ragConfig.getChunkOverlap(), 120, 0, Math.min(800,
-            chunkSize / 2));
-        var chunkInputs = chunkInputs(targetDocuments, chunkSize, chunkOverlap);
-        if (chunkInputs.isEmpty()) {
-            return deleteDocumentChunks(knowledgeBaseName, requestedDocumentNames, targetDocuments,
-                knowledgeBase, startedAt, progressListener);
-        }
-
+        var chunkSettings = chunkSettings(ragConfig);
         var embeddingModelName = basicConfig.getEmbeddingModelName();
-        var embeddingOptions = embeddingOptions(ragConfig);
         return progressListener.update(30, "为本次导入文档生成 Embedding")
-            .then(embedInDocumentBatches(chunkInputs, embeddingModelName, embeddingOptions, ragConfig,
-                progressListener))
-            .flatMap(vectors -> {
-                validateEmbeddings(vectors, chunkInputs.size());
+            .then(chunkAndEmbed(targetDocuments, chunkSettings, embeddingModelName, ragConfig,
+                null, progressListener))
+            .flatMap(embedded -> {
+                var chunkInputs = embedded.inputs();
+                if (chunkInputs.isEmpty()) {
+                    return deleteDocumentChunks(knowledgeBaseName, requestedDocumentNames,
+                        targetDocuments, knowledgeBase, startedAt, progressListener);
+                }
+                var vectors = embedded.vectors();
                 var dimensions = vectors.getFirst().length;
-                var indexVersion = indexVersion(embeddingModelName, dimensions, chunkSize,
-                    chunkOverlap);
+                var indexVersion = indexVersion(embeddingModelName, dimensions, chunkSettings);
                 if (!compatibleIndexVersion(knowledgeBase, indexVersion)) {
                     return progressListener.update(5, "索引配置已变化，切换为全量重建")
                         .then(rebuild(knowledgeBaseName, progressListener));
@@ -221,9 +373,11 @@ public class DefaultRagIndexService implements RagIndexService {
                 return progressListener.update(75, "写入本次导入文档的 Lucene 向量")
                     .then(ragVectorStore.replaceDocuments(knowledgeBaseName, indexVersion,
                         requestedDocumentNames, indexedChunks))
-                    .then(updateDocumentStatuses(targetDocuments, chunkInputs))
+                    .then(updateDocumentStatuses(knowledgeBaseName, indexVersion, targetDocuments,
+                        chunkInputs, false))
                     .then(updateKnowledgeBaseFromDocumentStatuses(knowledgeBaseName,
-                        embeddingModelName, dimensions, indexVersion, startedAt));
+                        embeddingModelName, dimensions, indexVersion, startedAt))
+                    .doOnNext(summary -> summary.setDuplicateChunkCount(embedded.duplicateCount()));
             });
     }
 
@@ -242,45 +396,159 @@ public class DefaultRagIndexService implements RagIndexService {
         var versionForStatus = StringUtils.hasText(indexVersion) ? indexVersion : "empty";
         return progressListener.update(75, "移除空文档的旧索引分块")
             .then(deleteFromIndex)
-            .then(updateDocumentStatuses(documents, List.of()))
+            .then(updateDocumentStatuses(knowledgeBase, versionForStatus, documents, List.of(),
+                false))
             .then(updateKnowledgeBaseFromDocumentStatuses(knowledgeBase, embeddingModelName,
                 dimensions, versionForStatus, startedAt));
     }
 
-    private Mono<List<float[]>> embedInDocumentBatches(List<ChunkInput> chunkInputs,
-        String embeddingModelName, RagEmbeddingOptions embeddingOptions,
-        SettingConfigGetter.RagConfig ragConfig, ProgressListener progressListener) {
+    /**
+     * 分块和 Embedding 组成流水线：文档在并行调度器上按文档分块，按原顺序凑满一批文档后立即调用 Embedding，
+     * 后续文档的分块与前面批次的 Embedding 同时进行。内容相同或近似重复的分块只生成一次 Embedding，
+     * 各自仍写入索引并共用同一个向量。
+     *
+     * <p>传入 {@code checkpointKnowledgeBase} 时（全量重建），每批新生成的向量写入检查点，重试或重启后
+     * 检查点里已有的分块不再调用 Embedding。</p>
+     */
+    private Mono<EmbeddedChunks> chunkAndEmbed(List<RagDocument> documents,
+        ChunkSettings chunkSettings, String embeddingModelName,
+        SettingConfigGetter.RagConfig ragConfig, String checkpointKnowledgeBase,
+        ProgressListener progressListener) {
+        var checkpoint = checkpointKnowledgeBase == null
+            ? Mono.just(Map.<String, float[]>of())
+            : ragEmbeddingCheckpointStore.load(checkpointKnowledgeBase, embeddingModelName)
+                .onErrorResume(error -> {
+                    log.warn("Failed to load RAG embedding checkpoint: kb={}",
+                        checkpointKnowledgeBase, error);
+                    return Mono.just(Map.of());
+                });
+        return checkpoint.flatMap(checkpointVectors -> chunkAndEmbed(documents, chunkSettings,
+            embeddingModelName, ragConfig, checkpointKnowledgeBase, checkpointVectors,
+            progressListener));
+    }
+
+    private Mono<EmbeddedChunks> chunkAndEmbed(List<RagDocument> documents,
+        ChunkSettings chunkSettings, String embeddingModelName,
+        SettingConfigGetter.RagConfig ragConfig, String checkpointKnowledgeBase,
+        Map<String, float[]> checkpointVectors, ProgressListener progressListener) {
+        var embeddingOptions = embeddingOptions(ragConfig);
         var documentBatchSize = normalizedInt(ragConfig.getIndexDocumentBatchSize(),
             DEFAULT_INDEX_DOCUMENT_BATCH_SIZE, 1, 50);
-        var batches = documentBatches(chunkInputs, documentBatchSize);
-        var totalBatches = batches.size();
-        var vectors = new ArrayList<float[]>(chunkInputs.size());
-        return Flux.fromIterable(batches)
+        var eligibleDocuments = documents.stream()
+            .filter(this::hasIndexableContent)
+            .toList();
+        var totalBatches = (eligibleDocuments.size() + documentBatchSize - 1) / documentBatchSize;
+        var deduplicator = new RagChunkDeduplicator(
+            enabled(ragConfig.getEnableNearDuplicateReuse(), false));
+        var inputs = new ArrayList<ChunkInput>();
+        var slots = new ArrayList<Integer>();
+        var slotVectors = new ArrayList<float[]>();
+        var resumedBatches = new int[] {0};
+        return Flux.fromIterable(eligibleDocuments)
+            .flatMapSequential(document -> documentChunks(document, chunkSettings),
+                CHUNK_PREPARE_CONCURRENCY)
+            .filter(documentChunks -> !documentChunks.isEmpty())
+            .buffer(documentBatchSize)
+            .map(documentBatch -> documentBatch.stream()
+                .flatMap(List::stream)
+                .toList())
             .index()
             .concatMap(tuple -> {
                 var batchIndex = tuple.getT1().intValue();
                 var batch = tuple.getT2();
                 var batchNumber = batchIndex + 1;
                 var documentCount = documentCount(batch);
-                var startMessage = "调用 AI 基座生成 Embedding（第 %d/%d 批，%d 篇文档，%d 个分块）"
-                    .formatted(batchNumber, totalBatches, documentCount, batch.size());
+                var pendingTexts = new ArrayList<String>();
+                for (var input : batch) {
+                    var text = embeddingText(input);
+                    var slot = deduplicator.slot(text);
+                    if (slot == slotVectors.size() + pendingTexts.size()) {
+                        pendingTexts.add(text);
+                    }
+                    inputs.add(input);
+                    slots.add(slot);
+                }
+                var reused = batch.size() - pendingTexts.size();
+                var keys = pendingTexts.stream().map(Hashing::fingerprint).toList();
+                var missingTexts = new ArrayList<String>();
+                var missingKeys = new ArrayList<String>();
+                for (var i = 0; i < pendingTexts.size(); i++) {
+                    if (!checkpointVectors.containsKey(keys.get(i))) {
+                        missingTexts.add(pendingTexts.get(i));
+                        missingKeys.add(keys.get(i));
+                    }
+                }
+                var restored = !pendingTexts.isEmpty() && missingTexts.isEmpty();
+                if (restored && resumedBatches[0] == batchIndex) {
+                    resumedBatches[0]++;
+                }
+                var startMessage = restored
+                    ? "从检查点恢复 Embedding（第 %d/%d 批，%d 篇文档，%d 个分块）"
+                        .formatted(batchNumber, totalBatches, documentCount, batch.size())
+                    : ("调用 AI 基座生成 Embedding（第 %d/%d 批，%d 篇文档，%d 个分块，"
+                        + "复用 %d 个重复分块）").formatted(batchNumber, totalBatches, documentCount,
+                        batch.size(), reused + pendingTexts.size() - missingTexts.size());
                 var progress = embeddingProgress(batchIndex, totalBatches);
+                var embedding = missingTexts.isEmpty()
+                    ? Mono.just(List.<float[]>of())
+                    : withEmbeddingHeartbeat(
+                        ragAiService.embedValues(missingTexts, embeddingModelName, embeddingOptions),
+                        progressListener, progress, startMessage)
+                        .doOnNext(embedded -> validateEmbeddings(embedded, missingTexts.size()))
+                        .flatMap(embedded -> saveCheckpoint(checkpointKnowledgeBase,
+                            embeddingModelName, missingKeys, embedded).thenReturn(embedded));
                 return progressListener.update(progress, startMessage)
-                    .then(withEmbeddingHeartbeat(
-                        ragAiService.embedValues(batch.stream().map(ChunkInput::content).toList(),
-                            embeddingModelName, embeddingOptions),
-                        progressListener, progress, startMessage))
-                    .doOnNext(batchVectors -> validateEmbeddings(batchVectors, batch.size()))
+                    .then(embedding)
+                    .map(embedded -> {
+                        var batchVectors = new ArrayList<float[]>(pendingTexts.size());
+                        var next = 0;
+                        for (var key : keys) {
+                            var cached = checkpointVectors.get(key);
+                            batchVectors.add(cached != null ? cached : embedded.get(next++));
+                        }
+                        return batchVectors;
+                    })
                     .flatMap(batchVectors -> {
-                        vectors.addAll(batchVectors);
-                        var completeMessage = "Embedding 已完成第 %d/%d 批（累计 %d/%d 个分块）"
-                            .formatted(batchNumber, totalBatches, vectors.size(), chunkInputs.size());
-                        return progressListener.update(embeddingProgress(batchNumber, totalBatches),
-                                completeMessage)
+                        slotVectors.addAll(batchVectors);
+                        var completeMessage = ("Embedding 已完成第 %d/%d 批（累计 %d 个分块，"
+                            + "%d 个重复分块复用向量）").formatted(batchNumber, totalBatches, inputs.size(),
+                                deduplicator.duplicateCount());
+                        return progressListener.batches(batchNumber, totalBatches,
+                                resumedBatches[0])
+                            .then(progressListener.update(embeddingProgress(batchNumber,
+                                totalBatches), completeMessage))
                             .thenReturn(batchVectors);
                     });
             }, 1)
-            .then(Mono.fromSupplier(() -> List.copyOf(vectors)));
+            .then(Mono.fromSupplier(() -> new EmbeddedChunks(List.copyOf(inputs),
+                slots.stream().map(slotVectors::get).toList(), deduplicator.duplicateCount())));
+    }
+
+    private Mono<Void> saveCheckpoint(String knowledgeBase, String embeddingModelName,
+        List<String> keys, List<float[]> vectors) {
+        if (knowledgeBase == null) {
+            return Mono.empty();
+        }
+        var batch = new HashMap<String, float[]>();
+        for (var i = 0; i < keys.size(); i++) {
+            batch.put(keys.get(i), vectors.get(i));
+        }
+        return ragEmbeddingCheckpointStore.save(knowledgeBase, embeddingModelName, batch);
+    }
+
+    private Mono<List<ChunkInput>> documentChunks(RagDocument document,
+        ChunkSettings chunkSettings) {
+        return ragContentService.chunks(document.getSpec().getContent(), chunkSettings.size(),
+                chunkSettings.overlap(), chunkSettings.strategy())
+            .map(chunk -> new ChunkInput(document, chunk))
+            .collectList()
+            .subscribeOn(Schedulers.parallel());
+    }
+
+    private boolean hasIndexableContent(RagDocument document) {
+        var spec = document.getSpec();
+        return spec != null && enabled(spec.getEnabled(), true)
+            && StringUtils.hasText(spec.getContent());
     }
 
     private <T> Mono<T> withEmbeddingHeartbeat(Mono<T> work, ProgressListener progressListener,
@@ -300,31 +568,6 @@ public class DefaultRagIndexService implements RagIndexService {
         return Mono.when(heartbeat, sharedWork).then(sharedWork);
     }
 
-    private List<List<ChunkInput>> documentBatches(List<ChunkInput> chunkInputs,
-        int documentBatchSize) {
-        var batches = new ArrayList<List<ChunkInput>>();
-        var current = new ArrayList<ChunkInput>();
-        String currentDocumentName = null;
-        var documentsInBatch = 0;
-        for (var input : chunkInputs) {
-            var documentName = documentName(input.document());
-            if (!documentName.equals(currentDocumentName)) {
-                if (!current.isEmpty() && documentsInBatch >= documentBatchSize) {
-                    batches.add(List.copyOf(current));
-                    current.clear();
-                    documentsInBatch = 0;
-                }
-                documentsInBatch++;
-                currentDocumentName = documentName;
-            }
-            current.add(input);
-        }
-        if (!current.isEmpty()) {
-            batches.add(List.copyOf(current));
-        }
-        return batches;
-    }
-
     private int documentCount(List<ChunkInput> chunkInputs) {
         return (int) chunkInputs.stream()
             .map(input -> documentName(input.document()))
@@ -340,22 +583,9 @@ public class DefaultRagIndexService implements RagIndexService {
         return Math.max(45, Math.min(progress, 74));
     }
 
-    private List<ChunkInput> chunkInputs(List<RagDocument> documents, int chunkSize,
-        int chunkOverlap) {
-        var chunkInputs = new ArrayList<ChunkInput>();
-        for (var document : documents) {
-            var spec = document.getSpec();
-            if (spec == null || !enabled(spec.getEnabled(), true)
-                || !StringUtils.hasText(spec.getContent())) {
-                continue;
-            }
-            var chunks = ragContentService.split(spec.getTitle(), spec.getContent(), chunkSize,
-                chunkOverlap);
-            for (var i = 0; i < chunks.size(); i++) {
-                chunkInputs.add(new ChunkInput(document, chunks.get(i), i));
-            }
-        }
-        return chunkInputs;
+    private String embeddingText(ChunkInput input) {
+        return ragContentService.embeddingText(input.document().getSpec().getTitle(),
+            input.chunk());
     }
 
     private Mono<List<RagDocument>> fetchDocuments(List<String> documentNames) {
@@ -391,25 +621,25 @@ public class DefaultRagIndexService implements RagIndexService {
             && status.getIndexVersion().equals(indexVersion);
     }
 
+    /**
+     * 文档状态写入后已经同步记入知识库统计，这里直接读取统计，不再列出全部文档。
+     */
     private Mono<RagIndexSummary> updateKnowledgeBaseFromDocumentStatuses(String knowledgeBase,
         String embeddingModelName, int dimensions, String indexVersion, long startedAt) {
-        return listDocuments(knowledgeBase)
-            .flatMap(documents -> {
-                var chunkCount = documents.stream()
-                    .map(RagDocument::getStatus)
-                    .map(status -> status == null || status.getChunkCount() == null
-                        ? 0 : status.getChunkCount())
-                    .reduce(0, Integer::sum);
+        return ragKnowledgeBaseStatsService.stats(knowledgeBase)
+            .flatMap(stats -> {
+                var documentCount = defaultInt(stats.getEnabledDocuments());
+                var chunkCount = defaultInt(stats.getEnabledChunkCount());
                 var state = chunkCount > 0
                     ? RagKnowledgeBase.IndexState.READY.name()
                     : RagKnowledgeBase.IndexState.EMPTY.name();
                 var finalVersion = chunkCount > 0 && StringUtils.hasText(indexVersion)
                     ? indexVersion
                     : "empty";
-                return updateKnowledgeBaseReady(knowledgeBase, documents.size(), chunkCount,
+                return updateKnowledgeBaseReady(knowledgeBase, documentCount, chunkCount,
                     embeddingModelName, dimensions, finalVersion, startedAt, state)
                     .thenReturn(RagIndexSummary.builder()
-                        .documentCount(documents.size())
+                        .documentCount(documentCount)
                         .chunkCount(chunkCount)
                         .embeddingDimensions(dimensions)
                         .indexVersion(finalVersion)
@@ -485,51 +715,102 @@ public class DefaultRagIndexService implements RagIndexService {
             .url(spec.getUrl())
             .content(input.content())
             .chunkIndex(input.chunkIndex())
+            .paragraphIndex(input.chunk().getParagraphIndex())
+            .startOffset(input.chunk().getStartOffset())
+            .endOffset(input.chunk().getEndOffset())
             .tags(spec.getTags())
             .categories(spec.getCategories())
             .vector(vector)
             .build();
     }
 
-    private Mono<Void> updateDocumentStatuses(List<RagDocument> documents, List<ChunkInput> chunkInputs) {
-        var counts = new java.util.HashMap<String, Integer>();
+    /**
+     * 先把本次索引结果写入知识库索引清单，再回写文档状态。文档状态按有限并发写入，只有分块数变化、存在错误信息或
+     * 尚未标记为已索引的文档才会更新；更新冲突时重新读取文档重试，重新读取到的内容已变化（索引期间被再次导入）时跳过，
+     * 交给下一次索引处理。
+     */
+    private Mono<Void> updateDocumentStatuses(String knowledgeBase, String indexVersion,
+        List<RagDocument> documents, List<ChunkInput> chunkInputs, boolean replaceManifest) {
+        var counts = new HashMap<String, Integer>();
         for (var document : documents) {
             counts.put(document.getMetadata().getName(), 0);
         }
         for (var input : chunkInputs) {
             counts.merge(input.document().getMetadata().getName(), 1, Integer::sum);
         }
-        return reactor.core.publisher.Flux.fromIterable(counts.entrySet())
-            .flatMap(entry -> client.fetch(RagDocument.class, entry.getKey())
-                .flatMap(document -> {
-                    var status = document.getStatus() == null ? new RagDocument.Status()
-                        : document.getStatus();
-                    status.setChunkCount(entry.getValue());
-                    status.setLastIndexedAt(Instant.now());
-                    status.setErrorMessage(null);
-                    document.setStatus(status);
-                    return client.update(document);
-                }))
+        var indexedAt = Instant.now();
+        var entries = new LinkedHashMap<String, RagIndexManifestStore.DocumentEntry>();
+        for (var document : documents) {
+            var name = document.getMetadata().getName();
+            entries.put(name, new RagIndexManifestStore.DocumentEntry(counts.get(name),
+                contentHash(document), indexedAt));
+        }
+        return ragIndexManifestStore.write(knowledgeBase, indexVersion, entries, replaceManifest)
+            .thenMany(Flux.fromIterable(documents))
+            .flatMap(document -> writeDocumentStatus(document,
+                counts.get(document.getMetadata().getName()), indexedAt), STATUS_WRITE_CONCURRENCY)
+            .doOnNext(ragKnowledgeBaseStatsService::record)
             .then();
     }
 
-    private Mono<RagKnowledgeBase> markIndexing(String knowledgeBase) {
-        return ensureKnowledgeBase(knowledgeBase)
-            .flatMap(kb -> {
-                var status = kb.getStatus() == null ? new RagKnowledgeBase.Status() : kb.getStatus();
-                status.setIndexState(RagKnowledgeBase.IndexState.INDEXING.name());
+    private Mono<RagDocument> writeDocumentStatus(RagDocument indexed, int chunkCount,
+        Instant indexedAt) {
+        var name = indexed.getMetadata().getName();
+        var attempts = new AtomicInteger();
+        return Mono.defer(() -> attempts.getAndIncrement() == 0 ? Mono.just(indexed)
+                : client.fetch(RagDocument.class, name)
+                    .filter(latest -> Objects.equals(contentHash(latest), contentHash(indexed))))
+            .filter(document -> documentStatusChanged(document, chunkCount))
+            .flatMap(document -> {
+                var status = document.getStatus() == null ? new RagDocument.Status()
+                    : document.getStatus();
+                status.setChunkCount(chunkCount);
+                status.setLastIndexedAt(indexedAt);
                 status.setErrorMessage(null);
-                kb.setStatus(status);
-                return client.update(kb);
+                document.setStatus(status);
+                return client.update(document);
+            })
+            .retryWhen(Retry.backoff(STATUS_WRITE_MAX_RETRIES, STATUS_WRITE_RETRY_BACKOFF)
+                .filter(OptimisticLockingFailureException.class::isInstance))
+            .onErrorResume(error -> {
+                log.warn("Failed to update RAG document index status: document={}", name, error);
+                return Mono.empty();
             });
     }
 
+    private boolean documentStatusChanged(RagDocument document, int chunkCount) {
+        var status = document.getStatus();
+        if (status == null || status.getLastIndexedAt() == null
+            || status.getErrorMessage() != null
+            || status.getChunkCount() == null || status.getChunkCount() != chunkCount) {
+            return true;
+        }
+        return status.getLastImportedAt() != null
+            && status.getLastIndexedAt().isBefore(status.getLastImportedAt());
+    }
+
+    private String contentHash(RagDocument document) {
+        var spec = document.getSpec();
+        if (spec == null) {
+            return null;
+        }
+        if (StringUtils.hasText(spec.getContentHash())) {
+            return spec.getContentHash();
+        }
+        return spec.getContent() == null ? null : Hashing.fingerprint(spec.getContent());
+    }
+
+    private Mono<RagKnowledgeBase> markIndexing(String knowledgeBase) {
+        return updateKnowledgeBaseStatus(knowledgeBase, status -> {
+            status.setIndexState(RagKnowledgeBase.IndexState.INDEXING.name());
+            status.setErrorMessage(null);
+        });
+    }
+
     private Mono<RagKnowledgeBase> updateKnowledgeBaseReady(String knowledgeBase, int documentCount,
         int chunkCount, String embeddingModelName, int dimensions, String indexVersion, long startedAt,
         String state) {
-        return ensureKnowledgeBase(knowledgeBase)
-            .flatMap(kb -> {
-                var status = kb.getStatus() == null ? new RagKnowledgeBase.Status() : kb.getStatus();
+        return updateKnowledgeBaseStatus(knowledgeBase, status -> {
                 status.setIndexState(state);
                 status.setDocumentCount(documentCount);
                 status.setChunkCount(chunkCount);
@@ -539,26 +820,42 @@ public class DefaultRagIndexService implements RagIndexService {
                 status.setIndexDurationMillis(System.currentTimeMillis() - startedAt);
                 status.setLastIndexedAt(Instant.now());
                 status.setErrorMessage(null);
-                kb.setStatus(status);
-                return client.update(kb);
+            })
+            .doOnNext(updated -> {
+                ragSearchResultCache.evictKnowledgeBase(knowledgeBase);
+                ragAnswerCache.evictKnowledgeBase(knowledgeBase);
+                ragKnowledgeBaseStatsService.flush(knowledgeBase);
             });
     }
 
     private Mono<RagKnowledgeBase> markError(String knowledgeBase, Throwable error) {
-        return ensureKnowledgeBase(knowledgeBase)
-            .flatMap(kb -> {
-                var status = kb.getStatus() == null ? new RagKnowledgeBase.Status() : kb.getStatus();
+        return updateKnowledgeBaseStatus(knowledgeBase, status -> {
                 status.setIndexState(RagKnowledgeBase.IndexState.ERROR.name());
                 status.setErrorMessage(errorMessage(error));
-                kb.setStatus(status);
-                return client.update(kb);
             })
+            .doOnNext(updated -> ragKnowledgeBaseStatsService.flush(knowledgeBase))
             .onErrorResume(updateError -> {
                 log.warn("Failed to update RAG knowledge base error status", updateError);
                 return Mono.empty();
             });
     }
 
+    /**
+     * 知识库状态还会被统计服务和索引压缩写入，冲突时重新读取最新版本再修改，避免任务因版本冲突失败。
+     */
+    private Mono<RagKnowledgeBase> updateKnowledgeBaseStatus(String knowledgeBase,
+        Consumer<RagKnowledgeBase.Status> mutator) {
+        return Mono.defer(() -> ensureKnowledgeBase(knowledgeBase))
+            .flatMap(kb -> {
+                var status = kb.getStatus() == null ? new RagKnowledgeBase.Status() : kb.getStatus();
+                mutator.accept(status);
+                kb.setStatus(status);
+                return client.update(kb);
+            })
+            .retryWhen(Retry.backoff(STATUS_WRITE_MAX_RETRIES, STATUS_WRITE_RETRY_BACKOFF)
+                .filter(OptimisticLockingFailureException.class::isInstance));
+    }
+
     private RagKnowledgeBase defaultKnowledgeBase(String name) {
         var knowledgeBase = new RagKnowledgeBase();
         var metadata = new Metadata();
@@ -588,12 +885,20 @@ public class DefaultRagIndexService implements RagIndexService {
         }
     }
 
-    private String indexVersion(String modelName, int dimensions, int chunkSize, int chunkOverlap) {
-        var key = defaultString(modelName) + ":" + dimensions + ":" + chunkSize + ":"
-            + chunkOverlap + ":" + CHUNKER_VERSION;
+    private String indexVersion(String modelName, int dimensions, ChunkSettings chunkSettings) {
+        var key = defaultString(modelName) + ":" + dimensions + ":" + chunkSettings.size() + ":"
+            + chunkSettings.overlap() + ":" + chunkSettings.strategy().chunkerVersion();
         return "v1-" + ragContentService.hash(key).substring(0, 16);
     }
 
+    private ChunkSettings chunkSettings(SettingConfigGetter.RagConfig ragConfig) {
+        var chunkSize = normalizedInt(ragConfig.getChunkSize(), 900, 200, 3000);
+        var chunkOverlap = normalizedInt(ragConfig.getChunkOverlap(), 120, 0, Math.min(800,
+            chunkSize / 2));
+        return new ChunkSettings(chunkSize, chunkOverlap,
+            RagChunkStrategy.from(ragConfig.getChunkStrategy()));
+    }
+
     private int normalizedInt(Integer value, int defaultValue, int min, int max) {
         if (value == null) {
             return defaultValue;
@@ -614,6 +919,10 @@ public class DefaultRagIndexService implements RagIndexService {
         return value == null ? defaultValue : value;
     }
 
+    private int defaultInt(Integer value) {
+        return value == null ? 0 : value;
+    }
+
     private String defaultString(String value) {
         return value == null ? "" : value;
     }
@@ -682,6 +991,43 @@ public class DefaultRagIndexService implements RagIndexService {
             .toList();
     }
 
-    private record ChunkInput(RagDocument document, String content, int chunkIndex) {
+    private record ChunkSettings(int size, int overlap, RagChunkStrategy strategy) {
+    }
+
+    private record EmbeddingThroughput(long inputChars, long durationMillis, int sampleCalls) {
+
+        Long estimateMillis(long chars) {
+            if (inputChars <= 0 || durationMillis <= 0) {
+                return null;
+            }
+            return Math.round((double) chars * durationMillis / inputChars);
+        }
+    }
+
+    private static final class EstimateTotals {
+        private int chunks;
+        private int embeddingInputs;
+        private int cachedInputs;
+        private int documentBatches;
+        private int embeddingCalls;
+        private long contentChars;
+        private long embeddingChars;
+        private long missingChars;
+        private long tokens;
+    }
+
+    private record EmbeddedChunks(List<ChunkInput> inputs, List<float[]> vectors,
+        int duplicateCount) {
+    }
+
+    private record ChunkInput(RagDocument document, RagContentChunk chunk) {
+
+        String content() {
+            return chunk.getText();
+        }
+
+        int chunkIndex() {
+            return chunk.getIndex();
+        }
     }
 }
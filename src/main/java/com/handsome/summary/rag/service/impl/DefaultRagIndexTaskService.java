@@ -1,15 +1,20 @@
 package com.handsome.summary.rag.service.impl;
 
+import static run.halo.app.extension.index.query.Queries.and;
 import static run.halo.app.extension.index.query.Queries.equal;
+import static run.halo.app.extension.index.query.Queries.in;
 
 import com.handsome.summary.rag.extension.RagKnowledgeBase;
 import com.handsome.summary.rag.extension.RagIndexTask;
 import com.handsome.summary.rag.model.RagIndexSummary;
 import com.handsome.summary.rag.service.RagIndexService;
 import com.handsome.summary.rag.service.RagIndexTaskService;
+import com.handsome.summary.rag.service.support.RagIndexJobScheduler;
+import com.handsome.summary.rag.service.support.RagIndexTaskProgressBus;
+import com.handsome.summary.rag.store.RagNodeIdentity;
+import com.handsome.summary.service.SettingConfigGetter;
 import java.time.Duration;
 import java.time.Instant;
-import java.util.Comparator;
 import java.util.List;
 import java.util.Locale;
 import java.util.UUID;
@@ -21,6 +26,7 @@ import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Function;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import org.springframework.util.StringUtils;
@@ -29,8 +35,10 @@ import reactor.core.Disposables;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import reactor.core.scheduler.Schedulers;
+import reactor.util.retry.Retry;
 import run.halo.app.extension.ListOptions;
 import run.halo.app.extension.Metadata;
+import run.halo.app.extension.PageRequestImpl;
 import run.halo.app.extension.ReactiveExtensionClient;
 
 @Slf4j
@@ -43,16 +51,37 @@ public class DefaultRagIndexTaskService implements RagIndexTaskService {
     private static final Duration INDEX_RETRY_DELAY = Duration.ofSeconds(3);
     private static final Duration STALE_TASK_AFTER = Duration.ofMinutes(30);
     private static final Duration STALE_INDEX_WRITE_AFTER = Duration.ofMinutes(2);
+    private static final Duration REMOTE_TASK_POLL_INTERVAL = Duration.ofSeconds(2);
+    private static final Duration PROGRESS_PERSIST_INTERVAL = Duration.ofSeconds(5);
+    private static final Duration TASK_LEASE = Duration.ofMinutes(2);
+    private static final Duration LEASE_RENEW_INTERVAL = Duration.ofSeconds(30);
+    private static final int TASK_WRITE_MAX_RETRIES = 3;
+    private static final Duration TASK_WRITE_RETRY_BACKOFF = Duration.ofMillis(100);
+    private static final int INDEX_WRITE_PROGRESS = 75;
+    private static final int DEFAULT_MAX_CONCURRENT_TASKS = 2;
+    private static final int MAX_TASK_SLOTS = 8;
+    private static final List<String> RUNNING_PHASES = List.of(RagIndexTask.Phase.QUEUED.name(),
+        RagIndexTask.Phase.RUNNING.name());
     private static final String RAG_INDEX_TASK_TYPE = RagIndexTask.class.getName();
     private static final String LIFECYCLE_GUARD_VERSION = "rag-task-lifecycle-guard-v2";
 
     private final ReactiveExtensionClient client;
     private final RagIndexService ragIndexService;
+    private final SettingConfigGetter settingConfigGetter;
+    private final RagIndexTaskHistoryCompactor historyCompactor;
+    private final RagNodeIdentity nodeIdentity;
     private volatile Disposable.Composite activeTasks = Disposables.composite();
     private final ConcurrentMap<String, Disposable> activeTaskDisposables =
         new ConcurrentHashMap<>();
     private final AtomicLong lifecycleVersion = new AtomicLong();
+    private final RagIndexTaskProgressBus progressBus = new RagIndexTaskProgressBus();
+    private final ConcurrentMap<String, ProgressCheckpoint> progressCheckpoints =
+        new ConcurrentHashMap<>();
+    private final RagIndexJobScheduler scheduler = new RagIndexJobScheduler();
+    private final ConcurrentMap<String, ScheduledTask> scheduledTasks = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, BatchProgress> batchProgress = new ConcurrentHashMap<>();
     private volatile boolean acceptingTasks = true;
+    private volatile Disposable leaseRenewal;
 
     public synchronized void resumeRunningTasks() {
         acceptingTasks = true;
@@ -61,11 +90,130 @@ public class DefaultRagIndexTaskService implements RagIndexTaskService {
         }
         log.info("RAG index task lifecycle guard active: version={}, lifecycle={}",
             LIFECYCLE_GUARD_VERSION, lifecycleVersion.get());
+        resumeInterruptedTasks(lifecycleVersion.get());
+        startLeaseRenewal();
+        historyCompactor.compactAll()
+            .subscribe(null, error -> log.warn("Failed to compact RAG index task history",
+                error));
+    }
+
+    /**
+     * 插件停止时仍在排队或执行的任务重新进入调度队列；全量重建会从 Embedding 检查点继续。
+     *
+     * <p>多实例部署时只恢复本实例名下的任务，以及租约已过期、原实例不再续约的任务；长时间无进展的任务由
+     * 超时检测标记失败，不再恢复。接管其他实例的任务先写入新的归属，写入冲突说明已被别的实例接管。</p>
+     */
+    private void resumeInterruptedTasks(long lifecycle) {
+        var nodeId = nodeIdentity.nodeId();
+        var options = ListOptions.builder()
+            .fieldQuery(in("status.phase", RUNNING_PHASES))
+            .build();
+        client.listAll(RagIndexTask.class, options,
+                Sort.by(Sort.Order.asc("metadata.creationTimestamp")))
+            .filter(task -> !scheduler.contains(task.getMetadata().getName()))
+            .filter(task -> resumable(task, nodeId))
+            .concatMap(this::refreshStaleTask)
+            .filter(this::isRunning)
+            .concatMap(task -> claim(task, nodeId))
+            .concatMap(task -> {
+                log.info("Resuming interrupted RAG index task: task={}, kb={}, phase={}",
+                    task.getMetadata().getName(), task.getSpec().getKnowledgeBase(),
+                    task.getStatus().getPhase());
+                return enqueue(lifecycle, task);
+            })
+            .subscribe(null, error -> log.warn("Failed to resume interrupted RAG index tasks",
+                error));
+    }
+
+    private boolean resumable(RagIndexTask task, String nodeId) {
+        var status = task.getStatus();
+        if (status == null || nodeId.equals(status.getOwnerNode())) {
+            return true;
+        }
+        var leaseExpiresAt = leaseExpiresAt(task);
+        if (leaseExpiresAt != null && leaseExpiresAt.isAfter(Instant.now())) {
+            log.info("Skipping RAG index task held by another node: task={}, owner={}, "
+                    + "leaseExpiresAt={}",
+                task.getMetadata().getName(), status.getOwnerNode(), leaseExpiresAt);
+            return false;
+        }
+        return true;
+    }
+
+    private Mono<RagIndexTask> claim(RagIndexTask task, String nodeId) {
+        var status = task.getStatus();
+        if (nodeId.equals(status.getOwnerNode())) {
+            return Mono.just(task);
+        }
+        log.info("Taking over RAG index task with an expired lease: task={}, previousOwner={}",
+            task.getMetadata().getName(), status.getOwnerNode());
+        holdLease(status, Instant.now());
+        return client.update(task)
+            .onErrorResume(OptimisticLockingFailureException.class, error -> {
+                log.info("RAG index task was taken over by another node: task={}",
+                    task.getMetadata().getName());
+                return Mono.empty();
+            });
+    }
+
+    /**
+     * 定期为本实例调度中的任务续约。执行中的任务每次进度落盘都会顺带续约，这里主要照顾长时间排队的任务。
+     */
+    private synchronized void startLeaseRenewal() {
+        if (leaseRenewal != null && !leaseRenewal.isDisposed()) {
+            return;
+        }
+        leaseRenewal = Flux.interval(LEASE_RENEW_INTERVAL, LEASE_RENEW_INTERVAL)
+            .onBackpressureDrop()
+            .concatMap(tick -> Flux.fromIterable(List.copyOf(scheduledTasks.keySet()))
+                .concatMap(this::renewLease))
+            .subscribe(null, error -> log.warn("RAG index task lease renewal stopped", error));
+    }
+
+    private Mono<RagIndexTask> renewLease(String taskName) {
+        var nodeId = nodeIdentity.nodeId();
+        return Mono.defer(() -> client.fetch(RagIndexTask.class, taskName)
+                .filter(task -> isRunning(task)
+                    && nodeId.equals(task.getStatus().getOwnerNode())
+                    && leaseDue(task))
+                .flatMap(task -> {
+                    holdLease(task.getStatus(), Instant.now());
+                    return client.update(task);
+                }))
+            .retryWhen(Retry.backoff(TASK_WRITE_MAX_RETRIES, TASK_WRITE_RETRY_BACKOFF)
+                .filter(OptimisticLockingFailureException.class::isInstance))
+            .onErrorResume(error -> {
+                log.warn("Failed to renew RAG index task lease: task={}", taskName, error);
+                return Mono.empty();
+            });
+    }
+
+    private boolean leaseDue(RagIndexTask task) {
+        var leaseExpiresAt = task.getStatus().getLeaseExpiresAt();
+        return leaseExpiresAt == null
+            || leaseExpiresAt.isBefore(Instant.now().plus(TASK_LEASE.dividedBy(2)));
+    }
+
+    private void holdLease(RagIndexTask.Status status, Instant now) {
+        status.setOwnerNode(nodeIdentity.nodeId());
+        status.setLeaseExpiresAt(now.plus(TASK_LEASE));
+    }
+
+    private Instant leaseExpiresAt(RagIndexTask task) {
+        var status = task.getStatus();
+        if (status != null && status.getLeaseExpiresAt() != null) {
+            return status.getLeaseExpiresAt();
+        }
+        var heartbeatAt = heartbeatAt(task);
+        return heartbeatAt == null ? null : heartbeatAt.plus(TASK_LEASE);
     }
 
     public synchronized void disposeRunningTasks() {
         acceptingTasks = false;
         var lifecycle = lifecycleVersion.incrementAndGet();
+        if (leaseRenewal != null) {
+            leaseRenewal.dispose();
+        }
         var tasks = activeTasks;
         if (tasks.size() > 0) {
             log.info("Disposing active RAG index tasks: version={}, lifecycle={}, count={}",
@@ -77,6 +225,11 @@ public class DefaultRagIndexTaskService implements RagIndexTaskService {
         tasks.dispose();
         activeTaskDisposables.clear();
         activeTasks = Disposables.composite();
+        scheduler.clear();
+        scheduledTasks.clear();
+        batchProgress.clear();
+        progressCheckpoints.clear();
+        progressBus.clear();
     }
 
     @Override
@@ -90,7 +243,7 @@ public class DefaultRagIndexTaskService implements RagIndexTaskService {
             return runningTask(kbName)
                 .switchIfEmpty(Mono.defer(() -> createTask(kbName,
                         RagIndexTask.TaskType.FULL_REBUILD, List.of())
-                    .doOnNext(task -> runFullRebuild(lifecycle, task))));
+                    .flatMap(task -> enqueue(lifecycle, task))));
         });
     }
 
@@ -106,7 +259,7 @@ public class DefaultRagIndexTaskService implements RagIndexTaskService {
                 .flatMap(task -> cancelTask(task, "已强制停止旧索引任务，准备重新索引"))
                 .then(Mono.defer(() -> createTask(kbName, RagIndexTask.TaskType.FULL_REBUILD,
                         List.of())
-                    .doOnNext(task -> runFullRebuild(lifecycle, task))));
+                    .flatMap(task -> enqueue(lifecycle, task))));
         });
     }
 
@@ -132,7 +285,7 @@ public class DefaultRagIndexTaskService implements RagIndexTaskService {
             return runningTask(kbName)
                 .switchIfEmpty(Mono.defer(() -> createTask(kbName,
                         RagIndexTask.TaskType.DOCUMENT_REBUILD, names)
-                    .doOnNext(task -> runDocumentRebuild(lifecycle, task))));
+                    .flatMap(task -> enqueue(lifecycle, task))));
         });
     }
 
@@ -142,31 +295,71 @@ public class DefaultRagIndexTaskService implements RagIndexTaskService {
             .flatMap(this::refreshStaleTask);
     }
 
+    /**
+     * 本实例正在执行的任务直接订阅进度广播；其他实例执行或已经结束的任务回退到扩展存储，
+     * 已结束的任务只返回一次，仍在运行的任务低频轮询直到结束。
+     */
+    @Override
+    public Flux<RagIndexTask> watch(String name) {
+        return Flux.defer(() -> progressBus.subscribe(name)
+            .map(updates -> followUntilFinished(name, updates))
+            .orElseGet(() -> get(name).flatMapMany(task -> {
+                if (RagIndexTaskProgressBus.finished(task)) {
+                    return Flux.just(task);
+                }
+                return progressBus.subscribe(name)
+                    .map(updates -> followUntilFinished(name, updates))
+                    .orElseGet(() -> pollUntilFinished(name));
+            })));
+    }
+
+    /**
+     * 广播在任务结束前关闭时（终态写入失败、任务被抢占或插件停止）改为轮询扩展存储，由超时检测给出终态。
+     */
+    private Flux<RagIndexTask> followUntilFinished(String name, Flux<RagIndexTask> updates) {
+        var last = new AtomicReference<RagIndexTask>();
+        return updates.doOnNext(last::set)
+            .concatWith(Flux.defer(() -> last.get() != null
+                && RagIndexTaskProgressBus.finished(last.get())
+                ? Flux.empty() : pollUntilFinished(name)));
+    }
+
+    private Flux<RagIndexTask> pollUntilFinished(String name) {
+        return Flux.interval(Duration.ZERO, REMOTE_TASK_POLL_INTERVAL)
+            .concatMap(tick -> get(name))
+            .takeUntil(RagIndexTaskProgressBus::finished);
+    }
+
     @Override
     public Mono<RagIndexTask> latest(String knowledgeBase) {
-        return list(knowledgeBase, 1)
-            .next()
+        return list(knowledgeBase, null, 1, 1)
+            .flatMap(page -> Mono.justOrEmpty(page.items().stream().findFirst()))
             .flatMap(this::refreshStaleTask);
     }
 
     @Override
-    public Flux<RagIndexTask> list(String knowledgeBase, int limit) {
-        var kbName = normalizeKnowledgeBase(knowledgeBase);
+    public Mono<TaskPage> list(String knowledgeBase, String taskType, int page, int size) {
+        var normalizedPage = Math.max(page, 1);
+        var normalizedSize = Math.max(1, Math.min(size, 100));
         var options = ListOptions.builder()
-            .fieldQuery(equal("spec.knowledgeBase", kbName))
-            .build();
-        return client.listAll(RagIndexTask.class, options, Sort.unsorted())
-            .sort(Comparator.comparing(this::createdAt).reversed())
-            .take(Math.max(1, Math.min(limit, 100)));
+            .fieldQuery(equal("spec.knowledgeBase", normalizeKnowledgeBase(knowledgeBase)));
+        if (StringUtils.hasText(taskType)) {
+            options.andQuery(equal("spec.taskType", taskType.strip().toUpperCase(Locale.ROOT)));
+        }
+        var pageRequest = PageRequestImpl.of(normalizedPage, normalizedSize,
+            Sort.by(Sort.Order.desc("metadata.creationTimestamp"), Sort.Order.asc("metadata.name")));
+        return client.listBy(RagIndexTask.class, options.build(), pageRequest)
+            .map(result -> new TaskPage(result.getItems(), normalizedPage, normalizedSize,
+                (int) result.getTotal()));
     }
 
     private Mono<RagIndexTask> runningTask(String knowledgeBase) {
         var options = ListOptions.builder()
-            .fieldQuery(equal("spec.knowledgeBase", knowledgeBase))
+            .fieldQuery(and(equal("spec.knowledgeBase", knowledgeBase),
+                in("status.phase", RUNNING_PHASES)))
             .build();
-        return client.listAll(RagIndexTask.class, options, Sort.unsorted())
-            .filter(this::isRunning)
-            .sort(Comparator.comparing(this::createdAt).reversed())
+        return client.listAll(RagIndexTask.class, options,
+                Sort.by(Sort.Order.desc("metadata.creationTimestamp")))
             .concatMap(this::refreshStaleTask)
             .filter(this::isRunning)
             .next();
@@ -193,8 +386,139 @@ public class DefaultRagIndexTaskService implements RagIndexTaskService {
         status.setMessage("等待执行");
         status.setAttempt(1);
         status.setMaxAttempts(MAX_INDEX_TASK_ATTEMPTS);
+        holdLease(status, Instant.now());
         task.setStatus(status);
-        return client.create(task);
+        return client.create(task)
+            .doOnNext(progressBus::publish);
+    }
+
+    /**
+     * 新任务先进入全局调度队列，由 {@link #dispatchJobs()} 按并发上限和优先级启动。
+     */
+    private Mono<RagIndexTask> enqueue(long lifecycle, RagIndexTask task) {
+        var taskName = task.getMetadata().getName();
+        return settingConfigGetter.getBasicConfig()
+            .map(config -> StringUtils.hasText(config.getEmbeddingModelName())
+                ? config.getEmbeddingModelName().strip() : "")
+            .onErrorReturn("")
+            .defaultIfEmpty("")
+            .map(model -> {
+                scheduledTasks.put(taskName, new ScheduledTask(lifecycle, task));
+                scheduler.submit(new RagIndexJobScheduler.Job(taskName, priority(task), model),
+                    Instant.now());
+                return task;
+            })
+            .doOnNext(ignored -> dispatchJobs());
+    }
+
+    private void dispatchJobs() {
+        settingConfigGetter.getRagConfig()
+            .map(this::schedulerLimits)
+            .onErrorResume(error -> {
+                log.warn("Failed to read RAG index scheduler settings, using defaults", error);
+                return Mono.empty();
+            })
+            .defaultIfEmpty(new RagIndexJobScheduler.Limits(DEFAULT_MAX_CONCURRENT_TASKS,
+                DEFAULT_MAX_CONCURRENT_TASKS, false))
+            .map(limits -> scheduler.dispatch(limits, Instant.now(), this::preemptible))
+            .filter(dispatch -> !dispatch.isEmpty())
+            .flatMap(this::applyDispatch)
+            .subscribe(null, error -> log.warn("Failed to dispatch RAG index tasks", error));
+    }
+
+    private Mono<Void> applyDispatch(RagIndexJobScheduler.Dispatch dispatch) {
+        dispatch.preempted().forEach(job -> {
+            var disposable = activeTaskDisposables.remove(job.name());
+            log.info("Preempting RAG full rebuild for a higher priority task: task={}",
+                job.name());
+            if (disposable != null) {
+                disposable.dispose();
+            }
+        });
+        dispatch.started().forEach(job -> startJob(job.name()));
+        return Flux.fromIterable(dispatch.queuePositions().entrySet())
+            .concatMap(entry -> markQueued(entry.getKey(), entry.getValue())
+                .onErrorResume(error -> {
+                    log.warn("Failed to update RAG index task queue position: task={}",
+                        entry.getKey(), error);
+                    return Mono.empty();
+                }))
+            .then();
+    }
+
+    private void startJob(String taskName) {
+        var scheduled = scheduledTasks.get(taskName);
+        if (scheduled == null || isTaskLifecycleStopped(scheduled.lifecycle())) {
+            scheduler.release(taskName);
+            scheduledTasks.remove(taskName);
+            return;
+        }
+        var task = scheduled.task();
+        if (RagIndexTask.TaskType.DOCUMENT_REBUILD.name().equals(task.getSpec().getTaskType())) {
+            runDocumentRebuild(scheduled.lifecycle(), task);
+        } else {
+            runFullRebuild(scheduled.lifecycle(), task);
+        }
+    }
+
+    /**
+     * 写入排队位置；被抢占的任务同时回到排队状态，进度从头计算。
+     */
+    private Mono<RagIndexTask> markQueued(String taskName, int position) {
+        return client.fetch(RagIndexTask.class, taskName)
+            .filter(task -> !RagIndexTaskProgressBus.finished(task))
+            .flatMap(task -> {
+                var status = task.getStatus() == null ? new RagIndexTask.Status()
+                    : task.getStatus();
+                if (RagIndexTask.Phase.RUNNING.name().equals(status.getPhase())) {
+                    status.setPhase(RagIndexTask.Phase.QUEUED.name());
+                    status.setProgress(0);
+                }
+                var now = Instant.now();
+                status.setQueuePosition(position);
+                status.setMessage("排队等待执行，当前第 %d 位".formatted(position));
+                status.setLastUpdatedAt(now);
+                holdLease(status, now);
+                task.setStatus(status);
+                return client.update(task);
+            })
+            .retryWhen(Retry.backoff(TASK_WRITE_MAX_RETRIES, TASK_WRITE_RETRY_BACKOFF)
+                .filter(OptimisticLockingFailureException.class::isInstance))
+            .doOnNext(this::recordCheckpoint);
+    }
+
+    private RagIndexJobScheduler.Priority priority(RagIndexTask task) {
+        var spec = task.getSpec();
+        if (spec == null
+            || !RagIndexTask.TaskType.DOCUMENT_REBUILD.name().equals(spec.getTaskType())) {
+            return RagIndexJobScheduler.Priority.FULL;
+        }
+        return spec.getDocumentNames() != null && spec.getDocumentNames().size() == 1
+            ? RagIndexJobScheduler.Priority.INTERACTIVE
+            : RagIndexJobScheduler.Priority.INCREMENTAL;
+    }
+
+    /**
+     * 未设置单模型并发数时等于总并发数，只有一个 Embedding 模型时不会额外限制。
+     */
+    private RagIndexJobScheduler.Limits schedulerLimits(SettingConfigGetter.RagConfig config) {
+        var maxConcurrentTasks = slots(config.getIndexMaxConcurrentTasks(),
+            DEFAULT_MAX_CONCURRENT_TASKS);
+        return new RagIndexJobScheduler.Limits(maxConcurrentTasks,
+            slots(config.getIndexMaxTasksPerModel(), maxConcurrentTasks),
+            Boolean.TRUE.equals(config.getIndexPreemptFullRebuild()));
+    }
+
+    private int slots(Integer value, int defaultValue) {
+        return value == null ? defaultValue : Math.max(1, Math.min(value, MAX_TASK_SLOTS));
+    }
+
+    /**
+     * 已进入写索引阶段的全量重建不再抢占，避免中断 Lucene 写入。
+     */
+    private boolean preemptible(String taskName) {
+        var checkpoint = progressCheckpoints.get(taskName);
+        return checkpoint == null || checkpoint.progress() < INDEX_WRITE_PROGRESS;
     }
 
     private void runFullRebuild(long lifecycle, RagIndexTask task) {
@@ -205,9 +529,7 @@ public class DefaultRagIndexTaskService implements RagIndexTaskService {
                 RagIndexTask.Phase.RUNNING, 5, attemptMessage(attempt, "开始重建索引"), null,
                 null, attempt)
             .then(ragIndexService.rebuild(task.getSpec().getKnowledgeBase(),
-                (progress, message) -> updateTask(lifecycle, taskName,
-                    RagIndexTask.Phase.RUNNING, progress, attemptMessage(attempt, message),
-                    null, null, attempt).then())))
+                progressListener(lifecycle, taskName, attempt))))
             .doOnSuccess(summary -> log.info("RAG index task succeeded: task={}, kb={}, "
                     + "documents={}, chunks={}, durationMs={}",
                 taskName, task.getSpec().getKnowledgeBase(),
@@ -238,9 +560,7 @@ public class DefaultRagIndexTaskService implements RagIndexTaskService {
                 RagIndexTask.Phase.RUNNING, 5, attemptMessage(attempt, "开始增量索引"), null,
                 null, attempt)
             .then(ragIndexService.indexDocuments(task.getSpec().getKnowledgeBase(), documentNames,
-                (progress, message) -> updateTask(lifecycle, taskName,
-                    RagIndexTask.Phase.RUNNING, progress, attemptMessage(attempt, message),
-                    null, null, attempt).then())))
+                progressListener(lifecycle, taskName, attempt))))
             .doOnSuccess(summary -> log.info("RAG document index task succeeded: task={}, kb={}, "
                     + "documents={}, chunks={}, durationMs={}",
                 taskName, task.getSpec().getKnowledgeBase(),
@@ -281,10 +601,15 @@ public class DefaultRagIndexTaskService implements RagIndexTaskService {
             }
             return client.fetch(RagIndexTask.class, taskName)
                 .flatMap(task -> {
+                    if (RagIndexTask.Phase.RUNNING.equals(phase)
+                        && RagIndexTaskProgressBus.finished(task)) {
+                        return Mono.just(task);
+                    }
                     var status = task.getStatus() == null ? new RagIndexTask.Status()
                         : task.getStatus();
                     var now = Instant.now();
                     status.setPhase(phase.name());
+                    status.setQueuePosition(null);
                     status.setProgress(Math.max(0, Math.min(progress, 100)));
                     status.setMessage(message);
                     status.setMaxAttempts(MAX_INDEX_TASK_ATTEMPTS);
@@ -300,14 +625,21 @@ public class DefaultRagIndexTaskService implements RagIndexTaskService {
                         || RagIndexTask.Phase.FAILED.equals(phase)
                         || RagIndexTask.Phase.CANCELED.equals(phase)) {
                         status.setCompletedAt(now);
+                        status.setLeaseExpiresAt(null);
+                    } else {
+                        holdLease(status, now);
                     }
                     if (summary != null) {
                         status.setSummary(summary);
                     }
+                    applyBatchProgress(status, batchProgress.get(taskName));
                     status.setErrorMessage(error == null ? null : errorMessage(error));
                     task.setStatus(status);
                     return client.update(task);
-                });
+                })
+                .retryWhen(Retry.backoff(TASK_WRITE_MAX_RETRIES, TASK_WRITE_RETRY_BACKOFF)
+                    .filter(OptimisticLockingFailureException.class::isInstance))
+                .doOnNext(this::recordCheckpoint);
         })
             .onErrorResume(updateError -> {
                 if (isLifecycleStop(updateError) || isTaskLifecycleStopped(lifecycle)) {
@@ -327,6 +659,67 @@ public class DefaultRagIndexTaskService implements RagIndexTaskService {
             });
     }
 
+    private RagIndexService.ProgressListener progressListener(long lifecycle, String taskName,
+        int attempt) {
+        return new RagIndexService.ProgressListener() {
+            @Override
+            public Mono<Void> update(int progress, String message) {
+                return reportProgress(lifecycle, taskName, progress,
+                    attemptMessage(attempt, message), attempt);
+            }
+
+            @Override
+            public Mono<Void> batches(int completedBatches, int totalBatches,
+                int resumedFromBatch) {
+                batchProgress.put(taskName,
+                    new BatchProgress(completedBatches, totalBatches, resumedFromBatch));
+                return Mono.empty();
+            }
+        };
+    }
+
+    private static void applyBatchProgress(RagIndexTask.Status status, BatchProgress batches) {
+        if (batches == null) {
+            return;
+        }
+        status.setCompletedBatches(batches.completed());
+        status.setTotalBatches(batches.total());
+        status.setResumedFromBatch(batches.resumedFrom());
+    }
+
+    /**
+     * 运行中的进度更新先推送到进度广播，距上次写入扩展存储不足 {@link #PROGRESS_PERSIST_INTERVAL}
+     * 时不落盘，只保留最新值，由下一次到期的更新或阶段变化一并写入。进入写索引阶段、重试和终态仍立即写入，
+     * 保证超时检测和任务结果以存储为准。
+     */
+    private Mono<Void> reportProgress(long lifecycle, String taskName, int progress,
+        String message, int attempt) {
+        return Mono.defer(() -> {
+            if (isTaskLifecycleStopped(lifecycle)) {
+                return Mono.error(taskLifecycleStopped(taskName, null));
+            }
+            var now = Instant.now();
+            var checkpoint = progressCheckpoints.get(taskName);
+            if (checkpoint == null || checkpoint.due(now, progress, attempt)) {
+                return updateTask(lifecycle, taskName, RagIndexTask.Phase.RUNNING, progress,
+                    message, null, null, attempt).then();
+            }
+            progressBus.publish(checkpoint.snapshot(now, progress, message,
+                batchProgress.get(taskName)));
+            return Mono.empty();
+        });
+    }
+
+    private void recordCheckpoint(RagIndexTask task) {
+        var taskName = task.getMetadata().getName();
+        if (isRunning(task)) {
+            progressCheckpoints.put(taskName, new ProgressCheckpoint(task, Instant.now()));
+        } else {
+            progressCheckpoints.remove(taskName);
+        }
+        progressBus.publish(task);
+    }
+
     private Mono<RagIndexSummary> runWithAttempts(long lifecycle, RagIndexTask task,
         Function<Integer, Mono<RagIndexSummary>> attemptRunner) {
         return runAttempt(lifecycle, task, attemptRunner, 1);
@@ -364,13 +757,16 @@ public class DefaultRagIndexTaskService implements RagIndexTaskService {
     private Mono<RagIndexTask> cancelTask(RagIndexTask task, String message) {
         var taskName = task.getMetadata().getName();
         var disposable = activeTaskDisposables.remove(taskName);
+        scheduler.remove(taskName);
+        scheduledTasks.remove(taskName);
         if (disposable != null && !disposable.isDisposed()) {
             log.info("Disposing RAG index task by force: task={}, kb={}", taskName,
                 task.getSpec() == null ? null : task.getSpec().getKnowledgeBase());
             disposable.dispose();
         }
         return updateTask(taskName, RagIndexTask.Phase.CANCELED, currentProgress(task), message,
-            null, new CancellationException(message));
+            null, new CancellationException(message))
+            .doFinally(signal -> dispatchJobs());
     }
 
     private synchronized void subscribeTask(long lifecycle, String taskName,
@@ -382,12 +778,26 @@ public class DefaultRagIndexTaskService implements RagIndexTaskService {
         var disposableRef = new AtomicReference<Disposable>();
         var disposable = pipeline
             .doFinally(signalType -> {
+                // 没有推送终态就结束时关闭广播，订阅方转为轮询扩展存储。
+                progressBus.complete(taskName);
                 var current = disposableRef.get();
+                boolean released;
                 if (current != null) {
-                    activeTaskDisposables.remove(taskName, current);
+                    released = activeTaskDisposables.remove(taskName, current);
                     activeTasks.remove(current);
                 } else {
-                    activeTaskDisposables.remove(taskName);
+                    released = activeTaskDisposables.remove(taskName) != null;
+                }
+                // 被抢占的任务已经从活动任务中移除并回到队列，不能释放它的排队记录。
+                if (released || !scheduler.queued(taskName)) {
+                    progressCheckpoints.remove(taskName);
+                    batchProgress.remove(taskName);
+                    scheduler.release(taskName);
+                    var scheduled = scheduledTasks.remove(taskName);
+                    dispatchJobs();
+                    if (scheduled != null && !isTaskLifecycleStopped(lifecycle)) {
+                        compactHistory(scheduled.task());
+                    }
                 }
             })
             .subscribe(ignored -> {
@@ -410,6 +820,13 @@ public class DefaultRagIndexTaskService implements RagIndexTaskService {
         }
     }
 
+    private void compactHistory(RagIndexTask task) {
+        var knowledgeBase = task.getSpec() == null ? null : task.getSpec().getKnowledgeBase();
+        historyCompactor.compact(normalizeKnowledgeBase(knowledgeBase))
+            .subscribe(null, error -> log.warn(
+                "Failed to compact RAG index task history: kb={}", knowledgeBase, error));
+    }
+
     private void logIndexFailure(String logMessage, String taskName, String knowledgeBase,
         Throwable error) {
         if (isLifecycleStop(error)) {
@@ -514,18 +931,18 @@ public class DefaultRagIndexTaskService implements RagIndexTaskService {
     }
 
     private Mono<RagIndexTask> refreshStaleTask(RagIndexTask task) {
-        if (!isRunning(task) || !isStale(task)) {
+        if (!isRunning(task) || !isStale(task) || scheduler.queued(task.getMetadata().getName())) {
             return Mono.just(task);
         }
         var taskName = task.getMetadata().getName();
         var progress = currentProgress(task);
-        var message = progress >= 75
+        var message = progress >= INDEX_WRITE_PROGRESS
             ? "写入 Lucene 向量索引长时间无进展，已自动标记失败，可重新重建索引"
             : "索引任务长时间无进展，已自动标记失败，可重新重建索引";
         log.warn("RAG index task is stale, refreshing terminal state: task={}, kb={}, progress={}",
             taskName, task.getSpec() == null ? null : task.getSpec().getKnowledgeBase(),
             progress);
-        if (progress >= 75) {
+        if (progress >= INDEX_WRITE_PROGRESS) {
             return completeFromKnowledgeBaseStatus(task)
                 .switchIfEmpty(updateTask(taskName, RagIndexTask.Phase.FAILED, 100, message, null,
                     new IllegalStateException(message)));
@@ -563,12 +980,22 @@ public class DefaultRagIndexTaskService implements RagIndexTaskService {
             || RagIndexTask.Phase.RUNNING.name().equals(phase);
     }
 
+    /**
+     * 排队中的任务只要归属实例仍在续约就不算超时；执行中的任务仍以进度心跳判断。
+     */
     private boolean isStale(RagIndexTask task) {
+        var status = task.getStatus();
+        if (RagIndexTask.Phase.QUEUED.name().equals(status.getPhase())
+            && status.getLeaseExpiresAt() != null
+            && status.getLeaseExpiresAt().isAfter(Instant.now())) {
+            return false;
+        }
         var heartbeatAt = heartbeatAt(task);
         if (heartbeatAt == null) {
             return false;
         }
-        var threshold = currentProgress(task) >= 75 ? STALE_INDEX_WRITE_AFTER : STALE_TASK_AFTER;
+        var threshold = currentProgress(task) >= INDEX_WRITE_PROGRESS ? STALE_INDEX_WRITE_AFTER
+            : STALE_TASK_AFTER;
         return heartbeatAt.plus(threshold).isBefore(Instant.now());
     }
 
@@ -633,6 +1060,61 @@ public class DefaultRagIndexTaskService implements RagIndexTaskService {
         return StringUtils.hasText(current.getMessage()) ? current.getMessage() : current.toString();
     }
 
+    /**
+     * 已进入调度队列的任务及提交时的插件生命周期版本。
+     */
+    private record ScheduledTask(long lifecycle, RagIndexTask task) {
+    }
+
+    private record BatchProgress(int completed, int total, int resumedFrom) {
+    }
+
+    /**
+     * 最近一次写入扩展存储的任务状态，用于判断下一次进度是否需要落盘，并生成只推送到广播的状态快照。
+     */
+    private record ProgressCheckpoint(RagIndexTask task, Instant persistedAt) {
+
+        int progress() {
+            var status = task.getStatus();
+            return status == null || status.getProgress() == null ? 0 : status.getProgress();
+        }
+
+        boolean due(Instant now, int progress, int attempt) {
+            var status = task.getStatus();
+            var persistedProgress = status == null || status.getProgress() == null ? 0
+                : status.getProgress();
+            var persistedAttempt = status == null || status.getAttempt() == null ? 1
+                : status.getAttempt();
+            return !persistedAt.plus(PROGRESS_PERSIST_INTERVAL).isAfter(now)
+                || persistedAttempt != attempt
+                || (persistedProgress < INDEX_WRITE_PROGRESS && progress >= INDEX_WRITE_PROGRESS);
+        }
+
+        RagIndexTask snapshot(Instant now, int progress, String message, BatchProgress batches) {
+            var source = task.getStatus() == null ? new RagIndexTask.Status() : task.getStatus();
+            var status = new RagIndexTask.Status();
+            status.setPhase(source.getPhase());
+            status.setProgress(Math.max(0, Math.min(progress, 100)));
+            status.setMessage(message);
+            status.setSummary(source.getSummary());
+            status.setErrorMessage(null);
+            status.setAttempt(source.getAttempt());
+            status.setMaxAttempts(source.getMaxAttempts());
+            status.setStartedAt(source.getStartedAt());
+            status.setLastUpdatedAt(now);
+            status.setCompletedAt(source.getCompletedAt());
+            status.setCompletedBatches(source.getCompletedBatches());
+            status.setTotalBatches(source.getTotalBatches());
+            status.setResumedFromBatch(source.getResumedFromBatch());
+            applyBatchProgress(status, batches);
+            var snapshot = new RagIndexTask();
+            snapshot.setMetadata(task.getMetadata());
+            snapshot.setSpec(task.getSpec());
+            snapshot.setStatus(status);
+            return snapshot;
+        }
+    }
+
     private static final class TaskLifecycleStoppedException extends CancellationException {
 
         private TaskLifecycleStoppedException(String message, Throwable cause) {
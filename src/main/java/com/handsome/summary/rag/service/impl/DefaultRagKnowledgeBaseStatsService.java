@@ -0,0 +1,377 @@
+package com.handsome.summary.rag.service.impl;
+
+import static run.halo.app.extension.index.query.Queries.equal;
+
+import com.handsome.summary.rag.extension.RagDocument;
+import com.handsome.summary.rag.extension.RagKnowledgeBase;
+import com.handsome.summary.rag.service.RagIndexService;
+import com.handsome.summary.rag.service.RagKnowledgeBaseStatsService;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+import run.halo.app.extension.ListOptions;
+import run.halo.app.extension.ReactiveExtensionClient;
+
+/**
+ * 知识库文档统计。
+ *
+ * <p>每篇文档在内存中记录它对所属知识库统计的贡献，文档变化时只把新旧贡献的差值累加到知识库计数上，
+ * 读取统计不再列出全部文档。计数变化会合并后延迟写入 {@link RagKnowledgeBase.Status#getDocumentStats()}，
+ * 本实例还没有统计结果时（例如刚启动）先返回已保存的统计，同时在后台全量统计。
+ * 插件启动时以及之后每隔 {@link #RECONCILE_INTERVAL} 全量重新统计一次，修正漏掉的事件带来的误差。</p>
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class DefaultRagKnowledgeBaseStatsService implements RagKnowledgeBaseStatsService {
+
+    private static final Duration FLUSH_DELAY = Duration.ofSeconds(2);
+    private static final Duration RECONCILE_INTERVAL = Duration.ofMinutes(30);
+    private static final int PERSIST_MAX_RETRIES = 3;
+    private static final Duration PERSIST_RETRY_BACKOFF = Duration.ofMillis(100);
+
+    private final ReactiveExtensionClient client;
+    private final Map<String, Contribution> contributions = new HashMap<>();
+    private final Map<String, Counters> counters = new HashMap<>();
+    private final Set<String> dirtyKnowledgeBases = ConcurrentHashMap.newKeySet();
+    private final Set<String> reconcilingKnowledgeBases = ConcurrentHashMap.newKeySet();
+    private final AtomicBoolean flushScheduled = new AtomicBoolean();
+    private volatile Disposable reconcileJob;
+    private volatile boolean accepting = true;
+
+    @Override
+    public Mono<RagKnowledgeBase.DocumentStats> stats(String knowledgeBase) {
+        var kbName = normalizeKnowledgeBase(knowledgeBase);
+        return Mono.defer(() -> Mono.justOrEmpty(snapshot(kbName)))
+            .switchIfEmpty(Mono.defer(() -> persistedStats(kbName)))
+            .switchIfEmpty(Mono.defer(() -> reconcile(kbName)));
+    }
+
+    @Override
+    public void flush(String knowledgeBase) {
+        var kbName = normalizeKnowledgeBase(knowledgeBase);
+        if (snapshot(kbName).isEmpty()) {
+            return;
+        }
+        dirtyKnowledgeBases.add(kbName);
+        scheduleFlush();
+    }
+
+    @Override
+    public void documentChanged(String documentName) {
+        if (!accepting || !StringUtils.hasText(documentName)) {
+            return;
+        }
+        client.fetch(RagDocument.class, documentName)
+            .map(Optional::of)
+            .defaultIfEmpty(Optional.empty())
+            .subscribe(document -> document.ifPresentOrElse(this::record,
+                    () -> removed(documentName)),
+                error -> log.warn("Failed to update RAG knowledge base stats for document [{}]",
+                    documentName, error));
+    }
+
+    @Override
+    public void record(RagDocument document) {
+        if (document == null || document.getMetadata() == null) {
+            return;
+        }
+        if (document.getMetadata().getDeletionTimestamp() != null) {
+            removed(document.getMetadata().getName());
+            return;
+        }
+        var next = Contribution.of(document);
+        synchronized (this) {
+            var previous = contributions.put(document.getMetadata().getName(), next);
+            if (next.equals(previous)) {
+                return;
+            }
+            apply(previous, -1);
+            apply(next, 1);
+        }
+        scheduleFlush();
+    }
+
+    @Override
+    public Mono<RagKnowledgeBase.DocumentStats> reconcile(String knowledgeBase) {
+        var kbName = normalizeKnowledgeBase(knowledgeBase);
+        var options = ListOptions.builder()
+            .fieldQuery(equal("spec.knowledgeBase", kbName))
+            .build();
+        return client.listAll(RagDocument.class, options, Sort.unsorted())
+            .filter(document -> document.getMetadata().getDeletionTimestamp() == null)
+            .collectList()
+            .map(documents -> replace(kbName, documents))
+            .doOnNext(ignored -> scheduleFlush());
+    }
+
+    public void resume() {
+        accepting = true;
+        var job = reconcileJob;
+        if (job != null && !job.isDisposed()) {
+            return;
+        }
+        reconcileJob = Flux.interval(Duration.ZERO, RECONCILE_INTERVAL)
+            .onBackpressureDrop()
+            .concatMap(tick -> reconcileAll()
+                .onErrorResume(error -> {
+                    log.warn("Failed to reconcile RAG knowledge base stats", error);
+                    return Mono.empty();
+                }))
+            .subscribe();
+    }
+
+    public void dispose() {
+        accepting = false;
+        var job = reconcileJob;
+        if (job != null) {
+            job.dispose();
+        }
+        synchronized (this) {
+            contributions.clear();
+            counters.clear();
+        }
+        dirtyKnowledgeBases.clear();
+    }
+
+    private Mono<Void> reconcileAll() {
+        return client.listAll(RagKnowledgeBase.class, new ListOptions(), Sort.unsorted())
+            .concatMap(kb -> reconcile(kb.getMetadata().getName()))
+            .then();
+    }
+
+    /**
+     * 读取上次保存的统计并在后台全量统计；保存的统计不作为差值基数，避免和全量统计重复累加。
+     */
+    private Mono<RagKnowledgeBase.DocumentStats> persistedStats(String knowledgeBase) {
+        return client.fetch(RagKnowledgeBase.class, knowledgeBase)
+            .mapNotNull(kb -> kb.getStatus() == null ? null : kb.getStatus().getDocumentStats())
+            .doOnNext(ignored -> reconcileInBackground(knowledgeBase));
+    }
+
+    private void reconcileInBackground(String knowledgeBase) {
+        if (!reconcilingKnowledgeBases.add(knowledgeBase)) {
+            return;
+        }
+        reconcile(knowledgeBase)
+            .doFinally(signal -> reconcilingKnowledgeBases.remove(knowledgeBase))
+            .subscribe(null, error -> log.warn("Failed to reconcile RAG knowledge base stats: kb={}",
+                knowledgeBase, error));
+    }
+
+    private synchronized Optional<RagKnowledgeBase.DocumentStats> snapshot(String knowledgeBase) {
+        return Optional.ofNullable(counters.get(knowledgeBase)).map(Counters::toStats);
+    }
+
+    private synchronized RagKnowledgeBase.DocumentStats replace(String knowledgeBase,
+        List<RagDocument> documents) {
+        contributions.values().removeIf(contribution ->
+            contribution.knowledgeBase().equals(knowledgeBase));
+        var recount = new Counters(Instant.now());
+        for (var document : documents) {
+            var contribution = Contribution.of(document);
+            contributions.put(document.getMetadata().getName(), contribution);
+            recount.add(contribution, 1);
+        }
+        var previous = counters.put(knowledgeBase, recount);
+        if (previous != null && !previous.sameCounts(recount)) {
+            log.info("RAG knowledge base stats drift corrected: kb={}", knowledgeBase);
+        }
+        dirtyKnowledgeBases.add(knowledgeBase);
+        return recount.toStats();
+    }
+
+    private synchronized void removed(String documentName) {
+        var previous = contributions.remove(documentName);
+        if (previous != null) {
+            apply(previous, -1);
+            scheduleFlush();
+        }
+    }
+
+    /**
+     * 只更新已经全量统计过的知识库，尚未统计的知识库等读取或定时任务时全量统计。
+     */
+    private void apply(Contribution contribution, int sign) {
+        if (contribution == null) {
+            return;
+        }
+        var kbCounters = counters.get(contribution.knowledgeBase());
+        if (kbCounters != null) {
+            kbCounters.add(contribution, sign);
+            dirtyKnowledgeBases.add(contribution.knowledgeBase());
+        }
+    }
+
+    private void scheduleFlush() {
+        if (!accepting || dirtyKnowledgeBases.isEmpty()
+            || !flushScheduled.compareAndSet(false, true)) {
+            return;
+        }
+        Mono.delay(FLUSH_DELAY)
+            .thenMany(Flux.defer(() -> {
+                var knowledgeBases = List.copyOf(dirtyKnowledgeBases);
+                dirtyKnowledgeBases.removeAll(knowledgeBases);
+                return Flux.fromIterable(knowledgeBases);
+            }))
+            .concatMap(this::persist)
+            .doFinally(signal -> {
+                flushScheduled.set(false);
+                if (!dirtyKnowledgeBases.isEmpty()) {
+                    scheduleFlush();
+                }
+            })
+            .subscribe(null, error -> log.warn("Failed to persist RAG knowledge base stats",
+                error));
+    }
+
+    /**
+     * 索引进行中时知识库状态由索引任务写入，这里直接跳过，计数保留在内存中，
+     * 由索引任务结束时调用 {@link #flush(String)} 写入一次。
+     */
+    private Mono<Void> persist(String knowledgeBase) {
+        return Mono.justOrEmpty(snapshot(knowledgeBase))
+            .flatMap(stats -> Mono.defer(() -> client.fetch(RagKnowledgeBase.class, knowledgeBase))
+                .flatMap(kb -> {
+                    var status = kb.getStatus() == null ? new RagKnowledgeBase.Status()
+                        : kb.getStatus();
+                    if (stats.equals(status.getDocumentStats())) {
+                        return Mono.empty();
+                    }
+                    if (RagKnowledgeBase.IndexState.INDEXING.name().equals(status.getIndexState())) {
+                        return Mono.empty();
+                    }
+                    status.setDocumentStats(stats);
+                    kb.setStatus(status);
+                    return client.update(kb);
+                })
+                .retryWhen(Retry.backoff(PERSIST_MAX_RETRIES, PERSIST_RETRY_BACKOFF)
+                    .filter(OptimisticLockingFailureException.class::isInstance)))
+            .then()
+            .onErrorResume(error -> {
+                log.debug("Failed to persist RAG knowledge base stats, will retry: kb={}",
+                    knowledgeBase, error);
+                dirtyKnowledgeBases.add(knowledgeBase);
+                return Mono.empty();
+            });
+    }
+
+    private static String normalizeKnowledgeBase(String knowledgeBase) {
+        return StringUtils.hasText(knowledgeBase) ? knowledgeBase.strip()
+            : RagIndexService.DEFAULT_KNOWLEDGE_BASE;
+    }
+
+    /**
+     * 一篇文档对所属知识库统计的贡献。
+     */
+    private record Contribution(String knowledgeBase, boolean enabled, String sourceType,
+                                int chunkCount, boolean stale, Set<String> categories) {
+
+        static Contribution of(RagDocument document) {
+            var spec = document.getSpec() == null ? new RagDocument.Spec() : document.getSpec();
+            var status = document.getStatus();
+            var enabled = !Boolean.FALSE.equals(spec.getEnabled());
+            var chunkCount = status == null || status.getChunkCount() == null ? 0
+                : status.getChunkCount();
+            var sourceType = spec.getSourceType() == null ? ""
+                : spec.getSourceType().toUpperCase(Locale.ROOT);
+            var categories = spec.getCategories() == null ? Set.<String>of()
+                : spec.getCategories().stream()
+                    .filter(StringUtils::hasText)
+                    .map(String::strip)
+                    .collect(Collectors.toUnmodifiableSet());
+            return new Contribution(normalizeKnowledgeBase(spec.getKnowledgeBase()), enabled,
+                sourceType, chunkCount, enabled && stale(spec, status), categories);
+        }
+
+        private static boolean stale(RagDocument.Spec spec, RagDocument.Status status) {
+            if (status == null || !StringUtils.hasText(spec.getContent())) {
+                return false;
+            }
+            if (status.getLastIndexedAt() == null) {
+                return true;
+            }
+            return status.getLastImportedAt() != null
+                && status.getLastIndexedAt().isBefore(status.getLastImportedAt());
+        }
+    }
+
+    private static final class Counters {
+        private final Instant reconciledAt;
+        private int totalDocuments;
+        private int enabledDocuments;
+        private int postDocuments;
+        private int manualDocuments;
+        private int docsmeDocuments;
+        private int chunkCount;
+        private int enabledChunkCount;
+        private int staleDocuments;
+        private final Map<String, Integer> categories = new HashMap<>();
+
+        private Counters(Instant reconciledAt) {
+            this.reconciledAt = reconciledAt;
+        }
+
+        private void add(Contribution contribution, int sign) {
+            totalDocuments += sign;
+            enabledDocuments += contribution.enabled() ? sign : 0;
+            postDocuments += "POST".equals(contribution.sourceType()) ? sign : 0;
+            manualDocuments += "MANUAL".equals(contribution.sourceType()) ? sign : 0;
+            docsmeDocuments += "DOCSME".equals(contribution.sourceType()) ? sign : 0;
+            chunkCount += sign * contribution.chunkCount();
+            enabledChunkCount += contribution.enabled() ? sign * contribution.chunkCount() : 0;
+            staleDocuments += contribution.stale() ? sign : 0;
+            for (var category : contribution.categories()) {
+                categories.compute(category, (name, current) -> {
+                    var count = (current == null ? 0 : current) + sign;
+                    return count > 0 ? count : null;
+                });
+            }
+        }
+
+        private boolean sameCounts(Counters other) {
+            return totalDocuments == other.totalDocuments
+                && enabledDocuments == other.enabledDocuments
+                && postDocuments == other.postDocuments
+                && manualDocuments == other.manualDocuments
+                && docsmeDocuments == other.docsmeDocuments
+                && chunkCount == other.chunkCount
+                && enabledChunkCount == other.enabledChunkCount
+                && staleDocuments == other.staleDocuments
+                && categories.equals(other.categories);
+        }
+
+        private RagKnowledgeBase.DocumentStats toStats() {
+            var stats = new RagKnowledgeBase.DocumentStats();
+            stats.setTotalDocuments(Math.max(0, totalDocuments));
+            stats.setEnabledDocuments(Math.max(0, enabledDocuments));
+            stats.setPostDocuments(Math.max(0, postDocuments));
+            stats.setManualDocuments(Math.max(0, manualDocuments));
+            stats.setDocsmeDocuments(Math.max(0, docsmeDocuments));
+            stats.setChunkCount(Math.max(0, chunkCount));
+            stats.setEnabledChunkCount(Math.max(0, enabledChunkCount));
+            stats.setStaleDocuments(Math.max(0, staleDocuments));
+            stats.setCategoryCount(categories.size());
+            stats.setReconciledAt(reconciledAt);
+            return stats;
+        }
+    }
+}
@@ -0,0 +1,256 @@
+package com.handsome.summary.rag.service.impl;
+
+import static run.halo.app.extension.index.query.Queries.and;
+import static run.halo.app.extension.index.query.Queries.equal;
+import static run.halo.app.extension.index.query.Queries.in;
+
+import com.handsome.summary.rag.extension.RagDocument;
+import com.handsome.summary.rag.extension.RagIndexTask;
+import com.handsome.summary.rag.service.RagDocumentImportService;
+import com.handsome.summary.rag.service.RagIndexService;
+import com.handsome.summary.rag.service.RagIndexTaskService;
+import com.handsome.summary.rag.service.RagPostSyncService;
+import com.handsome.summary.service.SettingConfigGetter;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import run.halo.app.core.extension.content.Post;
+import run.halo.app.extension.ListOptions;
+import run.halo.app.extension.ReactiveExtensionClient;
+import run.halo.app.extension.router.selector.FieldSelector;
+
+/**
+ * 文章变更的防抖合并队列。
+ *
+ * <p>每篇文章只记录最后一次变更时间，静默超过防抖时间后才会被取出同步：仍可公开访问的文章重新导入，
+ * 下线或删除的文章停用对应知识库文档，再对每个知识库只启动一次受影响文档的增量索引。知识库已有其他索引任务在运行时，
+ * 这批文章重新排队，等下一轮再同步。</p>
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class DefaultRagPostSyncService implements RagPostSyncService {
+
+    private static final String SOURCE_TYPE_POST = "POST";
+    private static final int DEFAULT_DEBOUNCE_SECONDS = 30;
+
+    private final ReactiveExtensionClient client;
+    private final SettingConfigGetter settingConfigGetter;
+    private final RagDocumentImportService ragDocumentImportService;
+    private final RagIndexTaskService ragIndexTaskService;
+    private final ConcurrentMap<String, Long> pending = new ConcurrentHashMap<>();
+    private final AtomicBoolean flushScheduled = new AtomicBoolean();
+    private volatile Disposable scheduledFlush;
+    private volatile boolean accepting = true;
+
+    @Override
+    public void enqueue(String postName) {
+        if (!accepting || !StringUtils.hasText(postName)) {
+            return;
+        }
+        pending.put(postName, System.currentTimeMillis());
+        scheduleFlush();
+    }
+
+    public void resume() {
+        accepting = true;
+    }
+
+    public void dispose() {
+        accepting = false;
+        pending.clear();
+        var flush = scheduledFlush;
+        if (flush != null) {
+            flush.dispose();
+        }
+        flushScheduled.set(false);
+    }
+
+    private void scheduleFlush() {
+        if (!accepting || !flushScheduled.compareAndSet(false, true)) {
+            return;
+        }
+        scheduledFlush = settingConfigGetter.getRagConfig()
+            .flatMap(config -> {
+                var debounce = debounce(config);
+                return Mono.delay(debounce).then(flush(config, debounce));
+            })
+            .doFinally(signal -> {
+                flushScheduled.set(false);
+                if (!pending.isEmpty()) {
+                    scheduleFlush();
+                }
+            })
+            .subscribe(null, error -> log.warn("Failed to sync changed posts into RAG", error));
+    }
+
+    private Mono<Void> flush(SettingConfigGetter.RagConfig config, Duration debounce) {
+        if (Boolean.FALSE.equals(config.getEnableRag())
+            || !Boolean.TRUE.equals(config.getAutoSyncPosts())) {
+            pending.clear();
+            return Mono.empty();
+        }
+        var cutoff = System.currentTimeMillis() - debounce.toMillis();
+        var ready = new ArrayList<String>();
+        pending.forEach((name, changedAt) -> {
+            if (changedAt <= cutoff && pending.remove(name, changedAt)) {
+                ready.add(name);
+            }
+        });
+        if (ready.isEmpty()) {
+            return Mono.empty();
+        }
+        log.info("Syncing {} changed posts into RAG knowledge bases", ready.size());
+        var targetKnowledgeBase = StringUtils.hasText(config.getAutoSyncKnowledgeBase())
+            ? config.getAutoSyncKnowledgeBase().strip()
+            : RagIndexService.DEFAULT_KNOWLEDGE_BASE;
+        return Mono.zip(
+                Flux.fromIterable(ready)
+                    .flatMap(name -> client.fetch(Post.class, name))
+                    .filter(this::syncable)
+                    .map(post -> post.getMetadata().getName())
+                    .collect(LinkedHashSet<String>::new, Set::add),
+                existingPostDocuments(ready))
+            .flatMapMany(tuple -> Flux.fromIterable(
+                plan(ready, tuple.getT1(), tuple.getT2(), targetKnowledgeBase).entrySet()))
+            .concatMap(entry -> syncKnowledgeBase(entry.getKey(), entry.getValue())
+                .onErrorResume(error -> {
+                    log.warn("Failed to sync posts into RAG knowledge base [{}]",
+                        entry.getKey(), error);
+                    return Mono.empty();
+                }))
+            .then();
+    }
+
+    private boolean syncable(Post post) {
+        return post.getSpec() != null
+            && post.isPublished()
+            && !post.isDeleted()
+            && Post.isPublic(post.getSpec());
+    }
+
+    private Mono<List<RagDocument>> existingPostDocuments(List<String> postNames) {
+        var options = new ListOptions();
+        options.setFieldSelector(FieldSelector.of(and(equal("spec.sourceType", SOURCE_TYPE_POST),
+            in("spec.sourceName", postNames))));
+        return client.listAll(RagDocument.class, options, Sort.unsorted()).collectList();
+    }
+
+    /**
+     * 可公开的文章同步到目标知识库和已收录它的知识库；其余文章只在已收录的知识库中停用。
+     */
+    private Map<String, KnowledgeBaseSync> plan(List<String> postNames, Set<String> syncablePosts,
+        List<RagDocument> existingDocuments, String targetKnowledgeBase) {
+        var plans = new LinkedHashMap<String, KnowledgeBaseSync>();
+        if (!syncablePosts.isEmpty()) {
+            plans.computeIfAbsent(targetKnowledgeBase, ignored -> new KnowledgeBaseSync())
+                .importPosts().addAll(syncablePosts);
+        }
+        for (var document : existingDocuments) {
+            var spec = document.getSpec();
+            var postName = spec.getSourceName();
+            if (!postNames.contains(postName)) {
+                continue;
+            }
+            var knowledgeBase = StringUtils.hasText(spec.getKnowledgeBase())
+                ? spec.getKnowledgeBase().strip() : RagIndexService.DEFAULT_KNOWLEDGE_BASE;
+            var plan = plans.computeIfAbsent(knowledgeBase, ignored -> new KnowledgeBaseSync());
+            if (syncablePosts.contains(postName)) {
+                plan.importPosts().add(postName);
+            } else {
+                plan.removedDocuments().add(document);
+            }
+        }
+        return plans;
+    }
+
+    private Mono<Void> syncKnowledgeBase(String knowledgeBase, KnowledgeBaseSync plan) {
+        var importPosts = plan.importPosts().isEmpty()
+            ? Mono.just(List.<String>of())
+            : ragDocumentImportService.importPublishedPosts(knowledgeBase,
+                    List.copyOf(plan.importPosts()))
+                .map(RagDocumentImportService.ImportResult::documentNames);
+        var disableDocuments = Flux.fromIterable(plan.removedDocuments())
+            .concatMap(this::disable)
+            .collectList();
+        return Mono.zip(importPosts, disableDocuments)
+            .flatMap(tuple -> {
+                var documentNames = new ArrayList<String>(tuple.getT1());
+                documentNames.addAll(tuple.getT2());
+                if (documentNames.isEmpty()) {
+                    return Mono.empty();
+                }
+                return ragIndexTaskService.startDocumentRebuild(knowledgeBase, documentNames)
+                    .doOnNext(task -> {
+                        if (!covers(task, documentNames)) {
+                            log.info("RAG knowledge base [{}] is busy with task [{}], "
+                                    + "requeue {} changed posts", knowledgeBase,
+                                task.getMetadata().getName(), plan.postNames().size());
+                            requeue(plan.postNames());
+                        }
+                    })
+                    .then();
+            });
+    }
+
+    /**
+     * 已经停用的文档不再返回，避免下线文章的草稿编辑反复触发索引。
+     */
+    private Mono<String> disable(RagDocument document) {
+        if (Boolean.FALSE.equals(document.getSpec().getEnabled())) {
+            return Mono.empty();
+        }
+        document.getSpec().setEnabled(false);
+        return client.update(document).map(updated -> updated.getMetadata().getName());
+    }
+
+    /**
+     * 已有任务在运行时，启动索引会直接返回该任务，需要确认它确实覆盖了本次变更的文档。
+     */
+    private boolean covers(RagIndexTask task, List<String> documentNames) {
+        var spec = task.getSpec();
+        return spec != null
+            && RagIndexTask.TaskType.DOCUMENT_REBUILD.name().equals(spec.getTaskType())
+            && spec.getDocumentNames() != null
+            && spec.getDocumentNames().containsAll(documentNames);
+    }
+
+    private void requeue(Set<String> postNames) {
+        var now = System.currentTimeMillis();
+        postNames.forEach(name -> pending.putIfAbsent(name, now));
+    }
+
+    private Duration debounce(SettingConfigGetter.RagConfig config) {
+        var seconds = config.getAutoSyncDebounceSeconds() == null ? DEFAULT_DEBOUNCE_SECONDS
+            : Math.min(Math.max(config.getAutoSyncDebounceSeconds(), 5), 600);
+        return Duration.ofSeconds(seconds);
+    }
+
+    private record KnowledgeBaseSync(Set<String> importPosts, List<RagDocument> removedDocuments) {
+
+        KnowledgeBaseSync() {
+            this(new LinkedHashSet<>(), new ArrayList<>());
+        }
+
+        Set<String> postNames() {
+            var names = new LinkedHashSet<>(importPosts);
+            removedDocuments.forEach(document -> names.add(document.getSpec().getSourceName()));
+            return names;
+        }
+    }
+}
@@ -2,19 +2,29 @@ package com.handsome.summary.rag.service.impl;
 
 import static run.halo.app.extension.index.query.Queries.equal;
 
+import com.handsome.summary.ai.AiFoundationCallLog;
+import com.handsome.summary.ai.model.AiCallLogRecord;
+import com.handsome.summary.ai.service.AiCallLogService;
+import com.handsome.summary.rag.cache.RagQueryEmbeddingCache;
+import com.handsome.summary.rag.cache.RagSearchResultCache;
 import com.handsome.summary.rag.extension.RagKnowledgeBase;
 import com.handsome.summary.rag.model.RagSearchResult;
 import com.handsome.summary.rag.service.RagAiService;
 import com.handsome.summary.rag.service.RagSearchService;
+import com.handsome.summary.rag.service.support.RagLocalReranker;
 import com.handsome.summary.rag.service.support.RagMetadataScoreBooster;
+import com.handsome.summary.rag.service.support.RagRerankPolicy;
 import com.handsome.summary.rag.service.support.RagSearchQuery;
 import com.handsome.summary.rag.store.RagVectorStore;
 import com.handsome.summary.service.SettingConfigGetter;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeoutException;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.Sort;
@@ -36,6 +46,9 @@ public class DefaultRagSearchService implements RagSearchService {
     private final SettingConfigGetter settingConfigGetter;
     private final RagAiService ragAiService;
     private final RagVectorStore ragVectorStore;
+    private final RagQueryEmbeddingCache ragQueryEmbeddingCache;
+    private final RagSearchResultCache ragSearchResultCache;
+    private final AiCallLogService aiCallLogService;
 
     @Override
     public Mono<List<RagSearchResult>> search(String knowledgeBase, String query, Integer limit) {
@@ -53,28 +66,53 @@ public class DefaultRagSearchService implements RagSearchService {
                 var finalLimit = normalizedInt(limit, normalizedInt(ragConfig.getRerankTopN(), 8, 1,
                     30), 1, 30);
                 return resolveKnowledgeBases(knowledgeBase)
-                    .flatMapMany(Flux::fromIterable)
-                    .flatMap(kb -> searchKnowledgeBase(kb, searchQuery, ragConfig)
-                        .flatMapMany(Flux::fromIterable))
-                    .collectList()
-                    .flatMap(results -> rerankIfNeeded(searchQuery, results, basicConfig, ragConfig,
-                        finalLimit));
+                    .flatMap(knowledgeBases -> {
+                        if (knowledgeBases.isEmpty()) {
+                            return Mono.just(List.<RagSearchResult>of());
+                        }
+                        var cacheKey = RagSearchResultCache.key(query, knowledgeBases, finalLimit,
+                            basicConfig.getRerankModelName(), searchOptions(ragConfig));
+                        var cached = ragSearchResultCache.get(cacheKey);
+                        if (cached != null) {
+                            return Mono.just(cached);
+                        }
+                        return Flux.fromIterable(knowledgeBases)
+                            .flatMap(kb -> searchKnowledgeBase(kb, searchQuery, ragConfig))
+                            .collectList()
+                            .flatMap(hits -> rerankIfNeeded(searchQuery, hits, basicConfig,
+                                ragConfig, finalLimit))
+                            .map(ranked -> {
+                                if (!ranked.degraded()) {
+                                    ragSearchResultCache.put(cacheKey, ranked.results());
+                                }
+                                return ranked.results();
+                            });
+                    });
             });
     }
 
-    private Mono<List<RagSearchResult>> searchKnowledgeBase(RagKnowledgeBase knowledgeBase,
+    private String searchOptions(SettingConfigGetter.RagConfig ragConfig) {
+        return "vectorTopK=" + normalizedInt(ragConfig.getVectorTopK(), 20, 1, 100)
+            + ";keywordTopK=" + normalizedInt(ragConfig.getKeywordTopK(), 20, 1, 100)
+            + ";hybrid=" + enabled(ragConfig.getEnableHybridSearch(), true)
+            + ";rerank=" + enabled(ragConfig.getEnableRerank(), true)
+            + ";rerankTopN=" + normalizedInt(ragConfig.getRerankTopN(), 8, 1, 30);
+    }
+
+    private Mono<KnowledgeBaseHits> searchKnowledgeBase(RagKnowledgeBase knowledgeBase,
         RagSearchQuery searchQuery, SettingConfigGetter.RagConfig ragConfig) {
         var status = knowledgeBase.getStatus();
         if (status == null || !RagKnowledgeBase.IndexState.READY.name().equals(status.getIndexState())
             || !StringUtils.hasText(status.getIndexVersion())) {
-            return Mono.just(List.of());
+            return Mono.empty();
         }
         var vectorTopK = normalizedInt(ragConfig.getVectorTopK(), 20, 1, 100);
         var keywordTopK = normalizedInt(ragConfig.getKeywordTopK(), 20, 1, 100);
         var hybrid = enabled(ragConfig.getEnableHybridSearch(), true);
         var kbName = knowledgeBase.getMetadata().getName();
         var indexVersion = status.getIndexVersion();
-        return ragAiService.embedQuery(searchQuery.original(), status.getEmbeddingModelName())
+        return ragQueryEmbeddingCache.embedQuery(searchQuery.original(),
+                status.getEmbeddingModelName())
             .flatMap(vector -> {
                 var vectorSearch = ragVectorStore.vectorSearch(kbName, indexVersion, vector,
                     vectorTopK);
@@ -83,31 +121,124 @@ public class DefaultRagSearchService implements RagSearchService {
                         keywordTopK)
                     : Mono.just(List.<RagSearchResult>of());
                 return Mono.zip(vectorSearch, keywordSearch)
-                    .map(tuple -> fuse(tuple.getT1(), tuple.getT2()));
+                    .map(tuple -> new KnowledgeBaseHits(kbName, indexVersion, vector,
+                        fuse(tuple.getT1(), tuple.getT2())));
             });
     }
 
-    private Mono<List<RagSearchResult>> rerankIfNeeded(RagSearchQuery searchQuery,
-        List<RagSearchResult> results, SettingConfigGetter.BasicConfig basicConfig,
+    private Mono<RankedResults> rerankIfNeeded(RagSearchQuery searchQuery,
+        List<KnowledgeBaseHits> hits, SettingConfigGetter.BasicConfig basicConfig,
         SettingConfigGetter.RagConfig ragConfig, int finalLimit) {
+        var results = hits.stream()
+            .flatMap(hit -> hit.results().stream())
+            .toList();
         var fused = dedupeAndSort(RagMetadataScoreBooster.apply(results, searchQuery)).stream()
             .limit(Math.max(finalLimit, normalizedInt(ragConfig.getRerankTopN(), 8, 1, 30)))
             .toList();
         if (fused.isEmpty()) {
-            return Mono.just(List.of());
+            return Mono.just(new RankedResults(List.of(), false));
         }
         if (!enabled(ragConfig.getEnableRerank(), true)) {
-            return Mono.just(fused.stream().limit(finalLimit).toList());
+            return Mono.just(new RankedResults(fused.stream().limit(finalLimit).toList(), false));
+        }
+        var rerankModelName = basicConfig.getRerankModelName();
+        var decision = RagRerankPolicy.decide(fused, finalLimit,
+            normalizedDouble(ragConfig.getRerankSkipMargin(), 0.1d, 0, 1),
+            normalizedInt(ragConfig.getRerankMaxCandidateChars(), 1200, 200, 4000));
+        if (decision.skip()) {
+            log.debug("RAG rerank skipped: reason={} topMargin={} candidates={}",
+                decision.reason(), decision.topMargin(), decision.candidateCount());
+            return Mono.just(new RankedResults(fused.stream().limit(finalLimit).toList(), false));
         }
-        return ragAiService.rerank(searchQuery.original(), fused, basicConfig.getRerankModelName(),
-                finalLimit)
-            .map(reranked -> reranked.stream().limit(finalLimit).toList())
+        var head = decision.lockedHead();
+        var topN = finalLimit - head.size();
+        var deadline = Duration.ofMillis(
+            normalizedInt(ragConfig.getRerankTimeoutMillis(), 3000, 500, 60000));
+        return ragAiService.rerank(searchQuery.original(), decision.window(), rerankModelName,
+                topN, decision.toMetadata())
+            .timeout(deadline)
+            .map(reranked -> new RankedResults(withHead(head, reranked, fused, finalLimit), false))
             .onErrorResume(error -> {
-                log.warn("RAG rerank failed, fallback to fused order: {}", error.getMessage());
-                return Mono.just(fused.stream().limit(finalLimit).toList());
+                var reason = error instanceof TimeoutException ? "deadline" : "rerank-error";
+                log.warn("RAG rerank {} after {}ms, fallback to local rerank: {}", reason,
+                    deadline.toMillis(), error.getMessage());
+                return localRerank(searchQuery, decision, hits, topN, reason)
+                    .map(reranked -> new RankedResults(withHead(head, reranked, fused, finalLimit),
+                        true))
+                    .onErrorResume(localError -> {
+                        log.warn("RAG local rerank failed, fallback to fused order: {}",
+                            localError.getMessage());
+                        return Mono.just(new RankedResults(
+                            fused.stream().limit(finalLimit).toList(), true));
+                    });
             });
     }
 
+    private Mono<List<RagSearchResult>> localRerank(RagSearchQuery searchQuery,
+        RagRerankPolicy.Decision decision, List<KnowledgeBaseHits> hits, int topN, String reason) {
+        var startNanos = System.nanoTime();
+        var window = decision.window();
+        var queryVectors = new LinkedHashMap<String, float[]>();
+        hits.forEach(hit -> queryVectors.put(hit.knowledgeBase(), hit.queryVector()));
+        return Flux.fromIterable(hits)
+            .flatMap(hit -> {
+                var missingIds = window.stream()
+                    .filter(candidate -> hit.knowledgeBase().equals(candidate.getKnowledgeBase()))
+                    .filter(candidate -> candidate.getVectorScore() == null)
+                    .map(RagSearchResult::getId)
+                    .toList();
+                if (missingIds.isEmpty()) {
+                    return Flux.empty();
+                }
+                return ragVectorStore.loadVectors(hit.knowledgeBase(), hit.indexVersion(),
+                        missingIds)
+                    .flatMapMany(vectors -> Flux.fromIterable(vectors.entrySet()))
+                    .map(entry -> Map.entry(hit.knowledgeBase() + ":" + entry.getKey(),
+                        entry.getValue()));
+            })
+            .collectMap(Map.Entry::getKey, Map.Entry::getValue)
+            .map(chunkVectors -> {
+                var reranked = RagLocalReranker.rerank(searchQuery.original(), window,
+                    queryVectors, chunkVectors, topN);
+                var metadata = new LinkedHashMap<String, String>();
+                metadata.put("localRerankReason", reason);
+                metadata.put("loadedVectors", String.valueOf(chunkVectors.size()));
+                recordRerankDecision("rag-rerank-local", null, decision,
+                    (System.nanoTime() - startNanos) / 1_000_000L, metadata);
+                return reranked;
+            });
+    }
+
+    private List<RagSearchResult> withHead(List<RagSearchResult> head,
+        List<RagSearchResult> reranked, List<RagSearchResult> fused, int finalLimit) {
+        var ordered = new ArrayList<RagSearchResult>(head);
+        ordered.addAll(RagRerankPolicy.restoreContent(reranked, fused));
+        return ordered.stream().limit(finalLimit).toList();
+    }
+
+    private void recordRerankDecision(String operation, String rerankModelName,
+        RagRerankPolicy.Decision decision, long durationMillis, Map<String, String> extra) {
+        log.debug("RAG rerank decision: operation={} reason={} topMargin={} candidates={} "
+                + "window={} durationMs={}", operation, decision.reason(), decision.topMargin(),
+            decision.candidateCount(), decision.window().size(), durationMillis);
+        var metadata = new LinkedHashMap<String, String>(decision.toMetadata());
+        metadata.putAll(extra);
+        aiCallLogService.record(AiCallLogRecord.builder()
+            .operation(operation)
+            .modelType("rerank")
+            .modelName(rerankModelName == null ? "local"
+                : AiFoundationCallLog.modelName(rerankModelName))
+            .success(true)
+            .startedAt(Instant.now())
+            .durationMillis(durationMillis)
+            .candidateCount(decision.candidateCount())
+            .inputCount(decision.window().size())
+            .inputChars(decision.windowChars())
+            .outputCount(decision.skip() ? 0 : decision.window().size())
+            .metadata(metadata)
+            .build());
+    }
+
     private List<RagSearchResult> fuse(List<RagSearchResult> vectorResults,
         List<RagSearchResult> keywordResults) {
         var fusions = new LinkedHashMap<String, Fusion>();
@@ -148,7 +279,8 @@ public class DefaultRagSearchService implements RagSearchService {
             .toList();
     }
 
-    private Mono<List<RagKnowledgeBase>> resolveKnowledgeBases(String knowledgeBase) {
+    @Override
+    public Mono<List<RagKnowledgeBase>> resolveKnowledgeBases(String knowledgeBase) {
         if (StringUtils.hasText(knowledgeBase)) {
             return client.fetch(RagKnowledgeBase.class, knowledgeBase.strip())
                 .filter(this::enabledAndReady)
@@ -178,10 +310,27 @@ public class DefaultRagSearchService implements RagSearchService {
         return Math.min(Math.max(value, min), max);
     }
 
+    private double normalizedDouble(Double value, double defaultValue, double min, double max) {
+        if (value == null || value.isNaN()) {
+            return defaultValue;
+        }
+        return Math.min(Math.max(value, min), max);
+    }
+
     private boolean enabled(Boolean value, boolean defaultValue) {
         return value == null ? defaultValue : value;
     }
 
+    private record KnowledgeBaseHits(String knowledgeBase, String indexVersion,
+                                     float[] queryVector, List<RagSearchResult> results) {
+    }
+
+    /**
+     * 排序后的检索结果；degraded 表示 Rerank 失败后回退到了融合顺序，这类结果不进入缓存。
+     */
+    private record RankedResults(List<RagSearchResult> results, boolean degraded) {
+    }
+
     private static final class Fusion {
         private final RagSearchResult result;
         private double score;
@@ -1,16 +1,23 @@
 package com.handsome.summary.rag.service.impl;
 
+import static run.halo.app.extension.index.query.Queries.and;
 import static run.halo.app.extension.index.query.Queries.equal;
 
 import com.handsome.summary.rag.extension.RagDocument;
+import com.handsome.summary.rag.model.RagImportProgressEvent;
 import com.handsome.summary.rag.service.DocsmeDocumentSourceService;
 import com.handsome.summary.rag.service.RagContentService;
 import com.handsome.summary.rag.service.RagDocumentImportService;
 import com.handsome.summary.rag.service.RagDocumentImportService.ImportResult;
 import com.handsome.summary.rag.service.RagIndexService;
+import com.handsome.summary.service.SettingConfigGetter;
 import java.time.Instant;
 import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Objects;
+import java.util.Set;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.Sort;
@@ -32,38 +39,121 @@ public class HaloPostRagDocumentImportService implements RagDocumentImportServic
 
     private static final String SOURCE_TYPE_POST = "POST";
     private static final String SOURCE_TYPE_DOCSME = "DOCSME";
+    private static final int DEFAULT_IMPORT_CONCURRENCY = 4;
+    private static final int IMPORT_PROGRESS_BATCH_SIZE = 20;
 
     private final ReactiveExtensionClient client;
     private final DocsmeDocumentSourceService docsmeDocumentSourceService;
     private final PostContentService postContentService;
     private final RagContentService ragContentService;
     private final RagIndexService ragIndexService;
+    private final SettingConfigGetter settingConfigGetter;
 
     @Override
     public Mono<ImportResult> importPublishedPosts(String knowledgeBase, List<String> postNames) {
         var kbName = normalizeKnowledgeBase(knowledgeBase);
-        var posts = postNames == null || postNames.isEmpty()
-            ? listAllPublishedPosts()
-            : Flux.fromIterable(postNames)
-                .flatMap(name -> client.fetch(Post.class, name))
-                .filter(this::canImport);
-        return ragIndexService.ensureKnowledgeBase(kbName)
-            .thenMany(posts)
-            .flatMap(post -> toRagDocument(kbName, post))
-            .flatMap(this::upsert)
-            .collectList()
-            .map(this::toImportResult);
+        return importConcurrency()
+            .flatMap(concurrency -> ragIndexService.ensureKnowledgeBase(kbName)
+                .then(importablePosts(postNames, null, concurrency))
+                .flatMapMany(posts -> upsertPosts(kbName, posts, concurrency))
+                .collect(ImportTally::new, ImportTally::add))
+            .map(ImportTally::result);
+    }
+
+    @Override
+    public Flux<RagImportProgressEvent> streamPublishedPosts(String knowledgeBase,
+        List<String> postNames, String resumeAfter) {
+        var kbName = normalizeKnowledgeBase(knowledgeBase);
+        var cursor = StringUtils.hasText(resumeAfter) ? resumeAfter.strip() : null;
+        return Flux.defer(() -> {
+            var tally = new ImportTally();
+            tally.cursor = cursor;
+            return importConcurrency()
+                .flatMapMany(concurrency -> ragIndexService.ensureKnowledgeBase(kbName)
+                    .then(importablePosts(postNames, cursor, concurrency))
+                    .flatMapMany(posts -> Flux.concat(
+                        Mono.just(RagImportProgressEvent.start(posts.size(), cursor)),
+                        upsertPosts(kbName, posts, concurrency)
+                            .buffer(IMPORT_PROGRESS_BATCH_SIZE)
+                            .map(batch -> {
+                                batch.forEach(tally::add);
+                                return tally.event("progress", posts.size(), List.of());
+                            }),
+                        pendingPostDocuments(kbName, cursor)
+                            .map(pending -> tally.event("done", posts.size(), pending)))))
+                .onErrorResume(error -> {
+                    log.warn("RAG post import interrupted after [{}]", tally.cursor, error);
+                    return Mono.just(RagImportProgressEvent.error(errorMessage(error),
+                        tally.cursor));
+                });
+        });
     }
 
     @Override
     public Mono<ImportResult> importPublishedDocsmeDocuments(String knowledgeBase, List<String> docNames) {
         var kbName = normalizeKnowledgeBase(knowledgeBase);
-        return ragIndexService.ensureKnowledgeBase(kbName)
-            .thenMany(docsmeDocumentSourceService.listPublishedByNames(docNames))
-            .map(document -> toRagDocument(kbName, document))
-            .flatMap(this::upsert)
-            .collectList()
-            .map(this::toImportResult);
+        return importConcurrency()
+            .flatMap(concurrency -> ragIndexService.ensureKnowledgeBase(kbName)
+                .thenMany(docsmeDocumentSourceService.listPublishedByNames(docNames))
+                .map(document -> toRagDocument(kbName, document))
+                .flatMap(this::upsert, concurrency)
+                .collect(ImportTally::new, ImportTally::add))
+            .map(ImportTally::result);
+    }
+
+    private Mono<Integer> importConcurrency() {
+        return settingConfigGetter.getRagConfig()
+            .map(config -> config.getImportConcurrency() == null ? DEFAULT_IMPORT_CONCURRENCY
+                : Math.min(Math.max(config.getImportConcurrency(), 1), 16))
+            .defaultIfEmpty(DEFAULT_IMPORT_CONCURRENCY);
+    }
+
+    /**
+     * 按名称排序返回待导入文章，保证流式导入的游标单调递增，可以从中断处继续。
+     */
+    private Mono<List<Post>> importablePosts(List<String> postNames, String resumeAfter,
+        int concurrency) {
+        var posts = postNames == null || postNames.isEmpty()
+            ? listAllPublishedPosts()
+            : Flux.fromIterable(postNames.stream()
+                    .filter(StringUtils::hasText)
+                    .map(String::strip)
+                    .distinct()
+                    .toList())
+                .flatMap(name -> client.fetch(Post.class, name), concurrency)
+                .filter(this::canImport);
+        return posts
+            .filter(post -> resumeAfter == null || postName(post).compareTo(resumeAfter) > 0)
+            .collectSortedList(Comparator.comparing(this::postName));
+    }
+
+    /**
+     * 从游标继续导入时，游标之前的文章不会再经过本次导入，中断前新建或更新、尚未索引的文章文档从知识库中补查，
+     * 与本次导入的文档一起进入导入后的索引任务。
+     */
+    private Mono<List<String>> pendingPostDocuments(String knowledgeBase, String resumeAfter) {
+        if (resumeAfter == null) {
+            return Mono.just(List.of());
+        }
+        var options = ListOptions.builder()
+            .fieldQuery(and(equal("spec.knowledgeBase", knowledgeBase),
+                equal("spec.sourceType", SOURCE_TYPE_POST)))
+            .build();
+        return client.listAll(RagDocument.class, options, Sort.by("metadata.name"))
+            .filter(document -> document.getSpec() != null
+                && !Boolean.FALSE.equals(document.getSpec().getEnabled()))
+            .filter(this::pendingIndex)
+            .map(document -> document.getMetadata().getName())
+            .collectList();
+    }
+
+    /**
+     * 读取正文和写入文档共用同一个并发上限，结果按输入顺序输出。
+     */
+    private Flux<Upserted> upsertPosts(String knowledgeBase, List<Post> posts, int concurrency) {
+        return Flux.fromIterable(posts)
+            .flatMapSequential(post -> toRagDocument(knowledgeBase, post).flatMap(this::upsert),
+                concurrency);
     }
 
     private Flux<Post> listAllPublishedPosts() {
@@ -79,8 +169,12 @@ public class HaloPostRagDocumentImportService implements RagDocumentImportServic
             && Post.isPublic(post.getSpec());
     }
 
+    private String postName(Post post) {
+        return post.getMetadata().getName();
+    }
+
     private Mono<RagDocument> toRagDocument(String knowledgeBase, Post post) {
-        var postName = post.getMetadata().getName();
+        var postName = postName(post);
         return postContentService.getReleaseContent(postName)
             .map(this::contentText)
             .defaultIfEmpty("")
@@ -98,7 +192,7 @@ public class HaloPostRagDocumentImportService implements RagDocumentImportServic
                 spec.setTitle(post.getSpec().getTitle());
                 spec.setUrl(post.getStatus() == null ? null : post.getStatus().getPermalink());
                 spec.setContent(normalizedContent);
-                spec.setContentHash(ragContentService.hash(normalizedContent));
+                spec.setContentHash(ragContentService.fingerprint(normalizedContent));
                 spec.setEnabled(StringUtils.hasText(normalizedContent));
                 spec.setTags(post.getSpec().getTags());
                 spec.setCategories(post.getSpec().getCategories());
@@ -126,7 +220,7 @@ public class HaloPostRagDocumentImportService implements RagDocumentImportServic
         spec.setTitle(source.title());
         spec.setUrl(source.url());
         spec.setContent(normalizedContent);
-        spec.setContentHash(ragContentService.hash(normalizedContent));
+        spec.setContentHash(ragContentService.fingerprint(normalizedContent));
         spec.setEnabled(StringUtils.hasText(normalizedContent));
         spec.setTags(nonBlankList("Docsme", source.versionSlug()));
         spec.setCategories(nonBlankList(source.projectDisplayName()));
@@ -148,29 +242,54 @@ public class HaloPostRagDocumentImportService implements RagDocumentImportServic
         return wrapper.getRaw();
     }
 
-    private Mono<RagDocument> upsert(RagDocument document) {
+    /**
+     * 内容指纹和元数据都与已有文档一致时不写入，避免重复导入触发无意义的更新和重新索引。
+     */
+    private Mono<Upserted> upsert(RagDocument document) {
         var name = document.getMetadata().getName();
         return client.fetch(RagDocument.class, name)
             .flatMap(existing -> {
+                if (sameSpec(existing.getSpec(), document.getSpec())) {
+                    return Mono.just(new Upserted(existing, Change.UNCHANGED));
+                }
                 existing.setSpec(document.getSpec());
                 var status = existing.getStatus() == null ? new RagDocument.Status()
                     : existing.getStatus();
                 status.setLastImportedAt(Instant.now());
                 status.setErrorMessage(null);
                 existing.setStatus(status);
-                return client.update(existing);
+                return client.update(existing)
+                    .map(updated -> new Upserted(updated, Change.UPDATED));
             })
-            .switchIfEmpty(Mono.defer(() -> client.create(document)));
+            .switchIfEmpty(Mono.defer(() -> client.create(document)
+                .map(created -> new Upserted(created, Change.CREATED))));
     }
 
-    private ImportResult toImportResult(List<RagDocument> documents) {
-        var documentNames = documents.stream()
-            .filter(document -> document.getMetadata() != null
-                && StringUtils.hasText(document.getMetadata().getName()))
-            .map(document -> document.getMetadata().getName())
-            .distinct()
-            .toList();
-        return new ImportResult(documents.size(), documentNames);
+    private boolean sameSpec(RagDocument.Spec existing, RagDocument.Spec incoming) {
+        return existing != null
+            && StringUtils.hasText(existing.getContentHash())
+            && Objects.equals(existing.getContentHash(), incoming.getContentHash())
+            && Objects.equals(existing.getKnowledgeBase(), incoming.getKnowledgeBase())
+            && Objects.equals(existing.getSourceType(), incoming.getSourceType())
+            && Objects.equals(existing.getSourceName(), incoming.getSourceName())
+            && Objects.equals(existing.getTitle(), incoming.getTitle())
+            && Objects.equals(existing.getUrl(), incoming.getUrl())
+            && Objects.equals(existing.getEnabled(), incoming.getEnabled())
+            && Objects.equals(nullToEmpty(existing.getTags()), nullToEmpty(incoming.getTags()))
+            && Objects.equals(nullToEmpty(existing.getCategories()),
+                nullToEmpty(incoming.getCategories()));
+    }
+
+    /**
+     * 未变化的文档如果自上次导入后还没有完成索引，仍然交给后续索引处理。
+     */
+    private boolean pendingIndex(RagDocument document) {
+        var status = document.getStatus();
+        if (status == null || status.getLastIndexedAt() == null) {
+            return true;
+        }
+        return status.getLastImportedAt() != null
+            && status.getLastIndexedAt().isBefore(status.getLastImportedAt());
     }
 
     private String documentName(String knowledgeBase, String sourceType, String sourceName) {
@@ -186,8 +305,86 @@ public class HaloPostRagDocumentImportService implements RagDocumentImportServic
             .toList();
     }
 
+    private String errorMessage(Throwable error) {
+        var current = error;
+        while (current.getCause() != null && current.getCause() != current) {
+            current = current.getCause();
+        }
+        return StringUtils.hasText(current.getMessage()) ? current.getMessage() : error.toString();
+    }
+
+    private List<String> nullToEmpty(List<String> values) {
+        return values == null ? List.of() : values;
+    }
+
     private String normalizeKnowledgeBase(String knowledgeBase) {
         return StringUtils.hasText(knowledgeBase) ? knowledgeBase.strip()
             : RagIndexService.DEFAULT_KNOWLEDGE_BASE;
     }
+
+    private enum Change {
+        CREATED,
+        UPDATED,
+        UNCHANGED
+    }
+
+    private record Upserted(RagDocument document, Change change) {
+    }
+
+    /**
+     * 累计导入结果，只保留需要重新索引的文档名称，不持有文档正文。
+     */
+    private final class ImportTally {
+        private final Set<String> documentNames = new LinkedHashSet<>();
+        private int created;
+        private int updated;
+        private int unchanged;
+        private String cursor;
+
+        private void add(Upserted upserted) {
+            switch (upserted.change()) {
+                case CREATED -> created++;
+                case UPDATED -> updated++;
+                case UNCHANGED -> unchanged++;
+            }
+            var document = upserted.document();
+            if (document.getSpec() != null) {
+                cursor = document.getSpec().getSourceName();
+            }
+            if ((upserted.change() != Change.UNCHANGED || pendingIndex(document))
+                && document.getMetadata() != null
+                && StringUtils.hasText(document.getMetadata().getName())) {
+                documentNames.add(document.getMetadata().getName());
+            }
+        }
+
+        private int processed() {
+            return created + updated + unchanged;
+        }
+
+        private ImportResult result() {
+            return new ImportResult(processed(), created, updated, unchanged,
+                List.copyOf(documentNames));
+        }
+
+        /**
+         * @param pending 本次导入之外仍需索引的文档，只在 {@code done} 事件中与本次导入的文档合并。
+         */
+        private RagImportProgressEvent event(String type, int total, List<String> pending) {
+            var done = "done".equals(type);
+            if (done) {
+                documentNames.addAll(pending);
+            }
+            return RagImportProgressEvent.builder()
+                .type(type)
+                .total(total)
+                .processed(processed())
+                .created(created)
+                .updated(updated)
+                .unchanged(unchanged)
+                .cursor(cursor)
+                .documentNames(done ? List.copyOf(documentNames) : null)
+                .build();
+        }
+    }
 }
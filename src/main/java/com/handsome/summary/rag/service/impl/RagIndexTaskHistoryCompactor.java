@@ -0,0 +1,167 @@
+package com.handsome.summary.rag.service.impl;
+
+import static run.halo.app.extension.index.query.Queries.and;
+import static run.halo.app.extension.index.query.Queries.equal;
+import static run.halo.app.extension.index.query.Queries.in;
+
+import com.handsome.summary.rag.extension.RagIndexTask;
+import com.handsome.summary.rag.extension.RagKnowledgeBase;
+import com.handsome.summary.service.SettingConfigGetter;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+import run.halo.app.extension.ListOptions;
+import run.halo.app.extension.ReactiveExtensionClient;
+
+/**
+ * 索引任务记录整理。
+ *
+ * <p>每个知识库保留最近 {@code indexTaskHistoryLimit} 条任务，超出部分中仍在失败保留期内的任务继续保留，
+ * 其余已结束的任务先删除，再把删除成功的任务按结果和耗时累加到 {@link RagKnowledgeBase.Status#getTaskHistory()}。
+ * 排队中和执行中的任务不参与整理。同一知识库同一时间只整理一次。</p>
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class RagIndexTaskHistoryCompactor {
+
+    private static final int DEFAULT_HISTORY_LIMIT = 50;
+    private static final int DEFAULT_FAILED_RETENTION_DAYS = 30;
+    private static final int DELETE_CONCURRENCY = 4;
+    private static final List<String> FINISHED_PHASES = List.of(
+        RagIndexTask.Phase.SUCCEEDED.name(),
+        RagIndexTask.Phase.FAILED.name(),
+        RagIndexTask.Phase.CANCELED.name());
+
+    private final ReactiveExtensionClient client;
+    private final SettingConfigGetter settingConfigGetter;
+    private final Set<String> compacting = ConcurrentHashMap.newKeySet();
+
+    public Mono<Void> compactAll() {
+        return client.listAll(RagKnowledgeBase.class, new ListOptions(), Sort.unsorted())
+            .concatMap(kb -> compact(kb.getMetadata().getName()))
+            .then();
+    }
+
+    public Mono<Void> compact(String knowledgeBase) {
+        return Mono.defer(() -> {
+            if (!compacting.add(knowledgeBase)) {
+                return Mono.empty();
+            }
+            return settingConfigGetter.getRagConfig()
+                .flatMap(ragConfig -> compact(knowledgeBase, historyLimit(ragConfig),
+                    failedRetention(ragConfig)))
+                .doFinally(signal -> compacting.remove(knowledgeBase));
+        });
+    }
+
+    private Mono<Void> compact(String knowledgeBase, int historyLimit, Duration failedRetention) {
+        var options = ListOptions.builder()
+            .fieldQuery(and(equal("spec.knowledgeBase", knowledgeBase),
+                in("status.phase", FINISHED_PHASES)))
+            .build();
+        var failedKeptAfter = Instant.now().minus(failedRetention);
+        return client.listAll(RagIndexTask.class, options,
+                Sort.by(Sort.Order.desc("metadata.creationTimestamp")))
+            .filter(task -> task.getMetadata().getDeletionTimestamp() == null)
+            .skip(historyLimit)
+            .filter(task -> !keepFailed(task, failedKeptAfter))
+            .flatMap(task -> client.delete(task).thenReturn(task), DELETE_CONCURRENCY)
+            .collectList()
+            .filter(tasks -> !tasks.isEmpty())
+            .flatMap(tasks -> recordCompacted(knowledgeBase, tasks)
+                .doOnSuccess(ignored -> log.info(
+                    "Compacted RAG index task history: kb={}, tasks={}", knowledgeBase,
+                    tasks.size())));
+    }
+
+    private Mono<Void> recordCompacted(String knowledgeBase, List<RagIndexTask> tasks) {
+        return Mono.defer(() -> client.fetch(RagKnowledgeBase.class, knowledgeBase)
+                .flatMap(kb -> {
+                    var status = kb.getStatus() == null ? new RagKnowledgeBase.Status()
+                        : kb.getStatus();
+                    var history = status.getTaskHistory() == null
+                        ? new RagKnowledgeBase.TaskHistory() : status.getTaskHistory();
+                    tasks.forEach(task -> accumulate(history, task));
+                    history.setCompactedAt(Instant.now());
+                    status.setTaskHistory(history);
+                    kb.setStatus(status);
+                    return client.update(kb);
+                }))
+            .retryWhen(Retry.backoff(3, Duration.ofMillis(200))
+                .filter(OptimisticLockingFailureException.class::isInstance))
+            .then();
+    }
+
+    private void accumulate(RagKnowledgeBase.TaskHistory history, RagIndexTask task) {
+        var status = task.getStatus();
+        var phase = status == null ? null : status.getPhase();
+        history.setCompactedTasks(defaultInt(history.getCompactedTasks()) + 1);
+        if (RagIndexTask.Phase.SUCCEEDED.name().equals(phase)) {
+            history.setSucceededTasks(defaultInt(history.getSucceededTasks()) + 1);
+        } else if (RagIndexTask.Phase.FAILED.name().equals(phase)) {
+            history.setFailedTasks(defaultInt(history.getFailedTasks()) + 1);
+        } else {
+            history.setCanceledTasks(defaultInt(history.getCanceledTasks()) + 1);
+        }
+        var taskType = task.getSpec() == null ? null : task.getSpec().getTaskType();
+        if (RagIndexTask.TaskType.DOCUMENT_REBUILD.name().equals(taskType)) {
+            history.setDocumentRebuildTasks(defaultInt(history.getDocumentRebuildTasks()) + 1);
+        } else if (RagIndexTask.TaskType.FULL_REBUILD.name().equals(taskType)) {
+            history.setFullRebuildTasks(defaultInt(history.getFullRebuildTasks()) + 1);
+        }
+        if (status != null && status.getStartedAt() != null && status.getCompletedAt() != null
+            && !status.getCompletedAt().isBefore(status.getStartedAt())) {
+            var total = defaultLong(history.getTotalDurationMillis())
+                + Duration.between(status.getStartedAt(), status.getCompletedAt()).toMillis();
+            var timed = defaultInt(history.getTimedTasks()) + 1;
+            history.setTotalDurationMillis(total);
+            history.setTimedTasks(timed);
+            history.setAverageDurationMillis(total / timed);
+        }
+        var createdAt = task.getMetadata().getCreationTimestamp();
+        if (createdAt != null && (history.getOldestTaskAt() == null
+            || createdAt.isBefore(history.getOldestTaskAt()))) {
+            history.setOldestTaskAt(createdAt);
+        }
+    }
+
+    private boolean keepFailed(RagIndexTask task, Instant keptAfter) {
+        var status = task.getStatus();
+        if (status == null || !RagIndexTask.Phase.FAILED.name().equals(status.getPhase())) {
+            return false;
+        }
+        var finishedAt = status.getCompletedAt() != null ? status.getCompletedAt()
+            : task.getMetadata().getCreationTimestamp();
+        return finishedAt != null && finishedAt.isAfter(keptAfter);
+    }
+
+    private int historyLimit(SettingConfigGetter.RagConfig ragConfig) {
+        var value = ragConfig.getIndexTaskHistoryLimit();
+        return Math.max(5, Math.min(value == null ? DEFAULT_HISTORY_LIMIT : value, 1000));
+    }
+
+    private Duration failedRetention(SettingConfigGetter.RagConfig ragConfig) {
+        var value = ragConfig.getIndexTaskFailedRetentionDays();
+        return Duration.ofDays(Math.max(0,
+            Math.min(value == null ? DEFAULT_FAILED_RETENTION_DAYS : value, 365)));
+    }
+
+    private static int defaultInt(Integer value) {
+        return value == null ? 0 : value;
+    }
+
+    private static long defaultLong(Long value) {
+        return value == null ? 0L : value;
+    }
+}
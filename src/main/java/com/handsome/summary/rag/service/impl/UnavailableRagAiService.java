@@ -7,6 +7,7 @@ import com.handsome.summary.rag.model.RagEmbeddingOptions;
 import com.handsome.summary.rag.model.RagSearchResult;
 import com.handsome.summary.rag.service.RagAiService;
 import java.util.List;
+import java.util.Map;
 import org.springframework.stereotype.Service;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
@@ -28,7 +29,7 @@ public class UnavailableRagAiService implements RagAiService {
 
     @Override
     public Mono<List<RagSearchResult>> rerank(String query, List<RagSearchResult> candidates,
-        String modelName, int topN) {
+        String modelName, int topN, Map<String, String> callMetadata) {
         return unavailable();
     }
 
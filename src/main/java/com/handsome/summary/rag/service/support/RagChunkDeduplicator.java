@@ -0,0 +1,153 @@
+package com.handsome.summary.rag.service.support;
+
+import com.handsome.summary.support.Hashing;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 一次索引任务内的分块去重，为每段待 Embedding 文本分配向量槽位。
+ *
+ * <p>先按内容指纹精确匹配；足够长的文本再用 64 位 SimHash（字符 3-gram）识别近似重复，
+ * 指纹切成 4 段 16 位做分桶，只和同桶候选比较汉明距离。命中的文本复用已有槽位，不再单独调用 Embedding。
+ * 实例不是线程安全的，只能在单个串行流水线中使用。</p>
+ */
+public final class RagChunkDeduplicator {
+
+    private static final int SHINGLE_SIZE = 3;
+    private static final int NEAR_DUPLICATE_MIN_LENGTH = 64;
+    private static final int NEAR_DUPLICATE_MAX_DISTANCE = 3;
+    private static final int BANDS = 4;
+    private static final int BAND_BITS = 64 / BANDS;
+
+    private final boolean nearDuplicates;
+    private final Map<String, Integer> exactSlots = new HashMap<>();
+    private final List<Map<Integer, List<Candidate>>> bands = new ArrayList<>(BANDS);
+    private int slotCount;
+    private int duplicateCount;
+
+    public RagChunkDeduplicator(boolean nearDuplicates) {
+        this.nearDuplicates = nearDuplicates;
+        for (var i = 0; i < BANDS; i++) {
+            bands.add(new HashMap<>());
+        }
+    }
+
+    /**
+     * 返回文本对应的向量槽位；返回值等于调用前的 {@link #slotCount()} 时表示新文本，需要生成 Embedding。
+     */
+    public int slot(String text) {
+        var value = text == null ? "" : text;
+        var fingerprint = Hashing.fingerprint(value);
+        var exact = exactSlots.get(fingerprint);
+        if (exact != null) {
+            duplicateCount++;
+            return exact;
+        }
+        var useSimHash = nearDuplicates && value.length() >= NEAR_DUPLICATE_MIN_LENGTH;
+        var simHash = useSimHash ? simHash(value) : 0L;
+        if (useSimHash) {
+            var near = nearestSlot(simHash);
+            if (near >= 0) {
+                exactSlots.put(fingerprint, near);
+                duplicateCount++;
+                return near;
+            }
+        }
+        var slot = slotCount++;
+        exactSlots.put(fingerprint, slot);
+        if (useSimHash) {
+            var candidate = new Candidate(simHash, slot);
+            for (var band = 0; band < BANDS; band++) {
+                bands.get(band).computeIfAbsent(bandKey(simHash, band), ignored -> new ArrayList<>())
+                    .add(candidate);
+            }
+        }
+        return slot;
+    }
+
+    public int slotCount() {
+        return slotCount;
+    }
+
+    public int duplicateCount() {
+        return duplicateCount;
+    }
+
+    private int nearestSlot(long simHash) {
+        var bestSlot = -1;
+        var bestDistance = NEAR_DUPLICATE_MAX_DISTANCE + 1;
+        for (var band = 0; band < BANDS; band++) {
+            var candidates = bands.get(band).get(bandKey(simHash, band));
+            if (candidates == null) {
+                continue;
+            }
+            for (var candidate : candidates) {
+                var distance = Long.bitCount(candidate.simHash() ^ simHash);
+                if (distance < bestDistance) {
+                    bestDistance = distance;
+                    bestSlot = candidate.slot();
+                }
+            }
+        }
+        return bestSlot;
+    }
+
+    private static int bandKey(long simHash, int band) {
+        return (int) ((simHash >>> (band * BAND_BITS)) & 0xffffL);
+    }
+
+    /**
+     * 对空白折叠后的字符 3-gram 计算 SimHash，各 shingle 权重相同。
+     */
+    private static long simHash(String text) {
+        var weights = new int[64];
+        var window = new char[SHINGLE_SIZE];
+        var filled = 0;
+        var previousSpace = true;
+        for (var i = 0; i < text.length(); i++) {
+            var ch = text.charAt(i);
+            if (Character.isWhitespace(ch)) {
+                if (previousSpace) {
+                    continue;
+                }
+                ch = ' ';
+                previousSpace = true;
+            } else {
+                previousSpace = false;
+            }
+            System.arraycopy(window, 1, window, 0, SHINGLE_SIZE - 1);
+            window[SHINGLE_SIZE - 1] = ch;
+            if (++filled < SHINGLE_SIZE) {
+                continue;
+            }
+            var hash = shingleHash(window);
+            for (var bit = 0; bit < 64; bit++) {
+                weights[bit] += ((hash >>> bit) & 1L) == 1L ? 1 : -1;
+            }
+        }
+        var result = 0L;
+        for (var bit = 0; bit < 64; bit++) {
+            if (weights[bit] > 0) {
+                result |= 1L << bit;
+            }
+        }
+        return result;
+    }
+
+    private static long shingleHash(char[] window) {
+        var hash = 0xcbf29ce484222325L;
+        for (var ch : window) {
+            hash ^= ch;
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+
+    private record Candidate(long simHash, int slot) {
+    }
+}
@@ -0,0 +1,226 @@
+package com.handsome.summary.rag.service.support;
+
+import com.handsome.summary.rag.model.RagSearchResult;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.springframework.util.StringUtils;
+
+/**
+ * 把检索片段整理成送入模型的上下文。
+ *
+ * <p>同一文档中相邻的分块会合并为一个片段并去掉重叠文本和重复的标题前缀，合并后的片段按得分排序，
+ * 再在模型的 token 预算内装箱。</p>
+ */
+public final class RagContextPacker {
+
+    private static final String TITLE_PREFIX = "标题：";
+    private static final String MERGE_SEPARATOR = "\n";
+
+    private RagContextPacker() {
+    }
+
+    public static Result pack(List<RagSearchResult> sources, int tokenBudget, int maxOverlapChars,
+        String modelName) {
+        if (sources == null || sources.isEmpty()) {
+            return new Result(List.of(), 0, 0, 0, 0, 0);
+        }
+        var originalChars = 0;
+        var groups = new LinkedHashMap<String, List<RagSearchResult>>();
+        for (var source : sources) {
+            if (source == null || !StringUtils.hasText(source.getContent())) {
+                continue;
+            }
+            originalChars += source.getContent().length();
+            groups.computeIfAbsent(documentKey(source), ignored -> new ArrayList<>()).add(source);
+        }
+
+        var merged = new ArrayList<RagSearchResult>();
+        var mergedChunks = 0;
+        for (var group : groups.values()) {
+            group.sort(Comparator.comparingInt(RagContextPacker::chunkIndex));
+            var run = new ArrayList<RagSearchResult>();
+            for (var source : group) {
+                if (!run.isEmpty() && !adjacent(run.getLast(), source)) {
+                    merged.add(mergeRun(run, maxOverlapChars));
+                    mergedChunks += run.size() - 1;
+                    run = new ArrayList<>();
+                }
+                run.add(source);
+            }
+            merged.add(mergeRun(run, maxOverlapChars));
+            mergedChunks += run.size() - 1;
+        }
+        merged.sort(Comparator.comparingDouble(RagSearchResult::getScore).reversed());
+
+        var packed = new ArrayList<RagSearchResult>();
+        var remainingTokens = Math.max(tokenBudget, 0);
+        var packedChars = 0;
+        var usedTokens = 0;
+        var droppedSources = 0;
+        for (var source : merged) {
+            var tokens = RagTokenEstimator.estimate(source.getContent(), modelName);
+            if (tokens <= remainingTokens) {
+                packed.add(source);
+                remainingTokens -= tokens;
+                usedTokens += tokens;
+                packedChars += source.getContent().length();
+                continue;
+            }
+            if (packed.isEmpty()) {
+                var fitting = RagTokenEstimator.fittingChars(source.getContent(), remainingTokens,
+                    modelName);
+                if (fitting > 0) {
+                    var content = source.getContent().substring(0, fitting).strip();
+                    packed.add(source.toBuilder().content(content).build());
+                    usedTokens += RagTokenEstimator.estimate(content, modelName);
+                    packedChars += content.length();
+                    remainingTokens = 0;
+                    continue;
+                }
+            }
+            droppedSources++;
+        }
+        return new Result(List.copyOf(packed), originalChars, packedChars, mergedChunks,
+            droppedSources, usedTokens);
+    }
+
+    private static RagSearchResult mergeRun(List<RagSearchResult> run, int maxOverlapChars) {
+        var first = run.getFirst();
+        if (run.size() == 1) {
+            return first;
+        }
+        var best = first;
+        var content = new StringBuilder(first.getContent().strip());
+        var chunkIndexes = new ArrayList<Integer>();
+        chunkIndexes.add(first.getChunkIndex());
+        var previous = first;
+        for (var i = 1; i < run.size(); i++) {
+            var next = run.get(i);
+            if (next.getScore() > best.getScore()) {
+                best = next;
+            }
+            chunkIndexes.add(next.getChunkIndex());
+            var text = stripTitlePrefix(next.getContent().strip(), next.getTitle());
+            var overlap = offsetOverlap(previous, next, text.length());
+            if (overlap < 0) {
+                overlap = overlapLength(content, text, maxOverlapChars);
+            }
+            previous = next;
+            var remaining = text.substring(overlap).strip();
+            if (remaining.isEmpty()) {
+                continue;
+            }
+            if (overlap == 0) {
+                content.append(MERGE_SEPARATOR);
+            }
+            content.append(remaining);
+        }
+        var last = run.getLast();
+        return first.toBuilder()
+            .content(content.toString())
+            .endOffset(last.getEndOffset())
+            .score(best.getScore())
+            .vectorScore(best.getVectorScore())
+            .keywordScore(best.getKeywordScore())
+            .rerankScore(best.getRerankScore())
+            .metadata(mergeMetadata(first.getMetadata(), chunkIndexes, last.getEndOffset()))
+            .build();
+    }
+
+    /**
+     * 两个分块都带有正文偏移量时直接按偏移量计算重叠长度；旧索引没有偏移量时返回 -1。
+     */
+    private static int offsetOverlap(RagSearchResult previous, RagSearchResult next,
+        int textLength) {
+        if (previous.getEndOffset() == null || next.getStartOffset() == null) {
+            return -1;
+        }
+        return Math.min(Math.max(previous.getEndOffset() - next.getStartOffset(), 0), textLength);
+    }
+
+    /**
+     * 返回 next 的最长前缀同时也是 previous 后缀的长度，使用 KMP 前缀函数保证线性复杂度。
+     */
+    static int overlapLength(CharSequence previous, String next, int maxOverlapChars) {
+        var limit = Math.min(Math.min(previous.length(), next.length()),
+            Math.max(maxOverlapChars, 0));
+        if (limit <= 0) {
+            return 0;
+        }
+        var failure = new int[limit];
+        for (int i = 1, matched = 0; i < limit; i++) {
+            while (matched > 0 && next.charAt(i) != next.charAt(matched)) {
+                matched = failure[matched - 1];
+            }
+            if (next.charAt(i) == next.charAt(matched)) {
+                matched++;
+            }
+            failure[i] = matched;
+        }
+        var matched = 0;
+        for (var i = previous.length() - limit; i < previous.length(); i++) {
+            while (matched > 0 && (matched == limit || previous.charAt(i) != next.charAt(matched))) {
+                matched = failure[matched - 1];
+            }
+            if (previous.charAt(i) == next.charAt(matched)) {
+                matched++;
+            }
+        }
+        return matched;
+    }
+
+    private static String stripTitlePrefix(String content, String title) {
+        if (!StringUtils.hasText(title)) {
+            return content;
+        }
+        var prefix = TITLE_PREFIX + title.strip();
+        if (!content.startsWith(prefix)) {
+            return content;
+        }
+        return content.substring(prefix.length()).strip();
+    }
+
+    private static boolean adjacent(RagSearchResult previous, RagSearchResult next) {
+        return previous.getChunkIndex() != null && next.getChunkIndex() != null
+            && next.getChunkIndex() == previous.getChunkIndex() + 1;
+    }
+
+    private static int chunkIndex(RagSearchResult source) {
+        return source.getChunkIndex() == null ? Integer.MAX_VALUE : source.getChunkIndex();
+    }
+
+    private static String documentKey(RagSearchResult source) {
+        if (!StringUtils.hasText(source.getDocumentName())) {
+            return "id:" + source.getKnowledgeBase() + ":" + source.getId();
+        }
+        return source.getKnowledgeBase() + ":" + source.getDocumentName();
+    }
+
+    private static Map<String, Object> mergeMetadata(Map<String, Object> metadata,
+        List<Integer> chunkIndexes, Integer endOffset) {
+        var merged = new LinkedHashMap<String, Object>();
+        if (metadata != null) {
+            metadata.forEach((key, value) -> {
+                if (key != null && value != null) {
+                    merged.put(key, value);
+                }
+            });
+        }
+        merged.put("mergedChunkIndexes", List.copyOf(chunkIndexes));
+        if (endOffset != null && merged.containsKey("startOffset")) {
+            merged.put("endOffset", endOffset);
+        }
+        return Map.copyOf(merged);
+    }
+
+    public record Result(List<RagSearchResult> sources, int originalChars, int packedChars,
+                         int mergedChunks, int droppedSources, int estimatedTokens) {
+
+        public int savedChars() {
+            return Math.max(originalChars - packedChars, 0);
+        }
+    }
+}
@@ -0,0 +1,183 @@
+package com.handsome.summary.rag.service.support;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+
+/**
+ * 索引任务的全局调度队列。
+ *
+ * <p>所有知识库的索引任务共用一个执行池：同时运行的任务数受全局上限约束，使用同一个 Embedding 模型的任务数受模型上限约束。
+ * 排队任务按优先级（单文档重建 &gt; 增量索引 &gt; 全量重建）和入队顺序出队，每等待 {@link #AGING_STEP}
+ * 提升一级，避免低优先级任务被持续到来的增量任务饿死。开启抢占后，排不上的高优先级任务可以让尚未进入写索引阶段的
+ * 全量重建让出执行槽位，被抢占的任务保留原入队顺序重新排队。</p>
+ *
+ * <p>调度器只维护队列状态，{@link #dispatch} 返回需要启动、抢占的任务和最新排队位置，由调用方执行实际操作。</p>
+ */
+public final class RagIndexJobScheduler {
+
+    static final Duration AGING_STEP = Duration.ofMinutes(5);
+    private static final int MAX_PREEMPTIONS = 2;
+
+    private final List<Entry> queue = new ArrayList<>();
+    private final Map<String, Entry> running = new LinkedHashMap<>();
+    private long sequence;
+
+    public enum Priority {
+        INTERACTIVE,
+        INCREMENTAL,
+        FULL
+    }
+
+    public record Job(String name, Priority priority, String model) {
+    }
+
+    public record Limits(int maxConcurrent, int maxPerModel, boolean preemptFullRebuild) {
+    }
+
+    public record Dispatch(List<Job> started, List<Job> preempted,
+                           Map<String, Integer> queuePositions) {
+
+        public boolean isEmpty() {
+            return started.isEmpty() && preempted.isEmpty() && queuePositions.isEmpty();
+        }
+    }
+
+    public synchronized void submit(Job job, Instant now) {
+        if (contains(job.name())) {
+            return;
+        }
+        queue.add(new Entry(job, sequence++, now));
+    }
+
+    public synchronized boolean contains(String name) {
+        return running.containsKey(name)
+            || queue.stream().anyMatch(entry -> entry.job.name().equals(name));
+    }
+
+    public synchronized boolean queued(String name) {
+        return queue.stream().anyMatch(entry -> entry.job.name().equals(name));
+    }
+
+    /**
+     * 任务执行结束后释放执行槽位；已被抢占回队列的任务不受影响。
+     */
+    public synchronized void release(String name) {
+        running.remove(name);
+    }
+
+    /**
+     * 取消任务时同时移出队列和执行槽位。
+     */
+    public synchronized void remove(String name) {
+        running.remove(name);
+        queue.removeIf(entry -> entry.job.name().equals(name));
+    }
+
+    public synchronized void clear() {
+        queue.clear();
+        running.clear();
+    }
+
+    /**
+     * 按当前上限尽量启动排队任务，{@code preemptible} 判断运行中的全量重建是否允许被抢占。
+     */
+    public synchronized Dispatch dispatch(Limits limits, Instant now, Predicate<String> preemptible) {
+        var maxConcurrent = Math.max(1, limits.maxConcurrent());
+        var maxPerModel = Math.max(1, limits.maxPerModel());
+        var started = new ArrayList<Job>();
+        var preempted = new ArrayList<Entry>();
+        queue.sort(order(now));
+        for (var entry : List.copyOf(queue)) {
+            var fits = running.size() < maxConcurrent
+                && runningForModel(entry.job.model()) < maxPerModel;
+            if (!fits && limits.preemptFullRebuild()
+                && entry.job.priority() != Priority.FULL) {
+                var victim = preemptionVictim(entry.job.model(), maxConcurrent, maxPerModel,
+                    preemptible);
+                if (victim != null) {
+                    running.remove(victim.job.name());
+                    victim.preemptions++;
+                    victim.position = 0;
+                    preempted.add(victim);
+                    fits = true;
+                }
+            }
+            if (fits) {
+                queue.remove(entry);
+                entry.position = 0;
+                running.put(entry.job.name(), entry);
+                started.add(entry.job);
+            }
+        }
+        queue.addAll(preempted);
+        queue.sort(order(now));
+        var positions = new LinkedHashMap<String, Integer>();
+        for (var i = 0; i < queue.size(); i++) {
+            var entry = queue.get(i);
+            if (entry.position != i + 1) {
+                entry.position = i + 1;
+                positions.put(entry.job.name(), entry.position);
+            }
+        }
+        return new Dispatch(started, preempted.stream().map(entry -> entry.job).toList(),
+            positions);
+    }
+
+    private Entry preemptionVictim(String model, int maxConcurrent, int maxPerModel,
+        Predicate<String> preemptible) {
+        var globalFull = running.size() >= maxConcurrent;
+        var modelFull = runningForModel(model) >= maxPerModel;
+        Entry victim = null;
+        for (var candidate : running.values()) {
+            // 模型槽位已满时只能让同模型的任务让出；仅全局已满时任意全量重建都可以让出。
+            if (candidate.job.priority() != Priority.FULL
+                || candidate.preemptions >= MAX_PREEMPTIONS
+                || (modelFull && !candidate.job.model().equals(model))
+                || (!modelFull && !globalFull)
+                || !preemptible.test(candidate.job.name())) {
+                continue;
+            }
+            if (victim == null || candidate.sequence > victim.sequence) {
+                victim = candidate;
+            }
+        }
+        return victim;
+    }
+
+    private long runningForModel(String model) {
+        return running.values().stream()
+            .filter(entry -> entry.job.model().equals(model))
+            .count();
+    }
+
+    private static Comparator<Entry> order(Instant now) {
+        return Comparator.<Entry>comparingInt(entry -> entry.effectivePriority(now))
+            .thenComparingLong(entry -> entry.sequence);
+    }
+
+    private static final class Entry {
+        private final Job job;
+        private final long sequence;
+        private final Instant enqueuedAt;
+        private int preemptions;
+        private int position;
+
+        private Entry(Job job, long sequence, Instant enqueuedAt) {
+            this.job = job;
+            this.sequence = sequence;
+            this.enqueuedAt = enqueuedAt;
+        }
+
+        private int effectivePriority(Instant now) {
+            var waited = Duration.between(enqueuedAt, now);
+            var steps = waited.isNegative() ? 0 : waited.dividedBy(AGING_STEP);
+            return (int) Math.max(0, job.priority().ordinal() - steps);
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.handsome.summary.rag.service.support;
+
+import com.handsome.summary.rag.extension.RagIndexTask;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+
+/**
+ * 索引任务进度的进程内广播。
+ *
+ * <p>每个进行中的任务对应一个只重放最新状态的多播 sink：新订阅者先收到当前状态，之后实时收到每次更新，
+ * 多个订阅者共享同一份推送，不再各自轮询扩展存储。任务进入终态后推送最后一次状态并关闭 sink；
+ * 任务执行结束却没有推送终态时也会关闭 sink。之后的订阅由调用方回退到读取扩展存储。</p>
+ */
+public final class RagIndexTaskProgressBus {
+
+    private final ConcurrentMap<String, Sinks.Many<RagIndexTask>> sinks = new ConcurrentHashMap<>();
+
+    public void publish(RagIndexTask task) {
+        var name = task == null || task.getMetadata() == null ? null : task.getMetadata().getName();
+        if (name == null) {
+            return;
+        }
+        var finished = finished(task);
+        var sink = finished ? sinks.remove(name)
+            : sinks.computeIfAbsent(name, ignored -> Sinks.many().replay().latest());
+        if (sink == null) {
+            return;
+        }
+        synchronized (sink) {
+            sink.tryEmitNext(task);
+            if (finished) {
+                sink.tryEmitComplete();
+            }
+        }
+    }
+
+    public Optional<Flux<RagIndexTask>> subscribe(String name) {
+        return Optional.ofNullable(sinks.get(name)).map(Sinks.Many::asFlux);
+    }
+
+    /**
+     * 任务执行结束但没有推送终态时（终态写入失败、被抢占或插件停止）关闭该任务的 sink，
+     * 订阅方随后回退到读取扩展存储。
+     */
+    public void complete(String name) {
+        var sink = name == null ? null : sinks.remove(name);
+        if (sink == null) {
+            return;
+        }
+        synchronized (sink) {
+            sink.tryEmitComplete();
+        }
+    }
+
+    /**
+     * 插件停止时关闭所有订阅，订阅方重新连接后会回退到扩展存储。
+     */
+    public void clear() {
+        sinks.forEach((name, sink) -> {
+            if (sinks.remove(name, sink)) {
+                synchronized (sink) {
+                    sink.tryEmitComplete();
+                }
+            }
+        });
+    }
+
+    public static boolean finished(RagIndexTask task) {
+        var phase = task.getStatus() == null ? null : task.getStatus().getPhase();
+        return RagIndexTask.Phase.SUCCEEDED.name().equals(phase)
+            || RagIndexTask.Phase.FAILED.name().equals(phase)
+            || RagIndexTask.Phase.CANCELED.name().equals(phase);
+    }
+}
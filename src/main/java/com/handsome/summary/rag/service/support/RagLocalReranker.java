@@ -0,0 +1,190 @@
+package com.handsome.summary.rag.service.support;
+
+import com.handsome.summary.rag.model.RagSearchResult;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * 无网络调用的本地精排。
+ *
+ * <p>得分由三部分组成：查询向量与索引中分块向量的余弦相似度、候选集合内的 BM25 词项匹配，
+ * 以及 {@link RagMetadataScoreBooster} 给出的元数据加权。用于未配置 Rerank 模型或远程精排超时的场景。</p>
+ */
+public final class RagLocalReranker {
+
+    private static final double VECTOR_WEIGHT = 0.6d;
+    private static final double KEYWORD_WEIGHT = 0.4d;
+    private static final double BM25_K1 = 1.2d;
+    private static final double BM25_B = 0.75d;
+
+    private RagLocalReranker() {
+    }
+
+    /**
+     * @param queryVectors 按知识库名称索引的查询向量
+     * @param chunkVectors 按 {@code knowledgeBase:id} 索引的分块向量
+     */
+    public static List<RagSearchResult> rerank(String query, List<RagSearchResult> candidates,
+        Map<String, float[]> queryVectors, Map<String, float[]> chunkVectors, int topN) {
+        if (candidates == null || candidates.isEmpty()) {
+            return List.of();
+        }
+        var keywordScores = bm25(query, candidates);
+        var maxKeywordScore = 0.0d;
+        for (var score : keywordScores) {
+            maxKeywordScore = Math.max(maxKeywordScore, score);
+        }
+        var scored = new ArrayList<RagSearchResult>(candidates.size());
+        for (var i = 0; i < candidates.size(); i++) {
+            var candidate = candidates.get(i);
+            var cosine = cosine(candidate, queryVectors, chunkVectors);
+            var keyword = maxKeywordScore > 0 ? keywordScores[i] / maxKeywordScore : 0;
+            var score = (VECTOR_WEIGHT * Math.max(cosine, 0) + KEYWORD_WEIGHT * keyword)
+                * (1.0d + metadataBoost(candidate));
+            scored.add(candidate.toBuilder()
+                .score(score)
+                .rerankScore(score)
+                .metadata(withRerankMode(candidate.getMetadata()))
+                .build());
+        }
+        return scored.stream()
+            .sorted(Comparator.comparingDouble(RagSearchResult::getScore).reversed())
+            .limit(Math.max(topN, 1))
+            .toList();
+    }
+
+    private static double cosine(RagSearchResult candidate, Map<String, float[]> queryVectors,
+        Map<String, float[]> chunkVectors) {
+        var queryVector = queryVectors.get(candidate.getKnowledgeBase());
+        var chunkVector = chunkVectors.get(candidate.getKnowledgeBase() + ":" + candidate.getId());
+        if (queryVector != null && chunkVector != null && queryVector.length == chunkVector.length) {
+            var dot = 0.0d;
+            var queryNorm = 0.0d;
+            var chunkNorm = 0.0d;
+            for (var i = 0; i < queryVector.length; i++) {
+                dot += queryVector[i] * chunkVector[i];
+                queryNorm += queryVector[i] * queryVector[i];
+                chunkNorm += chunkVector[i] * chunkVector[i];
+            }
+            if (queryNorm > 0 && chunkNorm > 0) {
+                return dot / Math.sqrt(queryNorm * chunkNorm);
+            }
+        }
+        // Lucene 的 COSINE 向量得分为 (1 + cos) / 2。
+        return candidate.getVectorScore() == null ? 0 : 2 * candidate.getVectorScore() - 1;
+    }
+
+    private static double[] bm25(String query, List<RagSearchResult> candidates) {
+        var queryTerms = terms(query).keySet();
+        var scores = new double[candidates.size()];
+        if (queryTerms.isEmpty()) {
+            return scores;
+        }
+        var documentTerms = new ArrayList<Map<String, Integer>>(candidates.size());
+        var documentFrequency = new HashMap<String, Integer>();
+        var totalLength = 0L;
+        for (var candidate : candidates) {
+            var terms = terms(candidate.getTitle() + "\n" + candidate.getContent());
+            documentTerms.add(terms);
+            for (var term : terms.keySet()) {
+                if (queryTerms.contains(term)) {
+                    documentFrequency.merge(term, 1, Integer::sum);
+                }
+            }
+            totalLength += terms.values().stream().mapToInt(Integer::intValue).sum();
+        }
+        var averageLength = Math.max(1.0d, (double) totalLength / candidates.size());
+        for (var i = 0; i < candidates.size(); i++) {
+            var terms = documentTerms.get(i);
+            var length = terms.values().stream().mapToInt(Integer::intValue).sum();
+            var score = 0.0d;
+            for (var term : queryTerms) {
+                var frequency = terms.getOrDefault(term, 0);
+                if (frequency == 0) {
+                    continue;
+                }
+                var df = documentFrequency.getOrDefault(term, 0);
+                var idf = Math.log(1 + (candidates.size() - df + 0.5d) / (df + 0.5d));
+                score += idf * frequency * (BM25_K1 + 1)
+                    / (frequency + BM25_K1 * (1 - BM25_B + BM25_B * length / averageLength));
+            }
+            scores[i] = score;
+        }
+        return scores;
+    }
+
+    /**
+     * 拉丁字符按单词切分，中日韩字符按相邻二元组切分，与 CJKAnalyzer 的切分方式一致。
+     */
+    private static Map<String, Integer> terms(String text) {
+        var terms = new HashMap<String, Integer>();
+        if (text == null || text.isEmpty()) {
+            return terms;
+        }
+        var normalized = text.toLowerCase(Locale.ROOT);
+        var word = new StringBuilder();
+        var previousCjk = -1;
+        for (var i = 0; i < normalized.length(); i++) {
+            var ch = normalized.charAt(i);
+            if (isCjk(ch)) {
+                flushWord(terms, word);
+                if (previousCjk >= 0) {
+                    terms.merge(String.valueOf(normalized.charAt(previousCjk)) + ch, 1, Integer::sum);
+                }
+                previousCjk = i;
+                continue;
+            }
+            previousCjk = -1;
+            if (Character.isLetterOrDigit(ch)) {
+                word.append(ch);
+            } else {
+                flushWord(terms, word);
+            }
+        }
+        flushWord(terms, word);
+        return terms;
+    }
+
+    private static boolean isCjk(char ch) {
+        if (Character.isIdeographic(ch)) {
+            return true;
+        }
+        var script = Character.UnicodeScript.of(ch);
+        return script == Character.UnicodeScript.HANGUL
+            || script == Character.UnicodeScript.HIRAGANA
+            || script == Character.UnicodeScript.KATAKANA;
+    }
+
+    private static void flushWord(Map<String, Integer> terms, StringBuilder word) {
+        if (word.length() >= 2) {
+            terms.merge(word.toString(), 1, Integer::sum);
+        }
+        word.setLength(0);
+    }
+
+    private static double metadataBoost(RagSearchResult candidate) {
+        var metadata = candidate.getMetadata();
+        if (metadata == null || !(metadata.get("metadataBoost") instanceof Number boost)) {
+            return 0;
+        }
+        return Math.max(boost.doubleValue(), 0);
+    }
+
+    private static Map<String, Object> withRerankMode(Map<String, Object> metadata) {
+        var merged = new LinkedHashMap<String, Object>();
+        if (metadata != null) {
+            metadata.forEach((key, value) -> {
+                if (key != null && value != null) {
+                    merged.put(key, value);
+                }
+            });
+        }
+        merged.put("rerankMode", "local");
+        return Map.copyOf(merged);
+    }
+}
@@ -0,0 +1,131 @@
+package com.handsome.summary.rag.service.support;
+
+import com.handsome.summary.rag.model.RagSearchResult;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * 自适应 Rerank 决策。
+ *
+ * <p>领先幅度按向量相似度计算：RRF 融合得分只反映名次，同时被向量和关键词召回的片段天然约是只被一路召回的两倍，
+ * 不能用来判断置信度。融合第一名的向量得分比其余候选中最高的向量得分高出 {@code skipMargin} 时直接跳过 Rerank；
+ * 否则把向量得分比截断位置及之后候选高出同样幅度的头部片段固定下来，只把截断位置附近的候选送去精排，
+ * 并把候选文本截断到固定窗口以控制请求体积。没有向量得分的候选（仅被关键词召回）不会被跳过或固定。</p>
+ */
+public final class RagRerankPolicy {
+
+    private RagRerankPolicy() {
+    }
+
+    public static Decision decide(List<RagSearchResult> fused, int finalLimit, double skipMargin,
+        int maxCandidateChars) {
+        if (fused.size() <= 1) {
+            return Decision.skip("single-candidate", 0, fused.size());
+        }
+        var topMargin = vectorMargin(fused.get(0), bestVectorScore(fused, 1));
+        if (skipMargin > 0 && topMargin >= skipMargin) {
+            return Decision.skip("confident-top", topMargin, fused.size());
+        }
+        var boundaryIndex = Math.min(finalLimit, fused.size() - 1);
+        var boundaryScore = bestVectorScore(fused, boundaryIndex);
+        var lockedHead = 0;
+        if (skipMargin > 0) {
+            while (lockedHead < boundaryIndex && lockedHead < finalLimit - 1
+                && vectorMargin(fused.get(lockedHead), boundaryScore) >= skipMargin) {
+                lockedHead++;
+            }
+        }
+        var window = new ArrayList<RagSearchResult>(fused.size() - lockedHead);
+        var truncated = 0;
+        var windowChars = 0L;
+        for (var i = lockedHead; i < fused.size(); i++) {
+            var candidate = fused.get(i);
+            var content = candidate.getContent() == null ? "" : candidate.getContent();
+            if (maxCandidateChars > 0 && content.length() > maxCandidateChars) {
+                content = content.substring(0, maxCandidateChars);
+                candidate = candidate.toBuilder().content(content).build();
+                truncated++;
+            }
+            windowChars += content.length();
+            window.add(candidate);
+        }
+        return new Decision(false, lockedHead > 0 ? "partial" : "full", topMargin,
+            List.copyOf(fused.subList(0, lockedHead)), List.copyOf(window), truncated,
+            windowChars, fused.size());
+    }
+
+    /**
+     * 把精排返回的片段替换回未截断的原始片段，保留精排分数。
+     */
+    public static List<RagSearchResult> restoreContent(List<RagSearchResult> reranked,
+        List<RagSearchResult> originals) {
+        var byKey = new LinkedHashMap<String, RagSearchResult>();
+        for (var original : originals) {
+            byKey.put(key(original), original);
+        }
+        return reranked.stream()
+            .map(result -> {
+                var original = byKey.get(key(result));
+                return original == null ? result : result.toBuilder()
+                    .content(original.getContent())
+                    .build();
+            })
+            .toList();
+    }
+
+    private static String key(RagSearchResult result) {
+        return result.getKnowledgeBase() + ":" + result.getId();
+    }
+
+    /**
+     * 候选向量得分领先 {@code trailing} 的差值；候选或对比的候选没有向量得分时返回 0。
+     */
+    private static double vectorMargin(RagSearchResult leading, double trailing) {
+        var score = leading.getVectorScore();
+        if (score == null || score <= 0 || trailing < 0) {
+            return 0;
+        }
+        return Math.max(0, score - trailing);
+    }
+
+    /**
+     * 从 {@code fromIndex} 起最高的向量得分；这些候选都没有向量得分时返回 -1。
+     */
+    private static double bestVectorScore(List<RagSearchResult> candidates, int fromIndex) {
+        var best = -1d;
+        for (var i = fromIndex; i < candidates.size(); i++) {
+            var score = candidates.get(i).getVectorScore();
+            if (score != null && score > best) {
+                best = score;
+            }
+        }
+        return best;
+    }
+
+    public record Decision(boolean skip, String reason, double topMargin,
+                           List<RagSearchResult> lockedHead, List<RagSearchResult> window,
+                           int truncatedCandidates, long windowChars, int candidateCount) {
+
+        static Decision skip(String reason, double topMargin, int candidateCount) {
+            return new Decision(true, reason, topMargin, List.of(), List.of(), 0, 0,
+                candidateCount);
+        }
+
+        public Map<String, String> toMetadata() {
+            var metadata = new LinkedHashMap<String, String>();
+            metadata.put("rerankDecision", skip ? "skip" : reason);
+            if (skip) {
+                metadata.put("skipReason", reason);
+            }
+            metadata.put("topMargin", String.format(Locale.ROOT, "%.4f", topMargin));
+            metadata.put("fusedCandidates", String.valueOf(candidateCount));
+            metadata.put("lockedHead", String.valueOf(lockedHead.size()));
+            metadata.put("windowSize", String.valueOf(window.size()));
+            metadata.put("truncatedCandidates", String.valueOf(truncatedCandidates));
+            return Map.copyOf(metadata);
+        }
+    }
+}
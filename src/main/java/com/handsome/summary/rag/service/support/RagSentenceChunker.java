@@ -0,0 +1,280 @@
+package com.handsome.summary.rag.service.support;
+
+import com.handsome.summary.rag.model.RagContentChunk;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.regex.Pattern;
+
+/**
+ * 按句子边界分块。
+ *
+ * <p>在规整后的正文上识别中英文句末标点（。！？；.!?），代码块（```）和列表项整体作为一个单元，
+ * 再把相邻单元合并到分块大小以内；分块重叠以整句为单位从上一个分块末尾带入。单个单元超过分块大小时，
+ * 才退回到按固定窗口切分。</p>
+ */
+public final class RagSentenceChunker {
+
+    private static final String CODE_FENCE = "```";
+    private static final Pattern LIST_ITEM_PATTERN = Pattern.compile(
+        "^(?:[-*+•·]\\s|\\d{1,3}[.)]\\s|\\d{1,3}、|[（(]\\d{1,3}[）)]|[一二三四五六七八九十]{1,3}、)");
+
+    private RagSentenceChunker() {
+    }
+
+    public static Iterator<RagContentChunk> iterator(String text, int chunkSize, int chunkOverlap) {
+        return new ChunkIterator(text == null ? "" : text, chunkSize,
+            Math.min(Math.max(chunkOverlap, 0), chunkSize / 2));
+    }
+
+    private record Unit(int start, int end, int paragraph) {
+
+        int length() {
+            return end - start;
+        }
+    }
+
+    /**
+     * 逐个产出句子、代码块或列表项单元。
+     */
+    private static final class UnitScanner {
+        private final String text;
+        private int cursor;
+        private int paragraphCount;
+        private int lineEnd = -1;
+        private int sentenceCursor;
+        private int lineParagraph;
+
+        private UnitScanner(String text) {
+            this.text = text;
+        }
+
+        private Unit next() {
+            while (true) {
+                if (lineEnd >= 0) {
+                    var unit = nextSentence();
+                    if (unit != null) {
+                        return unit;
+                    }
+                    continue;
+                }
+                if (cursor >= text.length()) {
+                    return null;
+                }
+                var lineStart = cursor;
+                var end = lineEnd(lineStart);
+                cursor = end + 1;
+                var paragraph = paragraphCount++;
+                if (end == lineStart) {
+                    continue;
+                }
+                if (text.startsWith(CODE_FENCE, lineStart)) {
+                    return codeBlock(lineStart, end, paragraph);
+                }
+                if (LIST_ITEM_PATTERN.matcher(text).region(lineStart, end).lookingAt()) {
+                    return new Unit(lineStart, end, paragraph);
+                }
+                lineEnd = end;
+                sentenceCursor = lineStart;
+                lineParagraph = paragraph;
+            }
+        }
+
+        private Unit codeBlock(int start, int firstLineEnd, int paragraph) {
+            var end = firstLineEnd;
+            while (cursor < text.length()) {
+                var lineStart = cursor;
+                var nextEnd = lineEnd(lineStart);
+                cursor = nextEnd + 1;
+                paragraphCount++;
+                end = nextEnd;
+                if (text.startsWith(CODE_FENCE, lineStart)) {
+                    break;
+                }
+            }
+            return new Unit(start, end, paragraph);
+        }
+
+        private Unit nextSentence() {
+            var start = sentenceCursor;
+            while (start < lineEnd && Character.isWhitespace(text.charAt(start))) {
+                start++;
+            }
+            if (start >= lineEnd) {
+                lineEnd = -1;
+                return null;
+            }
+            var end = start;
+            while (end < lineEnd) {
+                var ch = text.charAt(end++);
+                if (isSentenceEnd(ch, end)) {
+                    while (end < lineEnd && isClosing(text.charAt(end))) {
+                        end++;
+                    }
+                    break;
+                }
+            }
+            sentenceCursor = end;
+            return new Unit(start, end, lineParagraph);
+        }
+
+        /**
+         * @param next 标点之后一个字符的位置；英文标点后必须是空白或行尾，避免切开小数、缩写和网址。
+         */
+        private boolean isSentenceEnd(char ch, int next) {
+            return switch (ch) {
+                case '。', '！', '？', '；' -> true;
+                case '.', '!', '?' -> next >= lineEnd || Character.isWhitespace(text.charAt(next));
+                default -> false;
+            };
+        }
+
+        private boolean isClosing(char ch) {
+            return switch (ch) {
+                case '”', '’', '」', '』', '）', ')', '"', '\'', '》', '】' -> true;
+                default -> false;
+            };
+        }
+
+        private int lineEnd(int from) {
+            var end = text.indexOf('\n', from);
+            return end < 0 ? text.length() : end;
+        }
+    }
+
+    private static final class ChunkIterator implements Iterator<RagContentChunk> {
+        private final String text;
+        private final int chunkSize;
+        private final int overlap;
+        private final UnitScanner scanner;
+        private final Deque<Unit> current = new ArrayDeque<>();
+        private int chunkCount;
+        private Unit longUnit;
+        private int longCursor;
+        private boolean exhausted;
+        private RagContentChunk next;
+
+        private ChunkIterator(String text, int chunkSize, int overlap) {
+            this.text = text;
+            this.chunkSize = chunkSize;
+            this.overlap = overlap;
+            this.scanner = new UnitScanner(text);
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (next == null) {
+                next = advance();
+            }
+            return next != null;
+        }
+
+        @Override
+        public RagContentChunk next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            var chunk = next;
+            next = null;
+            return chunk;
+        }
+
+        private RagContentChunk advance() {
+            while (true) {
+                if (longUnit != null) {
+                    var chunk = nextWindow();
+                    if (chunk != null) {
+                        return chunk;
+                    }
+                    continue;
+                }
+                var unit = exhausted ? null : scanner.next();
+                if (unit == null) {
+                    exhausted = true;
+                    if (current.isEmpty()) {
+                        return null;
+                    }
+                    var chunk = chunk(current.getFirst().paragraph(), current.getFirst().start(),
+                        current.getLast().end());
+                    current.clear();
+                    return chunk;
+                }
+                if (unit.length() > chunkSize) {
+                    longUnit = unit;
+                    longCursor = unit.start();
+                    if (!current.isEmpty()) {
+                        var chunk = chunk(current.getFirst().paragraph(),
+                            current.getFirst().start(), current.getLast().end());
+                        current.clear();
+                        return chunk;
+                    }
+                    continue;
+                }
+                RagContentChunk flushed = null;
+                if (!current.isEmpty() && unit.end() - current.getFirst().start() > chunkSize) {
+                    flushed = chunk(current.getFirst().paragraph(), current.getFirst().start(),
+                        current.getLast().end());
+                    carryOverlap();
+                }
+                while (!current.isEmpty() && unit.end() - current.getFirst().start() > chunkSize) {
+                    current.removeFirst();
+                }
+                current.addLast(unit);
+                if (flushed != null) {
+                    return flushed;
+                }
+            }
+        }
+
+        /**
+         * 只保留末尾总长度不超过重叠大小的整句，且至少丢弃第一个单元，保证游标前进。
+         */
+        private void carryOverlap() {
+            var end = current.getLast().end();
+            var keep = 0;
+            var iterator = current.descendingIterator();
+            while (iterator.hasNext()) {
+                var unit = iterator.next();
+                if (keep + 1 >= current.size() || end - unit.start() > overlap) {
+                    break;
+                }
+                keep++;
+            }
+            while (current.size() > keep) {
+                current.removeFirst();
+            }
+        }
+
+        private RagContentChunk nextWindow() {
+            var start = longCursor;
+            var end = Math.min(start + chunkSize, longUnit.end());
+            var paragraph = longUnit.paragraph();
+            if (end >= longUnit.end()) {
+                longUnit = null;
+            } else {
+                longCursor = Math.max(end - overlap, start + 1);
+            }
+            return chunk(paragraph, start, end);
+        }
+
+        private RagContentChunk chunk(int paragraph, int start, int end) {
+            while (start < end && Character.isWhitespace(text.charAt(start))) {
+                start++;
+            }
+            while (end > start && Character.isWhitespace(text.charAt(end - 1))) {
+                end--;
+            }
+            if (start >= end) {
+                return null;
+            }
+            return RagContentChunk.builder()
+                .index(chunkCount++)
+                .paragraphIndex(paragraph)
+                .startOffset(start)
+                .endOffset(end)
+                .text(text.substring(start, end))
+                .build();
+        }
+    }
+}
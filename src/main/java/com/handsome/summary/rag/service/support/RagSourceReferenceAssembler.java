@@ -110,6 +110,7 @@ public final class RagSourceReferenceAssembler {
         private final RagSearchResult first;
         private final List<String> sourceIds = new ArrayList<>();
         private final List<String> chunkIndexes = new ArrayList<>();
+        private final List<String> chunkOffsets = new ArrayList<>();
         private final List<String> excerpts = new ArrayList<>();
         private double score;
         private int chunkCount;
@@ -131,6 +132,9 @@ public final class RagSourceReferenceAssembler {
             if (StringUtils.hasText(chunkIndex)) {
                 chunkIndexes.add(chunkIndex);
             }
+            if (source.getStartOffset() != null && source.getEndOffset() != null) {
+                chunkOffsets.add(source.getStartOffset() + "-" + source.getEndOffset());
+            }
             var excerpt = compactContent(source.getContent());
             if (StringUtils.hasText(excerpt)) {
                 excerpts.add(excerpt);
@@ -152,6 +156,7 @@ public final class RagSourceReferenceAssembler {
                     "sourceName", defaultString(first.getSourceName()),
                     "chunkCount", chunkCount,
                     "chunkIndexes", chunkIndexes,
+                    "chunkOffsets", chunkOffsets,
                     "sourceIds", sourceIds,
                     "content", String.join("\n\n", excerpts)
                 ))
@@ -0,0 +1,89 @@
+package com.handsome.summary.rag.service.support;
+
+import java.util.List;
+import java.util.Locale;
+import org.springframework.util.StringUtils;
+
+/**
+ * 按模型近似估算 token 数。
+ *
+ * <p>不同模型的分词器对中文的压缩率差异明显：面向中文优化的词表通常 1 个汉字不足 1 个 token，
+ * 通用词表则接近 1 个汉字 1 个 token；拉丁字符统一按约 4 个字符 1 个 token 估算。</p>
+ */
+public final class RagTokenEstimator {
+
+    private static final double LATIN_TOKENS_PER_CHAR = 0.25d;
+    private static final double DEFAULT_CJK_TOKENS_PER_CHAR = 1.0d;
+    private static final double CJK_OPTIMIZED_TOKENS_PER_CHAR = 0.7d;
+    private static final List<String> CJK_OPTIMIZED_MODELS = List.of(
+        "qwen", "deepseek", "glm", "baichuan", "moonshot", "kimi", "hunyuan", "ernie", "yi-",
+        "doubao", "minimax", "spark"
+    );
+
+    private RagTokenEstimator() {
+    }
+
+    public static int estimate(String text, String modelName) {
+        if (!StringUtils.hasText(text)) {
+            return 0;
+        }
+        var cjkChars = 0;
+        var otherChars = 0;
+        for (var i = 0; i < text.length(); i++) {
+            var ch = text.charAt(i);
+            if (isCjk(ch)) {
+                cjkChars++;
+            } else if (!Character.isWhitespace(ch)) {
+                otherChars++;
+            }
+        }
+        var tokens = cjkChars * cjkTokensPerChar(modelName) + otherChars * LATIN_TOKENS_PER_CHAR;
+        return (int) Math.ceil(tokens);
+    }
+
+    /**
+     * 在不超过 token 预算的前提下返回文本可保留的最大字符数。
+     */
+    public static int fittingChars(String text, int tokenBudget, String modelName) {
+        if (!StringUtils.hasText(text) || tokenBudget <= 0) {
+            return 0;
+        }
+        var cjkRate = cjkTokensPerChar(modelName);
+        var tokens = 0.0d;
+        for (var i = 0; i < text.length(); i++) {
+            var ch = text.charAt(i);
+            if (isCjk(ch)) {
+                tokens += cjkRate;
+            } else if (!Character.isWhitespace(ch)) {
+                tokens += LATIN_TOKENS_PER_CHAR;
+            }
+            if (tokens > tokenBudget) {
+                return i;
+            }
+        }
+        return text.length();
+    }
+
+    private static double cjkTokensPerChar(String modelName) {
+        if (!StringUtils.hasText(modelName)) {
+            return DEFAULT_CJK_TOKENS_PER_CHAR;
+        }
+        var normalized = modelName.toLowerCase(Locale.ROOT);
+        for (var family : CJK_OPTIMIZED_MODELS) {
+            if (normalized.contains(family)) {
+                return CJK_OPTIMIZED_TOKENS_PER_CHAR;
+            }
+        }
+        return DEFAULT_CJK_TOKENS_PER_CHAR;
+    }
+
+    private static boolean isCjk(char ch) {
+        return (ch >= '\u4e00' && ch <= '\u9fff')
+            || (ch >= '\u3400' && ch <= '\u4dbf')
+            || (ch >= '\u3000' && ch <= '\u303f')
+            || (ch >= '\u3040' && ch <= '\u30ff')
+            || (ch >= '\uac00' && ch <= '\ud7af')
+            || (ch >= '\uf900' && ch <= '\ufaff')
+            || (ch >= '\uff00' && ch <= '\uffef');
+    }
+}
@@ -8,11 +8,12 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Comparator;
 import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.Locale;
 import java.util.Map;
+import java.util.Set;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.lucene.analysis.cjk.CJKAnalyzer;
@@ -25,18 +26,20 @@ import org.apache.lucene.index.DirectoryReader;
 import org.apache.lucene.index.IndexNotFoundException;
 import org.apache.lucene.index.IndexWriter;
 import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.ReaderUtil;
 import org.apache.lucene.index.Term;
 import org.apache.lucene.index.VectorSimilarityFunction;
 import org.apache.lucene.queryparser.classic.MultiFieldQueryParser;
 import org.apache.lucene.queryparser.classic.QueryParser;
 import org.apache.lucene.search.IndexSearcher;
 import org.apache.lucene.search.KnnFloatVectorQuery;
+import org.apache.lucene.search.TermInSetQuery;
 import org.apache.lucene.store.FSDirectory;
+import org.apache.lucene.util.BytesRef;
 import org.springframework.stereotype.Service;
 import org.springframework.util.StringUtils;
 import reactor.core.publisher.Mono;
 import reactor.core.scheduler.Schedulers;
-import run.halo.app.plugin.PluginsRootGetter;
 
 @Slf4j
 @Service
@@ -54,18 +57,22 @@ public class LuceneRagVectorStore implements RagVectorStore {
     private static final String FIELD_URL = "url";
     private static final String FIELD_CONTENT = "content";
     private static final String FIELD_CHUNK_INDEX = "chunkIndex";
+    private static final String FIELD_PARAGRAPH_INDEX = "paragraphIndex";
+    private static final String FIELD_START_OFFSET = "startOffset";
+    private static final String FIELD_END_OFFSET = "endOffset";
     private static final String FIELD_VECTOR = "vector";
     private static final String FIELD_TAGS = "tags";
     private static final String FIELD_CATEGORIES = "categories";
 
-    private final PluginsRootGetter pluginsRootGetter;
+    private final RagIndexPaths ragIndexPaths;
+    private final RagIndexReplicator ragIndexReplicator;
 
     @Override
     public Mono<Void> rebuild(String knowledgeBase, String indexVersion, List<RagIndexedChunk> chunks) {
         return Mono.fromRunnable(() -> {
-            var basePath = knowledgeBasePath(knowledgeBase);
-            var targetPath = indexPath(knowledgeBase, indexVersion);
-            var stagingPath = stagingPath(knowledgeBase, indexVersion);
+            var basePath = ragIndexPaths.knowledgeBase(knowledgeBase);
+            var targetPath = ragIndexPaths.versionDirectory(knowledgeBase, indexVersion);
+            var stagingPath = ragIndexPaths.staging(knowledgeBase, indexVersion);
             var startedAt = System.currentTimeMillis();
             var dimensions = vectorDimensions(chunks);
             log.info(
@@ -107,7 +114,8 @@ public class LuceneRagVectorStore implements RagVectorStore {
                 throw new IllegalStateException("Failed to initialize RAG Lucene runtime: "
                     + LuceneRuntimeDiagnostics.describe(), e);
             }
-        }).subscribeOn(Schedulers.boundedElastic()).then();
+        }).subscribeOn(Schedulers.boundedElastic())
+            .then(ragIndexReplicator.publish(knowledgeBase, indexVersion));
     }
 
     @Override
@@ -118,7 +126,7 @@ public class LuceneRagVectorStore implements RagVectorStore {
             if (names.isEmpty() && (chunks == null || chunks.isEmpty())) {
                 return;
             }
-            var targetPath = indexPath(knowledgeBase, indexVersion);
+            var targetPath = ragIndexPaths.index(knowledgeBase, indexVersion);
             var startedAt = System.currentTimeMillis();
             var safeChunks = defaultChunks(chunks);
             var dimensions = vectorDimensions(safeChunks);
@@ -153,14 +161,18 @@ public class LuceneRagVectorStore implements RagVectorStore {
                 throw new IllegalStateException("Failed to initialize RAG Lucene runtime: "
                     + LuceneRuntimeDiagnostics.describe(), e);
             }
-        }).subscribeOn(Schedulers.boundedElastic()).then();
+        }).subscribeOn(Schedulers.boundedElastic())
+            .then(ragIndexReplicator.publish(knowledgeBase, indexVersion));
     }
 
     @Override
     public Mono<Void> clear(String knowledgeBase) {
-        return Mono.fromRunnable(() -> deleteDirectory(knowledgeBasePath(knowledgeBase)))
+        return Mono.fromRunnable(() -> {
+                deleteDirectory(ragIndexPaths.knowledgeBase(knowledgeBase));
+                deleteDirectory(ragIndexPaths.checkpoints(knowledgeBase));
+            })
             .subscribeOn(Schedulers.boundedElastic())
-            .then();
+            .then(ragIndexReplicator.publish(knowledgeBase, null));
     }
 
     @Override
@@ -173,7 +185,7 @@ public class LuceneRagVectorStore implements RagVectorStore {
             var startedAt = System.currentTimeMillis();
             log.debug("RAG Lucene vector search start kb={} version={} dimensions={} topK={}",
                 knowledgeBase, indexVersion, queryVector.length, topK);
-            try (var directory = FSDirectory.open(indexPath(knowledgeBase, indexVersion));
+            try (var directory = FSDirectory.open(ragIndexPaths.index(knowledgeBase, indexVersion));
                 var reader = DirectoryReader.open(directory)) {
                 var searcher = new IndexSearcher(reader);
                 var query = new KnnFloatVectorQuery(FIELD_VECTOR, queryVector, topK);
@@ -208,7 +220,7 @@ public class LuceneRagVectorStore implements RagVectorStore {
             var startedAt = System.currentTimeMillis();
             log.debug("RAG Lucene keyword search start kb={} version={} queryChars={} topK={}",
                 knowledgeBase, indexVersion, queryText.length(), topK);
-            try (var directory = FSDirectory.open(indexPath(knowledgeBase, indexVersion));
+            try (var directory = FSDirectory.open(ragIndexPaths.index(knowledgeBase, indexVersion));
                 var reader = DirectoryReader.open(directory);
                 var analyzer = new CJKAnalyzer()) {
                 var searcher = new IndexSearcher(reader);
@@ -259,6 +271,52 @@ public class LuceneRagVectorStore implements RagVectorStore {
         }).subscribeOn(Schedulers.boundedElastic());
     }
 
+    @Override
+    public Mono<Map<String, float[]>> loadVectors(String knowledgeBase, String indexVersion,
+        Collection<String> chunkIds) {
+        return Mono.fromCallable(() -> {
+            if (chunkIds == null || chunkIds.isEmpty()) {
+                return Map.<String, float[]>of();
+            }
+            var terms = chunkIds.stream()
+                .filter(StringUtils::hasText)
+                .distinct()
+                .map(BytesRef::new)
+                .toList();
+            if (terms.isEmpty()) {
+                return Map.<String, float[]>of();
+            }
+            try (var directory = FSDirectory.open(ragIndexPaths.index(knowledgeBase, indexVersion));
+                var reader = DirectoryReader.open(directory)) {
+                var searcher = new IndexSearcher(reader);
+                var topDocs = searcher.search(new TermInSetQuery(FIELD_ID, terms), terms.size());
+                var vectors = new LinkedHashMap<String, float[]>();
+                for (var scoreDoc : topDocs.scoreDocs) {
+                    var leaf = reader.leaves().get(ReaderUtil.subIndex(scoreDoc.doc, reader.leaves()));
+                    var values = leaf.reader().getFloatVectorValues(FIELD_VECTOR);
+                    if (values == null) {
+                        continue;
+                    }
+                    var iterator = values.iterator();
+                    var leafDoc = scoreDoc.doc - leaf.docBase;
+                    if (iterator.advance(leafDoc) != leafDoc) {
+                        continue;
+                    }
+                    var id = searcher.storedFields().document(scoreDoc.doc, Set.of(FIELD_ID))
+                        .get(FIELD_ID);
+                    vectors.put(id, values.vectorValue(iterator.index()).clone());
+                }
+                return Map.copyOf(vectors);
+            } catch (IndexNotFoundException e) {
+                log.debug("RAG Lucene index not found: kb={}, version={}", knowledgeBase, indexVersion);
+                return Map.<String, float[]>of();
+            } catch (LinkageError e) {
+                throw new IllegalStateException("Failed to initialize RAG Lucene runtime: "
+                    + LuceneRuntimeDiagnostics.describe(), e);
+            }
+        }).subscribeOn(Schedulers.boundedElastic());
+    }
+
     private org.apache.lucene.document.Document toDocument(RagIndexedChunk chunk) {
         validateVector(chunk);
         var document = new org.apache.lucene.document.Document();
@@ -275,6 +333,9 @@ public class LuceneRagVectorStore implements RagVectorStore {
         document.add(new StoredField(FIELD_URL, defaultString(chunk.getUrl())));
         document.add(new TextField(FIELD_CONTENT, defaultString(chunk.getContent()), Field.Store.YES));
         document.add(new StoredField(FIELD_CHUNK_INDEX, chunk.getChunkIndex()));
+        document.add(new StoredField(FIELD_PARAGRAPH_INDEX, chunk.getParagraphIndex()));
+        document.add(new StoredField(FIELD_START_OFFSET, chunk.getStartOffset()));
+        document.add(new StoredField(FIELD_END_OFFSET, chunk.getEndOffset()));
         document.add(new TextField(FIELD_TAGS, joinList(chunk.getTags()), Field.Store.YES));
         document.add(new TextField(FIELD_CATEGORIES, joinList(chunk.getCategories()), Field.Store.YES));
         document.add(new KnnFloatVectorField(FIELD_VECTOR, chunk.getVector(),
@@ -297,7 +358,10 @@ public class LuceneRagVectorStore implements RagVectorStore {
 
     private RagSearchResult toSearchResult(org.apache.lucene.document.Document document, double score,
         Double vectorScore, Double keywordScore) {
-        var chunkIndex = chunkIndex(document);
+        var chunkIndex = storedInt(document, FIELD_CHUNK_INDEX);
+        var paragraphIndex = storedInt(document, FIELD_PARAGRAPH_INDEX);
+        var startOffset = storedInt(document, FIELD_START_OFFSET);
+        var endOffset = storedInt(document, FIELD_END_OFFSET);
         return RagSearchResult.builder()
             .id(document.get(FIELD_ID))
             .knowledgeBase(document.get(FIELD_KNOWLEDGE_BASE))
@@ -308,19 +372,26 @@ public class LuceneRagVectorStore implements RagVectorStore {
             .url(document.get(FIELD_URL))
             .content(document.get(FIELD_CONTENT))
             .chunkIndex(chunkIndex)
+            .paragraphIndex(paragraphIndex)
+            .startOffset(startOffset)
+            .endOffset(endOffset)
             .score(score)
             .vectorScore(vectorScore)
             .keywordScore(keywordScore)
-            .metadata(metadata(document, chunkIndex))
+            .metadata(metadata(document, chunkIndex, startOffset, endOffset))
             .build();
     }
 
     private Map<String, Object> metadata(org.apache.lucene.document.Document document,
-        Integer chunkIndex) {
+        Integer chunkIndex, Integer startOffset, Integer endOffset) {
         var metadata = new LinkedHashMap<String, Object>();
         metadata.put("documentName", defaultString(document.get(FIELD_DOCUMENT_NAME)));
         metadata.put("documentTitle", defaultString(document.get(FIELD_TITLE)));
         metadata.put("chunkIndex", chunkIndex == null ? "" : chunkIndex);
+        if (startOffset != null && endOffset != null) {
+            metadata.put("startOffset", startOffset);
+            metadata.put("endOffset", endOffset);
+        }
         metadata.put("sourceType", defaultString(document.get(FIELD_SOURCE_TYPE)));
         metadata.put("sourceName", defaultString(document.get(FIELD_SOURCE_NAME)));
         metadata.put("knowledgeBase", defaultString(document.get(FIELD_KNOWLEDGE_BASE)));
@@ -333,23 +404,6 @@ public class LuceneRagVectorStore implements RagVectorStore {
         return Map.copyOf(metadata);
     }
 
-    private Path indexPath(String knowledgeBase, String indexVersion) {
-        return knowledgeBasePath(knowledgeBase).resolve(safePathName(indexVersion));
-    }
-
-    private Path stagingPath(String knowledgeBase, String indexVersion) {
-        return knowledgeBasePath("_staging")
-            .resolve(safePathName(knowledgeBase))
-            .resolve(safePathName(indexVersion) + "-" + System.nanoTime());
-    }
-
-    private Path knowledgeBasePath(String knowledgeBase) {
-        return pluginsRootGetter.get().getParent()
-            .resolve("indices")
-            .resolve("summaraidgpt-rag")
-            .resolve(safePathName(knowledgeBase));
-    }
-
     private void deleteDirectory(Path path) {
         if (!Files.exists(path)) {
             return;
@@ -383,11 +437,6 @@ public class LuceneRagVectorStore implements RagVectorStore {
         }
     }
 
-    private String safePathName(String value) {
-        var text = StringUtils.hasText(value) ? value : "default";
-        return text.toLowerCase(Locale.ROOT).replaceAll("[^a-z0-9._-]", "-");
-    }
-
     private List<String> defaultList(List<String> values) {
         return values == null ? List.of() : values;
     }
@@ -435,8 +484,8 @@ public class LuceneRagVectorStore implements RagVectorStore {
             .toList();
     }
 
-    private Integer chunkIndex(org.apache.lucene.document.Document document) {
-        var field = document.getField(FIELD_CHUNK_INDEX);
+    private Integer storedInt(org.apache.lucene.document.Document document, String name) {
+        var field = document.getField(name);
         if (field == null || field.numericValue() == null) {
             return null;
         }
@@ -0,0 +1,155 @@
+package com.handsome.summary.rag.store;
+
+import com.handsome.summary.support.Hashing;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * 全量重建的 Embedding 检查点。
+ *
+ * <p>每完成一批 Embedding 就把该批新生成的向量写成一个文件，键是分块 Embedding 文本的指纹。重试或插件重启后重建同一知识库时，
+ * 已有检查点的分块直接复用向量，不再调用 Embedding。文件先写临时文件再原子替换，读到损坏的文件时跳过并删除。
+ * 重建成功后检查点会被清理。</p>
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class RagEmbeddingCheckpointStore {
+
+    private static final int MAGIC = 0x52414743;
+    private static final int FORMAT_VERSION = 1;
+    private static final String BATCH_FILE_SUFFIX = ".bin";
+
+    private final RagIndexPaths ragIndexPaths;
+
+    public Mono<Map<String, float[]>> load(String knowledgeBase, String embeddingModelName) {
+        return Mono.fromCallable(() -> {
+                var directory = ragIndexPaths.checkpoint(knowledgeBase, embeddingModelName);
+                var vectors = new HashMap<String, float[]>();
+                if (!Files.isDirectory(directory)) {
+                    return Map.<String, float[]>copyOf(vectors);
+                }
+                try (var files = Files.list(directory)) {
+                    files.filter(file -> file.getFileName().toString().endsWith(BATCH_FILE_SUFFIX))
+                        .sorted()
+                        .forEach(file -> readBatch(file, vectors));
+                }
+                return Map.<String, float[]>copyOf(vectors);
+            })
+            .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    /**
+     * 保存一批新生成的向量；写入失败只记录日志，不影响索引任务本身。
+     */
+    public Mono<Void> save(String knowledgeBase, String embeddingModelName,
+        Map<String, float[]> vectors) {
+        if (vectors == null || vectors.isEmpty()) {
+            return Mono.empty();
+        }
+        return Mono.fromRunnable(() -> {
+                var directory = ragIndexPaths.checkpoint(knowledgeBase, embeddingModelName);
+                var keys = vectors.keySet().stream().sorted().toList();
+                var target = directory.resolve("batch-" + Hashing.sha256Hex(String.join(",", keys), 12)
+                    + BATCH_FILE_SUFFIX);
+                try {
+                    Files.createDirectories(directory);
+                    var temp = Files.createTempFile(directory, "batch-", ".tmp");
+                    try (var output = new DataOutputStream(
+                        new BufferedOutputStream(Files.newOutputStream(temp)))) {
+                        output.writeInt(MAGIC);
+                        output.writeInt(FORMAT_VERSION);
+                        output.writeInt(keys.size());
+                        for (var key : keys) {
+                            var vector = vectors.get(key);
+                            output.writeUTF(key);
+                            output.writeInt(vector.length);
+                            for (var value : vector) {
+                                output.writeFloat(value);
+                            }
+                        }
+                    }
+                    move(temp, target);
+                } catch (IOException e) {
+                    log.warn("Failed to save RAG embedding checkpoint: kb={}, path={}",
+                        knowledgeBase, target, e);
+                }
+            })
+            .subscribeOn(Schedulers.boundedElastic())
+            .then();
+    }
+
+    public Mono<Void> clear(String knowledgeBase) {
+        return Mono.fromRunnable(() -> {
+                var directory = ragIndexPaths.checkpoints(knowledgeBase);
+                if (!Files.exists(directory)) {
+                    return;
+                }
+                try (var stream = Files.walk(directory)) {
+                    stream.sorted(Comparator.reverseOrder()).forEach(path -> {
+                        try {
+                            Files.deleteIfExists(path);
+                        } catch (IOException e) {
+                            log.warn("Failed to delete RAG embedding checkpoint path: {}", path, e);
+                        }
+                    });
+                } catch (IOException e) {
+                    log.warn("Failed to clean RAG embedding checkpoints: kb={}", knowledgeBase, e);
+                }
+            })
+            .subscribeOn(Schedulers.boundedElastic())
+            .then();
+    }
+
+    private void readBatch(Path file, Map<String, float[]> vectors) {
+        var batch = new HashMap<String, float[]>();
+        try (var input = new DataInputStream(
+            new BufferedInputStream(Files.newInputStream(file)))) {
+            if (input.readInt() != MAGIC || input.readInt() != FORMAT_VERSION) {
+                throw new IOException("Unsupported checkpoint format");
+            }
+            var count = input.readInt();
+            for (var i = 0; i < count; i++) {
+                var key = input.readUTF();
+                var vector = new float[input.readInt()];
+                for (var j = 0; j < vector.length; j++) {
+                    vector[j] = input.readFloat();
+                }
+                batch.put(key, vector);
+            }
+            vectors.putAll(batch);
+        } catch (IOException | RuntimeException e) {
+            log.warn("Skip unreadable RAG embedding checkpoint: {}", file, e);
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException deleteError) {
+                log.debug("Failed to delete unreadable RAG embedding checkpoint: {}", file,
+                    deleteError);
+            }
+        }
+    }
+
+    private void move(Path source, Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.ATOMIC_MOVE,
+                StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package com.handsome.summary.rag.store;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import run.halo.app.extension.Unstructured;
+
+/**
+ * 知识库索引清单。
+ *
+ * <p>清单保存在知识库索引目录下的 {@code manifest.json}，记录每篇文档最近一次写入索引时的分块数、内容指纹和索引时间。
+ * 索引任务每次写完 Lucene 后先更新清单，文档扩展的状态只在分块数等可见字段变化时才写回，
+ * 大批量重建不再为每篇文档各做一次读取和更新。清单先写临时文件再原子替换，读到损坏的清单时按空清单处理。</p>
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class RagIndexManifestStore {
+
+    private static final String MANIFEST_FILE = "manifest.json";
+
+    private final ObjectMapper objectMapper = Unstructured.OBJECT_MAPPER;
+    private final RagIndexPaths ragIndexPaths;
+
+    public record Manifest(String knowledgeBase, String indexVersion, Instant updatedAt,
+                           Map<String, DocumentEntry> documents) {
+
+        public static Manifest empty(String knowledgeBase) {
+            return new Manifest(knowledgeBase, null, null, Map.of());
+        }
+    }
+
+    public record DocumentEntry(int chunkCount, String contentHash, Instant indexedAt) {
+    }
+
+    public Mono<Manifest> load(String knowledgeBase) {
+        return Mono.fromCallable(() -> read(knowledgeBase))
+            .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    /**
+     * 写入本次索引的文档条目；{@code replace} 为 true 时（全量重建）丢弃清单中其余文档，否则合并到已有清单。
+     */
+    public Mono<Void> write(String knowledgeBase, String indexVersion,
+        Map<String, DocumentEntry> entries, boolean replace) {
+        return Mono.fromRunnable(() -> {
+                synchronized (this) {
+                    var documents = new LinkedHashMap<String, DocumentEntry>();
+                    if (!replace) {
+                        documents.putAll(read(knowledgeBase).documents());
+                    }
+                    documents.putAll(entries);
+                    save(new Manifest(knowledgeBase, indexVersion, Instant.now(), documents));
+                }
+            })
+            .subscribeOn(Schedulers.boundedElastic())
+            .then();
+    }
+
+    private Manifest read(String knowledgeBase) {
+        var file = manifestFile(knowledgeBase);
+        if (!Files.isRegularFile(file)) {
+            return Manifest.empty(knowledgeBase);
+        }
+        try {
+            var manifest = objectMapper.readValue(file.toFile(), Manifest.class);
+            return manifest.documents() == null
+                ? new Manifest(manifest.knowledgeBase(), manifest.indexVersion(),
+                    manifest.updatedAt(), Map.of())
+                : manifest;
+        } catch (IOException | RuntimeException e) {
+            log.warn("Skip unreadable RAG index manifest: {}", file, e);
+            return Manifest.empty(knowledgeBase);
+        }
+    }
+
+    private void save(Manifest manifest) {
+        var file = manifestFile(manifest.knowledgeBase());
+        try {
+            Files.createDirectories(file.getParent());
+            var temp = Files.createTempFile(file.getParent(), "manifest-", ".tmp");
+            objectMapper.writeValue(temp.toFile(), manifest);
+            move(temp, file);
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to write RAG index manifest: " + file, e);
+        }
+    }
+
+    private Path manifestFile(String knowledgeBase) {
+        return ragIndexPaths.knowledgeBase(knowledgeBase).resolve(MANIFEST_FILE);
+    }
+
+    private void move(Path source, Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.ATOMIC_MOVE,
+                StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+}
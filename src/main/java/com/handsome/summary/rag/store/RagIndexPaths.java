@@ -0,0 +1,121 @@
+package com.handsome.summary.rag.store;
+
+import com.handsome.summary.support.Hashing;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.regex.Pattern;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+import run.halo.app.plugin.PluginsRootGetter;
+
+/**
+ * RAG 本地文件布局。
+ *
+ * <p>所有文件都在 Halo 工作目录的 {@code indices/summaraidgpt-rag} 下：每个知识库一个目录保存各索引版本，
+ * {@code _staging} 存放重建中的临时索引，{@code _checkpoints} 存放全量重建已完成的 Embedding 批次。</p>
+ *
+ * <p>多节点复制得到的索引放在按代次命名的 {@code <版本>@<代次>} 目录，{@code <版本>@current} 文件记录当前生效的目录名，
+ * 切换时只原子替换这个文件，读取方每次打开索引时重新解析。</p>
+ */
+@Component
+@RequiredArgsConstructor
+public class RagIndexPaths {
+
+    private static final String REPLICA_SEPARATOR = "@";
+    private static final String REPLICA_POINTER = REPLICA_SEPARATOR + "current";
+    private static final Pattern REPLICA_NAME = Pattern.compile("[a-z0-9._-]+@\\d+");
+
+    private final PluginsRootGetter pluginsRootGetter;
+
+    public Path root() {
+        return pluginsRootGetter.get().getParent()
+            .resolve("indices")
+            .resolve("summaraidgpt-rag");
+    }
+
+    public Path knowledgeBase(String knowledgeBase) {
+        return root().resolve(safeName(knowledgeBase));
+    }
+
+    /**
+     * 读写索引时使用的目录：存在复制指针时指向当前生效的复制目录，否则是本地写入的版本目录。
+     */
+    public Path index(String knowledgeBase, String indexVersion) {
+        var replica = currentReplica(knowledgeBase, indexVersion);
+        return replica != null ? replica : versionDirectory(knowledgeBase, indexVersion);
+    }
+
+    /**
+     * 本地全量重建写入的版本目录，不经过复制指针。
+     */
+    public Path versionDirectory(String knowledgeBase, String indexVersion) {
+        return knowledgeBase(knowledgeBase).resolve(safeName(indexVersion));
+    }
+
+    public Path replica(String knowledgeBase, String indexVersion, long generation) {
+        return knowledgeBase(knowledgeBase)
+            .resolve(safeName(indexVersion) + REPLICA_SEPARATOR + generation);
+    }
+
+    public Path replicaPointer(String knowledgeBase, String indexVersion) {
+        return knowledgeBase(knowledgeBase).resolve(safeName(indexVersion) + REPLICA_POINTER);
+    }
+
+    public Path currentReplica(String knowledgeBase, String indexVersion) {
+        return replicaTarget(replicaPointer(knowledgeBase, indexVersion));
+    }
+
+    /**
+     * 解析复制指针指向的目录；指针不存在、内容不是复制目录名或目录已不存在时返回 {@code null}。
+     */
+    public Path replicaTarget(Path pointer) {
+        if (!Files.isRegularFile(pointer)) {
+            return null;
+        }
+        try {
+            var name = Files.readString(pointer).strip();
+            if (!isReplicaName(name)) {
+                return null;
+            }
+            var replica = pointer.resolveSibling(name);
+            return Files.isDirectory(replica) ? replica : null;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    public static boolean isReplicaName(String name) {
+        return name != null && REPLICA_NAME.matcher(name).matches();
+    }
+
+    public static boolean isReplicaPointerName(String name) {
+        return name != null && name.endsWith(REPLICA_POINTER);
+    }
+
+    public Path staging(String knowledgeBase, String indexVersion) {
+        return root().resolve("_staging")
+            .resolve(safeName(knowledgeBase))
+            .resolve(safeName(indexVersion) + "-" + System.nanoTime());
+    }
+
+    public Path checkpoints(String knowledgeBase) {
+        return root().resolve("_checkpoints").resolve(safeName(knowledgeBase));
+    }
+
+    /**
+     * 向量只由 Embedding 模型和文本决定，检查点按模型分目录，切换模型后不会误用旧向量。
+     */
+    public Path checkpoint(String knowledgeBase, String embeddingModelName) {
+        return checkpoints(knowledgeBase)
+            .resolve(Hashing.sha256Hex(StringUtils.hasText(embeddingModelName)
+                ? embeddingModelName : "default", 8));
+    }
+
+    public static String safeName(String value) {
+        var text = StringUtils.hasText(value) ? value : "default";
+        return text.toLowerCase(Locale.ROOT).replaceAll("[^a-z0-9._-]", "-");
+    }
+}
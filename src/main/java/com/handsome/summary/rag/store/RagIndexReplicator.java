@@ -0,0 +1,439 @@
+package com.handsome.summary.rag.store;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.handsome.summary.service.SettingConfigGetter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import run.halo.app.extension.Unstructured;
+
+/**
+ * 多节点部署下的索引复制。
+ *
+ * <p>{@code replicationMode} 为 {@code shared} 时，写入索引的节点在每次写入成功后把索引版本目录中的文件按 SHA-256
+ * 存入共享目录的 {@code blobs}（内容寻址，已存在的文件不再复制），再原子替换 {@code manifests/<知识库>.json}，
+ * 清单记录索引版本、递增的代次和每个文件的名称、大小与校验和。所有节点定时读取清单，代次比本地新时在临时目录中组装该版本：
+ * 本地已有且校验和相同的文件直接复用，其余文件从共享目录复制并校验，全部就绪后移入按代次命名的新目录，
+ * 再原子替换复制指针（见 {@link RagIndexPaths}）完成切换，不改名或覆盖正在使用的目录。
+ * 本地已应用的代次记录在知识库目录下的 {@code replication.json}。</p>
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class RagIndexReplicator {
+
+    public static final String MODE_SHARED = "shared";
+    private static final Duration POLL_INTERVAL = Duration.ofSeconds(30);
+    private static final Duration BLOB_GRACE_PERIOD = Duration.ofHours(1);
+    private static final String MARKER_FILE = "replication.json";
+    private static final String LUCENE_WRITE_LOCK = "write.lock";
+
+    private final ObjectMapper objectMapper = Unstructured.OBJECT_MAPPER;
+    private final RagIndexPaths ragIndexPaths;
+    private final SettingConfigGetter settingConfigGetter;
+    private final Map<Path, FileChecksum> checksums = new ConcurrentHashMap<>();
+    private volatile Disposable pollJob;
+
+    /**
+     * 共享目录中的索引清单；{@code indexVersion} 为空表示知识库索引已被清空。
+     */
+    public record Manifest(String knowledgeBase, String indexVersion, long generation,
+                           Instant publishedAt, List<FileEntry> files) {
+    }
+
+    public record FileEntry(String name, long size, String sha256) {
+    }
+
+    /**
+     * 本节点已应用的清单代次。
+     */
+    public record Applied(String indexVersion, long generation) {
+    }
+
+    private record FileChecksum(long size, long lastModified, String sha256) {
+    }
+
+    /**
+     * 发布知识库当前索引版本；未开启复制时什么都不做，发布失败只记录日志，不影响索引任务本身。
+     */
+    public Mono<Void> publish(String knowledgeBase, String indexVersion) {
+        return sharedRoot()
+            .flatMap(root -> Mono.fromRunnable(() -> publish(root, knowledgeBase, indexVersion))
+                .subscribeOn(Schedulers.boundedElastic()))
+            .onErrorResume(error -> {
+                log.warn("Failed to publish RAG index replica: kb={}, version={}",
+                    knowledgeBase, indexVersion, error);
+                return Mono.empty();
+            })
+            .then();
+    }
+
+    public void resume() {
+        var job = pollJob;
+        if (job != null && !job.isDisposed()) {
+            return;
+        }
+        pollJob = Flux.interval(Duration.ZERO, POLL_INTERVAL)
+            .onBackpressureDrop()
+            .concatMap(tick -> sharedRoot()
+                .flatMap(root -> Mono.fromRunnable(() -> pull(root))
+                    .subscribeOn(Schedulers.boundedElastic()))
+                .onErrorResume(error -> {
+                    log.warn("Failed to pull RAG index replicas", error);
+                    return Mono.empty();
+                }))
+            .subscribe();
+    }
+
+    public void dispose() {
+        var job = pollJob;
+        if (job != null) {
+            job.dispose();
+        }
+        checksums.clear();
+    }
+
+    private Mono<Path> sharedRoot() {
+        return settingConfigGetter.getRagConfig()
+            .filter(ragConfig -> MODE_SHARED.equalsIgnoreCase(
+                ragConfig.getReplicationMode() == null ? ""
+                    : ragConfig.getReplicationMode().strip()))
+            .map(SettingConfigGetter.RagConfig::getReplicationSharedPath)
+            .filter(StringUtils::hasText)
+            .map(path -> Path.of(path.strip()));
+    }
+
+    private synchronized void publish(Path root, String knowledgeBase, String indexVersion) {
+        try {
+            var files = new ArrayList<FileEntry>();
+            if (StringUtils.hasText(indexVersion)) {
+                var blobs = Files.createDirectories(root.resolve("blobs"));
+                for (var file : indexFiles(ragIndexPaths.index(knowledgeBase, indexVersion))) {
+                    var checksum = checksum(file);
+                    var blob = blobs.resolve(checksum);
+                    if (!Files.exists(blob)) {
+                        var temp = Files.createTempFile(blobs, "blob-", ".tmp");
+                        Files.copy(file, temp, StandardCopyOption.REPLACE_EXISTING);
+                        move(temp, blob);
+                    }
+                    files.add(new FileEntry(file.getFileName().toString(), Files.size(file),
+                        checksum));
+                }
+            }
+            var manifestFile = manifestFile(root, knowledgeBase);
+            var previous = readManifest(manifestFile);
+            var generation = Math.max(System.currentTimeMillis(),
+                previous == null ? 0 : previous.generation() + 1);
+            var manifest = new Manifest(knowledgeBase,
+                StringUtils.hasText(indexVersion) ? indexVersion : null, generation, Instant.now(),
+                List.copyOf(files));
+            writeJson(manifestFile, manifest);
+            writeJson(markerFile(knowledgeBase),
+                new Applied(manifest.indexVersion(), generation));
+            log.info("Published RAG index replica: kb={}, version={}, generation={}, files={}",
+                knowledgeBase, indexVersion, generation, files.size());
+            collectGarbage(root);
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to publish RAG index replica: " + knowledgeBase,
+                e);
+        }
+    }
+
+    synchronized void pull(Path root) {
+        var manifests = root.resolve("manifests");
+        if (!Files.isDirectory(manifests)) {
+            return;
+        }
+        try (var stream = Files.list(manifests)) {
+            for (var file : stream.filter(path -> path.toString().endsWith(".json")).toList()) {
+                var manifest = readManifest(file);
+                if (manifest == null || !StringUtils.hasText(manifest.knowledgeBase())) {
+                    continue;
+                }
+                var applied = readApplied(manifest.knowledgeBase());
+                if (applied != null && applied.generation() >= manifest.generation()) {
+                    continue;
+                }
+                try {
+                    apply(root, manifest);
+                } catch (IOException | RuntimeException e) {
+                    log.warn("Failed to apply RAG index replica: kb={}, version={}, generation={}",
+                        manifest.knowledgeBase(), manifest.indexVersion(), manifest.generation(), e);
+                }
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to list RAG index replica manifests", e);
+        }
+    }
+
+    private void apply(Path root, Manifest manifest) throws IOException {
+        var knowledgeBase = manifest.knowledgeBase();
+        var basePath = ragIndexPaths.knowledgeBase(knowledgeBase);
+        var retained = replicasInUse(basePath);
+        if (!StringUtils.hasText(manifest.indexVersion())) {
+            retireReplicas(basePath, null, retained);
+            writeJson(markerFile(knowledgeBase), new Applied(null, manifest.generation()));
+            log.info("Applied RAG index replica clear: kb={}, generation={}", knowledgeBase,
+                manifest.generation());
+            return;
+        }
+        var livePath = ragIndexPaths.index(knowledgeBase, manifest.indexVersion());
+        var replicaPath = ragIndexPaths.replica(knowledgeBase, manifest.indexVersion(),
+            manifest.generation());
+        var pointer = ragIndexPaths.replicaPointer(knowledgeBase, manifest.indexVersion());
+        var reused = 0;
+        if (!replicaPath.equals(livePath)) {
+            var stagingPath = ragIndexPaths.staging(knowledgeBase, manifest.indexVersion());
+            var localFiles = indexFiles(livePath).stream()
+                .collect(Collectors.toMap(path -> path.getFileName().toString(), path -> path));
+            try {
+                Files.createDirectories(stagingPath);
+                for (var entry : manifest.files()) {
+                    var staged = stagingPath.resolve(entry.name());
+                    var local = localFiles.get(entry.name());
+                    if (local != null && entry.sha256().equals(checksum(local))) {
+                        link(local, staged);
+                        reused++;
+                        continue;
+                    }
+                    Files.copy(root.resolve("blobs").resolve(entry.sha256()), staged);
+                    if (!entry.sha256().equals(checksum(staged))) {
+                        throw new IOException("Checksum mismatch for replicated file "
+                            + entry.name());
+                    }
+                }
+                install(stagingPath, replicaPath, pointer);
+            } finally {
+                deleteDirectory(stagingPath);
+            }
+        }
+        retained.add(replicaPath);
+        retireReplicas(basePath, pointer, retained);
+        writeJson(markerFile(knowledgeBase),
+            new Applied(manifest.indexVersion(), manifest.generation()));
+        log.info("Applied RAG index replica: kb={}, version={}, generation={}, files={}, "
+                + "reused={}", knowledgeBase, manifest.indexVersion(), manifest.generation(),
+            manifest.files().size(), reused);
+    }
+
+    /**
+     * 新版本先移入尚未被任何读取方使用的代次目录，再原子替换指针文件；读取方要么看到旧目录，要么看到完整的新目录。
+     */
+    private void install(Path stagingPath, Path replicaPath, Path pointer) throws IOException {
+        Files.createDirectories(replicaPath.getParent());
+        deleteDirectory(replicaPath);
+        move(stagingPath, replicaPath);
+        var temp = Files.createTempFile(pointer.getParent(), "replica-", ".tmp");
+        Files.writeString(temp, replicaPath.getFileName().toString());
+        move(temp, pointer);
+    }
+
+    /**
+     * 切换前各指针指向的复制目录，本轮保留，读取方可能刚解析到它们。
+     */
+    private Set<Path> replicasInUse(Path basePath) throws IOException {
+        var inUse = new HashSet<Path>();
+        if (!Files.isDirectory(basePath)) {
+            return inUse;
+        }
+        try (var stream = Files.list(basePath)) {
+            for (var path : stream.toList()) {
+                if (RagIndexPaths.isReplicaPointerName(path.getFileName().toString())) {
+                    var target = ragIndexPaths.replicaTarget(path);
+                    if (target != null) {
+                        inUse.add(target);
+                    }
+                }
+            }
+        }
+        return inUse;
+    }
+
+    /**
+     * 删除其他索引版本的指针，以及不再被保留的复制目录。本地写入的版本目录不在这里删除，
+     * 它们可能正被本节点的索引任务写入，由本地全量重建或清空知识库时清理。
+     */
+    private void retireReplicas(Path basePath, Path currentPointer, Set<Path> retained)
+        throws IOException {
+        if (!Files.isDirectory(basePath)) {
+            return;
+        }
+        try (var stream = Files.list(basePath)) {
+            for (var path : stream.toList()) {
+                var name = path.getFileName().toString();
+                if (RagIndexPaths.isReplicaPointerName(name) && !path.equals(currentPointer)) {
+                    Files.deleteIfExists(path);
+                } else if (RagIndexPaths.isReplicaName(name) && Files.isDirectory(path)
+                    && !retained.contains(path)) {
+                    deleteDirectory(path);
+                }
+            }
+        }
+    }
+
+    private void collectGarbage(Path root) throws IOException {
+        var manifests = root.resolve("manifests");
+        var blobs = root.resolve("blobs");
+        if (!Files.isDirectory(manifests) || !Files.isDirectory(blobs)) {
+            return;
+        }
+        Set<String> referenced;
+        try (var stream = Files.list(manifests)) {
+            referenced = stream.map(this::readManifest)
+                .filter(manifest -> manifest != null && manifest.files() != null)
+                .flatMap(manifest -> manifest.files().stream())
+                .map(FileEntry::sha256)
+                .collect(Collectors.toSet());
+        }
+        var expiredBefore = Instant.now().minus(BLOB_GRACE_PERIOD);
+        try (var stream = Files.list(blobs)) {
+            for (var blob : stream.toList()) {
+                if (referenced.contains(blob.getFileName().toString())
+                    || Files.getLastModifiedTime(blob).toInstant().isAfter(expiredBefore)) {
+                    continue;
+                }
+                Files.deleteIfExists(blob);
+            }
+        }
+    }
+
+    private List<Path> indexFiles(Path directory) throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return List.of();
+        }
+        try (var stream = Files.list(directory)) {
+            return stream.filter(Files::isRegularFile)
+                .filter(path -> !LUCENE_WRITE_LOCK.equals(path.getFileName().toString()))
+                .sorted()
+                .toList();
+        }
+    }
+
+    /**
+     * Lucene 段文件写入后不再修改，按路径、大小和修改时间缓存校验和，重复发布时不必重新读取整个索引。
+     */
+    private String checksum(Path file) throws IOException {
+        var size = Files.size(file);
+        var lastModified = Files.getLastModifiedTime(file).toMillis();
+        var key = file.toAbsolutePath();
+        var cached = checksums.get(key);
+        if (cached != null && cached.size() == size && cached.lastModified() == lastModified) {
+            return cached.sha256();
+        }
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+        var buffer = new byte[64 * 1024];
+        try (InputStream input = Files.newInputStream(file)) {
+            int read;
+            while ((read = input.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+            }
+        }
+        var sha256 = HexFormat.of().formatHex(digest.digest());
+        checksums.put(key, new FileChecksum(size, lastModified, sha256));
+        return sha256;
+    }
+
+    private Path manifestFile(Path root, String knowledgeBase) {
+        return root.resolve("manifests").resolve(RagIndexPaths.safeName(knowledgeBase) + ".json");
+    }
+
+    private Path markerFile(String knowledgeBase) {
+        return ragIndexPaths.knowledgeBase(knowledgeBase).resolve(MARKER_FILE);
+    }
+
+    private Manifest readManifest(Path file) {
+        if (!Files.isRegularFile(file)) {
+            return null;
+        }
+        try {
+            var manifest = objectMapper.readValue(file.toFile(), Manifest.class);
+            return manifest.files() == null
+                ? new Manifest(manifest.knowledgeBase(), manifest.indexVersion(),
+                    manifest.generation(), manifest.publishedAt(), List.of())
+                : manifest;
+        } catch (IOException | RuntimeException e) {
+            log.warn("Skip unreadable RAG index replica manifest: {}", file, e);
+            return null;
+        }
+    }
+
+    private Applied readApplied(String knowledgeBase) {
+        var file = markerFile(knowledgeBase);
+        if (!Files.isRegularFile(file)) {
+            return null;
+        }
+        try {
+            return objectMapper.readValue(file.toFile(), Applied.class);
+        } catch (IOException | RuntimeException e) {
+            log.debug("Ignore unreadable RAG index replica marker: {}", file, e);
+            return null;
+        }
+    }
+
+    private void writeJson(Path file, Object value) throws IOException {
+        Files.createDirectories(file.getParent());
+        var temp = Files.createTempFile(file.getParent(), "replica-", ".tmp");
+        objectMapper.writeValue(temp.toFile(), value);
+        move(temp, file);
+    }
+
+    private void deleteDirectory(Path path) throws IOException {
+        if (!Files.exists(path)) {
+            return;
+        }
+        try (var stream = Files.walk(path)) {
+            for (var item : stream.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(item);
+            }
+        }
+    }
+
+    /**
+     * 复用本地文件时优先建硬链接，文件系统不支持时退回复制。
+     */
+    private void link(Path existing, Path link) throws IOException {
+        try {
+            Files.createLink(link, existing);
+        } catch (UnsupportedOperationException | IOException e) {
+            Files.copy(existing, link, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private void move(Path source, Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.ATOMIC_MOVE,
+                StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.handsome.summary.rag.store;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.UUID;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+/**
+ * 当前 Halo 实例的节点标识。
+ *
+ * <p>首次使用时生成随机标识并保存到本地 RAG 目录的 {@code node-id}，重启后保持不变，
+ * 多实例部署时用来区分索引任务由哪个实例执行。</p>
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class RagNodeIdentity {
+
+    private static final String NODE_ID_FILE = "node-id";
+
+    private final RagIndexPaths ragIndexPaths;
+    private volatile String nodeId;
+
+    public String nodeId() {
+        var current = nodeId;
+        if (current != null) {
+            return current;
+        }
+        synchronized (this) {
+            if (nodeId == null) {
+                nodeId = loadOrCreate();
+            }
+            return nodeId;
+        }
+    }
+
+    private String loadOrCreate() {
+        var file = ragIndexPaths.root().resolve(NODE_ID_FILE);
+        try {
+            if (Files.exists(file)) {
+                var stored = Files.readString(file).strip();
+                if (StringUtils.hasText(stored)) {
+                    return stored;
+                }
+            }
+            var created = UUID.randomUUID().toString();
+            Files.createDirectories(file.getParent());
+            Files.writeString(file, created);
+            log.info("Created RAG node id: nodeId={}", created);
+            return created;
+        } catch (IOException e) {
+            var fallback = UUID.randomUUID().toString();
+            log.warn("Failed to persist RAG node id, using a process-local id: file={}, nodeId={}",
+                file, fallback, e);
+            return fallback;
+        }
+    }
+}
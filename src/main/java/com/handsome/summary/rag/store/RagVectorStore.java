@@ -2,7 +2,9 @@ package com.handsome.summary.rag.store;
 
 import com.handsome.summary.rag.model.RagIndexedChunk;
 import com.handsome.summary.rag.model.RagSearchResult;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import reactor.core.publisher.Mono;
 
 public interface RagVectorStore {
@@ -19,4 +21,10 @@ public interface RagVectorStore {
 
     Mono<List<RagSearchResult>> keywordSearch(String knowledgeBase, String indexVersion,
         String query, int topK);
+
+    /**
+     * 按分块 ID 读取索引中已存储的向量，找不到的分块不会出现在结果中。
+     */
+    Mono<Map<String, float[]>> loadVectors(String knowledgeBase, String indexVersion,
+        Collection<String> chunkIds);
 }
@@ -1,10 +1,9 @@
 package com.handsome.summary.service;
 
 import com.handsome.summary.agent.model.AgentAccessMode;
+import com.handsome.summary.support.Hashing;
 import java.net.InetSocketAddress;
 import java.net.URI;
-import java.nio.charset.StandardCharsets;
-import java.security.MessageDigest;
 import java.security.Principal;
 import java.time.Duration;
 import java.util.ArrayList;
@@ -269,13 +268,8 @@ public class AiRequestSecurityService {
     }
 
     private String digest(String value) {
-        try {
-            var messageDigest = MessageDigest.getInstance("SHA-256");
-            var hash = messageDigest.digest(value.getBytes(StandardCharsets.UTF_8));
-            return Base64.getUrlEncoder().withoutPadding().encodeToString(hash).substring(0, 22);
-        } catch (Exception e) {
-            throw new IllegalStateException("Failed to build AI request limiter key", e);
-        }
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(Hashing.sha256(value))
+            .substring(0, 22);
     }
 
     private static final class WindowCounter {
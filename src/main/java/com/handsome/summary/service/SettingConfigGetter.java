@@ -327,7 +327,20 @@ public interface SettingConfigGetter {
         private Boolean enableRag = true;
         private Integer chunkSize = 900;
         private Integer chunkOverlap = 120;
+        private String chunkStrategy = "paragraph";
+        private Boolean enableNearDuplicateReuse = false;
         private Integer indexDocumentBatchSize = 8;
+        private Integer importConcurrency = 4;
+        private Integer indexMaxConcurrentTasks = 2;
+        private Integer indexMaxTasksPerModel;
+        private Boolean indexPreemptFullRebuild = false;
+        private Integer indexTaskHistoryLimit = 50;
+        private Integer indexTaskFailedRetentionDays = 30;
+        private String replicationMode = "none";
+        private String replicationSharedPath = "";
+        private Boolean autoSyncPosts = false;
+        private String autoSyncKnowledgeBase = "default";
+        private Integer autoSyncDebounceSeconds = 30;
         private Integer embeddingBatchSize = 1;
         private Integer embeddingParallelCalls = 1;
         private Integer embeddingMaxRetries = 0;
@@ -337,10 +350,18 @@ public interface SettingConfigGetter {
         private Integer keywordTopK = 20;
         private Integer rerankTopN = 8;
         private Integer maxContextCharacters = 12000;
+        private Integer maxContextTokens = 6000;
         private Integer conversationMaxMessages = 12;
         private Integer conversationMaxContextCharacters = 4000;
         private Boolean enableHybridSearch = true;
         private Boolean enableRerank = true;
+        private Double rerankSkipMargin = 0.1d;
+        private Integer rerankMaxCandidateChars = 1200;
+        private Integer rerankTimeoutMillis = 3000;
+        private Boolean enableAnswerCache = false;
+        private Double answerCacheSimilarity = 0.95d;
+        private Integer answerCacheTtlMinutes = 60;
+        private Integer answerCacheMaxEntries = 500;
 
         public Integer getEmbeddingBatchSize() {
             return embeddingCallSetting != null
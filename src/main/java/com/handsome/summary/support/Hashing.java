@@ -0,0 +1,150 @@
+package com.handsome.summary.support;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * 插件内共用的哈希工具。
+ *
+ * <p>{@link #fingerprint(CharSequence)} 是 128 位 MurmurHash3（x64 变体）非加密哈希，直接按 UTF-16 字符计算，
+ * 只用于判断内容是否变化；资源名称、索引版本等需要长期稳定且抗碰撞的场景使用 {@link #sha256Hex(String)}，
+ * 摘要实例按线程复用。</p>
+ */
+public final class Hashing {
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+    private static final long C1 = 0x87c37b91114253d5L;
+    private static final long C2 = 0x4cf5ad432745937fL;
+    private static final ThreadLocal<MessageDigest> SHA_256 = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    });
+
+    private Hashing() {
+    }
+
+    public static byte[] sha256(String value) {
+        var digest = SHA_256.get();
+        digest.reset();
+        return digest.digest(defaultString(value).getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static String sha256Hex(String value) {
+        return hex(sha256(value));
+    }
+
+    /**
+     * 返回前 {@code length} 个字节的十六进制表示，常用于截取短名称。
+     */
+    public static String sha256Hex(String value, int length) {
+        var bytes = sha256(value);
+        return hex(bytes, Math.min(Math.max(length, 0), bytes.length));
+    }
+
+    public static String hex(byte[] bytes) {
+        return hex(bytes, bytes.length);
+    }
+
+    public static String hex(byte[] bytes, int length) {
+        var chars = new char[length * 2];
+        for (var i = 0; i < length; i++) {
+            var value = bytes[i] & 0xff;
+            chars[i * 2] = HEX[value >>> 4];
+            chars[i * 2 + 1] = HEX[value & 0x0f];
+        }
+        return new String(chars);
+    }
+
+    /**
+     * 对文本的 UTF-16LE 编码计算 MurmurHash3 x64 128，返回 32 位十六进制字符串。
+     */
+    public static String fingerprint(CharSequence value) {
+        var text = value == null ? "" : value;
+        var length = text.length();
+        long h1 = 0;
+        long h2 = 0;
+        var blocks = length / 8;
+        for (var block = 0; block < blocks; block++) {
+            var offset = block * 8;
+            var k1 = pack(text, offset, 4);
+            var k2 = pack(text, offset + 4, 4);
+
+            h1 ^= mixK1(k1);
+            h1 = Long.rotateLeft(h1, 27);
+            h1 += h2;
+            h1 = h1 * 5 + 0x52dce729;
+
+            h2 ^= mixK2(k2);
+            h2 = Long.rotateLeft(h2, 31);
+            h2 += h1;
+            h2 = h2 * 5 + 0x38495ab5;
+        }
+        var tailOffset = blocks * 8;
+        var tail = length - tailOffset;
+        if (tail > 4) {
+            h2 ^= mixK2(pack(text, tailOffset + 4, tail - 4));
+        }
+        if (tail > 0) {
+            h1 ^= mixK1(pack(text, tailOffset, Math.min(tail, 4)));
+        }
+
+        var byteLength = (long) length * 2;
+        h1 ^= byteLength;
+        h2 ^= byteLength;
+        h1 += h2;
+        h2 += h1;
+        h1 = fmix(h1);
+        h2 = fmix(h2);
+        h1 += h2;
+        h2 += h1;
+
+        var chars = new char[32];
+        writeHex(chars, 0, h1);
+        writeHex(chars, 16, h2);
+        return new String(chars);
+    }
+
+    private static long pack(CharSequence text, int offset, int count) {
+        long value = 0;
+        for (var i = 0; i < count; i++) {
+            value |= (long) text.charAt(offset + i) << (16 * i);
+        }
+        return value;
+    }
+
+    private static long mixK1(long k1) {
+        k1 *= C1;
+        k1 = Long.rotateLeft(k1, 31);
+        return k1 * C2;
+    }
+
+    private static long mixK2(long k2) {
+        k2 *= C2;
+        k2 = Long.rotateLeft(k2, 33);
+        return k2 * C1;
+    }
+
+    private static long fmix(long k) {
+        k ^= k >>> 33;
+        k *= 0xff51afd7ed558ccdL;
+        k ^= k >>> 33;
+        k *= 0xc4ceb9fe1a85ec53L;
+        k ^= k >>> 33;
+        return k;
+    }
+
+    private static void writeHex(char[] chars, int offset, long value) {
+        for (var i = 15; i >= 0; i--) {
+            chars[offset + i] = HEX[(int) (value & 0x0f)];
+            value >>>= 4;
+        }
+    }
+
+    private static String defaultString(String value) {
+        return value == null ? "" : value;
+    }
+}
@@ -0,0 +1,203 @@
+package com.handsome.summary.rag.service.impl;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.regex.Pattern;
+import org.jsoup.Jsoup;
+import org.junit.jupiter.api.Test;
+
+/**
+ * 单次遍历的正文规整和游标分块与原先基于正则、{@code split} 的实现逐字比较。
+ */
+class DefaultRagContentServiceTest {
+
+    private static final Pattern HTML_PATTERN = Pattern.compile("<[a-zA-Z][\\s\\S]*>");
+    private static final Pattern WHITESPACE_PATTERN = Pattern.compile("[\\t\\x0B\\f\\r ]+");
+    private static final Pattern BLANK_LINES_PATTERN = Pattern.compile("\\n{3,}");
+    private static final char[] ALPHABET = {
+        'a', 'b', 'Z', '1', '.', '中', '文', '。', '<', '>', '/', '&', ' ', ' ', '\t', '\n', '\n',
+        '\r', '\u000B', '\f', '\u00A0', '\u2003', '\u3000', '\u001C', '\uD83D', '\uDE00'
+    };
+
+    private final DefaultRagContentService service = new DefaultRagContentService();
+
+    @Test
+    void looksLikeHtmlMatchesRegexFind() {
+        var random = new Random(31);
+        for (var i = 0; i < 20_000; i++) {
+            var text = randomText(random, random.nextInt(24));
+            assertEquals(HTML_PATTERN.matcher(text).find(),
+                DefaultRagContentService.looksLikeHtml(text), () -> "input: " + escape(text));
+        }
+        assertTrue(DefaultRagContentService.looksLikeHtml("前文<p>段落</p>"));
+        assertTrue(DefaultRagContentService.looksLikeHtml("<a>"));
+        assertFalse(DefaultRagContentService.looksLikeHtml("<a"));
+        assertFalse(DefaultRagContentService.looksLikeHtml("1 < 2 > 0"));
+        assertFalse(DefaultRagContentService.looksLikeHtml("<>"));
+    }
+
+    @Test
+    void collapseWhitespaceMatchesRegexPipeline() {
+        var random = new Random(32);
+        for (var i = 0; i < 20_000; i++) {
+            var text = randomText(random, random.nextInt(40));
+            assertEquals(legacyCollapse(text), DefaultRagContentService.collapseWhitespace(text),
+                () -> "input: " + escape(text));
+        }
+    }
+
+    @Test
+    void normalizeMatchesLegacyImplementation() {
+        var random = new Random(33);
+        for (var i = 0; i < 5_000; i++) {
+            var text = randomText(random, random.nextInt(60));
+            assertEquals(legacyNormalize(text), service.normalize(text),
+                () -> "input: " + escape(text));
+        }
+        var html = "<div><p>第一段  内容</p><script>var a = 1;</script>"
+            + "<p>  second   paragraph </p></div>";
+        assertEquals(legacyNormalize(html), service.normalize(html));
+    }
+
+    @Test
+    void splitMatchesLegacySplit() {
+        var random = new Random(35);
+        for (var i = 0; i < 2_000; i++) {
+            var content = randomDocument(random);
+            var title = random.nextBoolean() ? "标题 " + i : (random.nextBoolean() ? "" : null);
+            var chunkSize = 200 + random.nextInt(400);
+            var overlap = random.nextInt(chunkSize);
+            assertEquals(legacySplit(title, content, chunkSize, overlap),
+                service.split(title, content, chunkSize, overlap),
+                () -> "chunkSize=" + chunkSize + " overlap=" + overlap + " input: "
+                    + escape(content));
+        }
+    }
+
+    @Test
+    void splitClampsChunkSizeLikeLegacySplit() {
+        var content = "段".repeat(5_000);
+        assertEquals(legacySplit("t", content, 10, 500), service.split("t", content, 10, 500));
+        assertEquals(legacySplit("t", content, 9_000, 0), service.split("t", content, 9_000, 0));
+        assertEquals(List.of(), service.split("t", " \n\t ", 300, 20));
+    }
+
+    private static String randomText(Random random, int length) {
+        var builder = new StringBuilder(length);
+        for (var i = 0; i < length; i++) {
+            builder.append(ALPHABET[random.nextInt(ALPHABET.length)]);
+        }
+        return builder.toString();
+    }
+
+    private static String randomDocument(Random random) {
+        var builder = new StringBuilder();
+        var paragraphs = random.nextInt(12);
+        for (var i = 0; i < paragraphs; i++) {
+            var length = random.nextInt(10) == 0 ? 600 + random.nextInt(1_200)
+                : random.nextInt(260);
+            for (var j = 0; j < length; j++) {
+                var roll = random.nextInt(20);
+                builder.append(roll == 0 ? ' ' : roll == 1 ? '\t' : roll == 2 ? '。'
+                    : (char) ('a' + random.nextInt(26)));
+            }
+            builder.append(random.nextInt(4) == 0 ? "\n \n\n" : "\n");
+        }
+        return builder.toString();
+    }
+
+    private static String legacyCollapse(String text) {
+        text = text.replace('\u00A0', ' ');
+        text = WHITESPACE_PATTERN.matcher(text).replaceAll(" ");
+        text = text.lines()
+            .map(String::strip)
+            .filter(line -> !line.isEmpty())
+            .reduce((left, right) -> left + "\n" + right)
+            .orElse("");
+        return BLANK_LINES_PATTERN.matcher(text).replaceAll("\n\n").strip();
+    }
+
+    private static String legacyNormalize(String content) {
+        if (content == null || content.isBlank()) {
+            return "";
+        }
+        var text = content;
+        if (HTML_PATTERN.matcher(text).find()) {
+            var document = Jsoup.parse(text);
+            document.select("script,style,noscript,iframe,svg,canvas,form,input,button").remove();
+            text = document.body() != null ? document.body().text() : document.text();
+        }
+        return legacyCollapse(text);
+    }
+
+    private static List<String> legacySplit(String title, String content, int chunkSize,
+        int chunkOverlap) {
+        var normalizedContent = legacyNormalize(content);
+        if (normalizedContent.isBlank()) {
+            return List.of();
+        }
+        var safeChunkSize = Math.min(Math.max(chunkSize, 200), 3000);
+        var safeOverlap = Math.min(Math.max(chunkOverlap, 0), safeChunkSize / 2);
+        var prefix = title != null && !title.isBlank() ? "标题：" + title.strip() + "\n\n" : "";
+        var chunks = new ArrayList<String>();
+        var current = new StringBuilder();
+        for (var paragraph : normalizedContent.split("\\n+")) {
+            var cleanParagraph = paragraph.strip();
+            if (cleanParagraph.isEmpty()) {
+                continue;
+            }
+            if (cleanParagraph.length() > safeChunkSize) {
+                legacyFlush(chunks, prefix, current);
+                var start = 0;
+                while (start < cleanParagraph.length()) {
+                    var end = Math.min(start + safeChunkSize, cleanParagraph.length());
+                    var chunk = cleanParagraph.substring(start, end).strip();
+                    if (!chunk.isBlank()) {
+                        chunks.add((prefix + chunk).strip());
+                    }
+                    if (end >= cleanParagraph.length()) {
+                        break;
+                    }
+                    start = Math.max(end - safeOverlap, start + 1);
+                }
+                continue;
+            }
+            if (current.length() > 0
+                && current.length() + cleanParagraph.length() + 1 > safeChunkSize) {
+                legacyFlush(chunks, prefix, current);
+            }
+            if (current.length() > 0) {
+                current.append('\n');
+            }
+            current.append(cleanParagraph);
+        }
+        legacyFlush(chunks, prefix, current);
+        return chunks;
+    }
+
+    private static void legacyFlush(List<String> chunks, String prefix, StringBuilder current) {
+        if (current.isEmpty()) {
+            return;
+        }
+        chunks.add((prefix + current).strip());
+        current.setLength(0);
+    }
+
+    private static String escape(String text) {
+        var builder = new StringBuilder();
+        for (var i = 0; i < text.length(); i++) {
+            var ch = text.charAt(i);
+            if (ch < 0x20 || ch > 0x7e) {
+                builder.append(String.format("\\u%04X", (int) ch));
+            } else {
+                builder.append(ch);
+            }
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,224 @@
+package com.handsome.summary.rag.service.impl;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.handsome.summary.rag.model.RagChunkStrategy;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+/**
+ * 用固定语料和“问题 → 应命中的句子”比较两种分块策略的召回效果。
+ *
+ * <p>两种策略都经过 {@link DefaultRagContentService#chunks} 和 {@code embeddingText} 得到索引文本，
+ * 再用与关键词检索相同的 CJK 二元切词加 BM25 排序。第一名分块完整包含预期句子才算命中：
+ * 句子被切断时，即使排在第一，也拿不到完整答案。</p>
+ */
+class RagChunkStrategyRetrievalTest {
+
+    private static final int CHUNK_SIZE = 200;
+    private static final int CHUNK_OVERLAP = 40;
+
+    private static final List<Document> CORPUS = List.of(
+        new Document("RAG 索引任务调度",
+            "所有知识库的索引任务进入同一个调度队列，插件按优先级依次启动任务。"
+                + "只包含一篇文档的增量索引优先执行，例如编辑单篇文章后的自动同步。"
+                + "包含多篇文档的增量索引其次，全量重建排在最后。"
+                + "同一优先级按入队顺序执行，任务每等待五分钟提升一级，避免全量重建被持续到来的增量任务一直推迟。"
+                + "开启优先任务抢占后，排不上的增量任务会让尚未进入写索引阶段的全量重建让出执行槽位。"
+                + "被抢占的全量重建保留原来的排队顺序，稍后从头执行，同一个任务最多被抢占两次。"
+                + "任务记录会保留最近五十条，失败的任务记录默认保存三十天后自动清理。"),
+        new Document("Embedding 调用与重试",
+            "生成向量时，插件把待处理的分块按批次发送给 Embedding 模型，每批数量由批次大小控制。"
+                + "请求失败时按指数退避重试，最多重试三次，超过次数后整个索引任务标记为失败。"
+                + "供应商返回限流错误时，插件会读取响应头中的等待时间，等待结束后再继续发送剩余批次。"
+                + "已经生成的向量会写入本地检查点，任务失败后重新执行时直接复用检查点，不再重复调用模型。"
+                + "切换 Embedding 模型或修改向量维度后，检查点失效，下一次索引会自动全量重建。"
+                + "检查点文件保存在插件数据目录下，删除知识库时一并清理。"),
+        new Document("Keyword search and caching",
+            "Keyword search runs against the local Lucene index of each knowledge base. "
+                + "The query is analyzed with the same CJK analyzer that was used at index time, "
+                + "so Chinese text is matched by overlapping character bigrams. "
+                + "Search results are cached per knowledge base for ten minutes. "
+                + "The cache is evicted whenever a rebuild or an incremental index finishes, "
+                + "so answers never mix chunks from two index versions. "
+                + "Answer caching is disabled by default because prompts often contain user specific context. "
+                + "When it is enabled, the cache key includes the model name and the full prompt."),
+        new Document("多节点部署",
+            "多个 Halo 节点共用同一个数据库时，每个索引任务记录创建或接手它的节点以及租约到期时间。"
+                + "节点在写入进度时顺带续约，并每三十秒为本节点排队中和执行中的任务续约一次，租约时长两分钟。"
+                + "插件启动时只恢复本节点的任务，以及租约已经过期的其他节点任务。"
+                + "接手前先写入新的归属，多个节点同时接手时只有一个写入成功，其余节点放弃该任务。"
+                + "索引文件可以通过共享目录复制，发布节点写入清单后，其他节点按清单校验文件再切换到新版本。"
+                + "长时间没有进展的任务不会被恢复，而是按超时标记失败。"),
+        new Document("正文清洗",
+            "导入文章时，插件先把编辑器保存的 HTML 转为纯文本，移除脚本、样式、表单和内嵌框架等元素。\n"
+                + "连续的空白字符会合并为一个空格，每行首尾空白会被去掉，空行会被删除。\n"
+                + "清洗后的正文用于分块和计算内容指纹，内容指纹没有变化的文档在增量索引时会被跳过。\n"
+                + "文档标题只在生成 Embedding 时拼接到分块前，不会重复存入每个分块正文。")
+    );
+
+    private static final List<Query> QUERIES = List.of(
+        new Query("任务等待多久提升优先级",
+            "同一优先级按入队顺序执行，任务每等待五分钟提升一级，避免全量重建被持续到来的增量任务一直推迟。"),
+        new Query("全量重建最多被抢占几次",
+            "被抢占的全量重建保留原来的排队顺序，稍后从头执行，同一个任务最多被抢占两次。"),
+        new Query("失败的任务记录保存多久",
+            "任务记录会保留最近五十条，失败的任务记录默认保存三十天后自动清理。"),
+        new Query("Embedding 请求失败会重试几次",
+            "请求失败时按指数退避重试，最多重试三次，超过次数后整个索引任务标记为失败。"),
+        new Query("遇到供应商限流怎么办",
+            "供应商返回限流错误时，插件会读取响应头中的等待时间，等待结束后再继续发送剩余批次。"),
+        new Query("切换 Embedding 模型后检查点还能用吗",
+            "切换 Embedding 模型或修改向量维度后，检查点失效，下一次索引会自动全量重建。"),
+        new Query("how long are search results cached",
+            "Search results are cached per knowledge base for ten minutes."),
+        new Query("what is included in the answer cache key",
+            "When it is enabled, the cache key includes the model name and the full prompt."),
+        new Query("租约时长和续约间隔是多少",
+            "节点在写入进度时顺带续约，并每三十秒为本节点排队中和执行中的任务续约一次，租约时长两分钟。"),
+        new Query("多个节点同时接手任务会怎样",
+            "接手前先写入新的归属，多个节点同时接手时只有一个写入成功，其余节点放弃该任务。"),
+        new Query("内容指纹没有变化的文档会怎样",
+            "清洗后的正文用于分块和计算内容指纹，内容指纹没有变化的文档在增量索引时会被跳过。")
+    );
+
+    private final DefaultRagContentService service = new DefaultRagContentService();
+
+    @Test
+    void sentenceChunksRetrieveAtLeastAsManyCompleteAnswers() {
+        var paragraphHits = hits(RagChunkStrategy.PARAGRAPH);
+        var sentenceHits = hits(RagChunkStrategy.SENTENCE);
+
+        assertEquals(QUERIES.size(), sentenceHits,
+            () -> "sentence hits " + sentenceHits + "/" + QUERIES.size());
+        assertTrue(sentenceHits >= paragraphHits,
+            () -> "sentence " + sentenceHits + " < paragraph " + paragraphHits);
+    }
+
+    @Test
+    void everyExpectedSentenceIsInTheCorpus() {
+        for (var query : QUERIES) {
+            assertTrue(CORPUS.stream().anyMatch(document ->
+                service.normalize(document.content()).contains(query.expected())), query::text);
+        }
+    }
+
+    private int hits(RagChunkStrategy strategy) {
+        var chunks = new ArrayList<String>();
+        for (var document : CORPUS) {
+            var documentChunks = service.chunks(document.content(), CHUNK_SIZE, CHUNK_OVERLAP,
+                    strategy)
+                .map(chunk -> service.embeddingText(document.title(), chunk))
+                .collectList()
+                .block();
+            chunks.addAll(documentChunks);
+        }
+        var index = new Bm25(chunks);
+        var hits = 0;
+        for (var query : QUERIES) {
+            if (chunks.get(index.top(query.text())).contains(query.expected())) {
+                hits++;
+            }
+        }
+        return hits;
+    }
+
+    /**
+     * 与 Lucene {@code CJKAnalyzer} 相同的切词方式：连续汉字切成相邻二元组，拉丁字母和数字按单词小写。
+     */
+    private static List<String> terms(String text) {
+        var terms = new ArrayList<String>();
+        var word = new StringBuilder();
+        char previousCjk = 0;
+        for (var i = 0; i < text.length(); i++) {
+            var c = text.charAt(i);
+            if (Character.UnicodeScript.of(c) == Character.UnicodeScript.HAN) {
+                flushWord(terms, word);
+                if (previousCjk != 0) {
+                    terms.add("" + previousCjk + c);
+                }
+                previousCjk = c;
+                continue;
+            }
+            previousCjk = 0;
+            if (Character.isLetterOrDigit(c)) {
+                word.append(Character.toLowerCase(c));
+            } else {
+                flushWord(terms, word);
+            }
+        }
+        flushWord(terms, word);
+        return terms;
+    }
+
+    private static void flushWord(List<String> terms, StringBuilder word) {
+        if (!word.isEmpty()) {
+            terms.add(word.toString().toLowerCase(Locale.ROOT));
+            word.setLength(0);
+        }
+    }
+
+    private static final class Bm25 {
+        private static final double K1 = 1.2;
+        private static final double B = 0.75;
+
+        private final List<Map<String, Integer>> frequencies = new ArrayList<>();
+        private final Map<String, Integer> documentFrequencies = new HashMap<>();
+        private final double averageLength;
+
+        private Bm25(List<String> chunks) {
+            var totalLength = 0;
+            for (var chunk : chunks) {
+                var counts = new HashMap<String, Integer>();
+                var chunkTerms = terms(chunk);
+                chunkTerms.forEach(term -> counts.merge(term, 1, Integer::sum));
+                counts.keySet().forEach(term -> documentFrequencies.merge(term, 1, Integer::sum));
+                frequencies.add(counts);
+                totalLength += chunkTerms.size();
+            }
+            averageLength = (double) totalLength / chunks.size();
+        }
+
+        private int top(String query) {
+            var queryTerms = terms(query);
+            var best = 0;
+            var bestScore = Double.NEGATIVE_INFINITY;
+            for (var i = 0; i < frequencies.size(); i++) {
+                var score = score(frequencies.get(i), queryTerms);
+                if (score > bestScore) {
+                    best = i;
+                    bestScore = score;
+                }
+            }
+            return best;
+        }
+
+        private double score(Map<String, Integer> counts, List<String> queryTerms) {
+            var length = counts.values().stream().mapToInt(Integer::intValue).sum();
+            var score = 0.0;
+            for (var term : queryTerms) {
+                var frequency = counts.getOrDefault(term, 0);
+                if (frequency == 0) {
+                    continue;
+                }
+                var documentFrequency = documentFrequencies.get(term);
+                var idf = Math.log(1 + (frequencies.size() - documentFrequency + 0.5)
+                    / (documentFrequency + 0.5));
+                score += idf * frequency * (K1 + 1)
+                    / (frequency + K1 * (1 - B + B * length / averageLength));
+            }
+            return score;
+        }
+    }
+
+    private record Document(String title, String content) {
+    }
+
+    private record Query(String text, String expected) {
+    }
+}
@@ -0,0 +1,118 @@
+package com.handsome.summary.rag.service.support;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.handsome.summary.rag.model.RagContentChunk;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+class RagSentenceChunkerTest {
+
+    @Test
+    void keepsDecimalsAndUrlsInsideSentences() {
+        var text = "Pi is 3.14 today. See example.com now! 好的。";
+
+        assertEquals(List.of("Pi is 3.14 today.", "See example.com now!", "好的。"),
+            texts(text, 20, 0));
+    }
+
+    @Test
+    void keepsClosingQuotesWithTheirSentence() {
+        var text = "他说：“好。”然后离开。";
+
+        assertEquals(List.of("他说：“好。”", "然后离开。"), texts(text, 8, 0));
+    }
+
+    @Test
+    void keepsCodeFenceAsOneUnit() {
+        var code = "```java\nint a = 1; int b = 2.\nreturn a.\n```";
+        var text = "介绍。\n" + code + "\n结尾。";
+
+        assertEquals(List.of("介绍。", code, "结尾。"), texts(text, code.length() + 2, 0));
+    }
+
+    @Test
+    void unterminatedCodeFenceRunsToTheEnd() {
+        var text = "介绍。\n```\nfoo. bar.\nbaz.";
+
+        assertEquals(List.of("介绍。", "```\nfoo. bar.\nbaz."), texts(text, 18, 0));
+    }
+
+    @Test
+    void keepsListItemsWhole() {
+        var text = "- 第一项。还有说明。\n- 第二项。\n1. First item. More.";
+
+        assertEquals(List.of("- 第一项。还有说明。\n- 第二项。", "1. First item. More."),
+            texts(text, 20, 0));
+    }
+
+    @Test
+    void overlapCarriesWholeTrailingSentences() {
+        var text = "甲甲甲甲甲。乙乙乙乙乙。丙丙丙丙丙。丁丁丁丁丁。";
+
+        assertEquals(List.of("甲甲甲甲甲。乙乙乙乙乙。", "乙乙乙乙乙。丙丙丙丙丙。", "丙丙丙丙丙。丁丁丁丁丁。"),
+            texts(text, 13, 6));
+    }
+
+    @Test
+    void overlapIsCappedAtHalfTheChunkSize() {
+        var text = "甲甲甲甲甲。乙乙乙乙乙。丙丙丙丙丙。丁丁丁丁丁。";
+
+        assertEquals(texts(text, 13, 6), texts(text, 13, 100));
+        assertEquals(List.of("甲甲甲甲甲。乙乙乙乙乙。", "丙丙丙丙丙。丁丁丁丁丁。"), texts(text, 13, 5));
+    }
+
+    @Test
+    void overlapSkipsSentencesLongerThanTheCap() {
+        var text = "甲甲。乙乙乙乙乙乙乙乙乙。丙丙。";
+
+        var chunks = texts(text, 14, 7);
+
+        assertEquals(List.of("甲甲。乙乙乙乙乙乙乙乙乙。", "丙丙。"), chunks);
+    }
+
+    @Test
+    void longUnitFallsBackToFixedWindows() {
+        var chunks = chunks("x".repeat(25), 10, 3);
+
+        assertEquals(List.of(0, 7, 14, 21), chunks.stream().map(RagContentChunk::getStartOffset)
+            .toList());
+        assertEquals(List.of(10, 17, 24, 25), chunks.stream().map(RagContentChunk::getEndOffset)
+            .toList());
+    }
+
+    @Test
+    void offsetsPointIntoTheText() {
+        var random = new Random(33);
+        var pieces = new String[] {"句子。", "Sentence. ", "3.14 ", "“引号。”", "\n", "\n- 项目 ",
+            "\n```\ncode.\n```\n", "长长长长长长长长长长长长", " "};
+        for (var round = 0; round < 500; round++) {
+            var builder = new StringBuilder();
+            for (var i = random.nextInt(40); i > 0; i--) {
+                builder.append(pieces[random.nextInt(pieces.length)]);
+            }
+            var text = builder.toString();
+            var chunkSize = 10 + random.nextInt(60);
+            var index = 0;
+            for (var chunk : chunks(text, chunkSize, random.nextInt(chunkSize))) {
+                assertEquals(index++, chunk.getIndex());
+                assertEquals(text.substring(chunk.getStartOffset(), chunk.getEndOffset()),
+                    chunk.getText());
+                assertTrue(chunk.getText().length() <= chunkSize, () -> "chunk too long: " + chunk);
+            }
+        }
+    }
+
+    private static List<RagContentChunk> chunks(String text, int chunkSize, int chunkOverlap) {
+        var chunks = new ArrayList<RagContentChunk>();
+        RagSentenceChunker.iterator(text, chunkSize, chunkOverlap).forEachRemaining(chunks::add);
+        return chunks;
+    }
+
+    private static List<String> texts(String text, int chunkSize, int chunkOverlap) {
+        return chunks(text, chunkSize, chunkOverlap).stream().map(RagContentChunk::getText).toList();
+    }
+}
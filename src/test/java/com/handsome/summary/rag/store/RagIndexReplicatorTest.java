@@ -0,0 +1,168 @@
+package com.handsome.summary.rag.store;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.handsome.summary.rag.model.RagIndexedChunk;
+import com.handsome.summary.rag.model.RagSearchResult;
+import com.handsome.summary.service.SettingConfigGetter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import reactor.core.publisher.Mono;
+import run.halo.app.extension.Unstructured;
+import run.halo.app.plugin.PluginsRootGetter;
+
+/**
+ * 两个节点各自使用独立的本地目录，通过同一个共享目录复制索引：节点 1 写入并发布，节点 2 拉取后检索。
+ */
+class RagIndexReplicatorTest {
+
+    private static final String KNOWLEDGE_BASE = "docs";
+    private static final String INDEX_VERSION = "v1";
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void pulledReplicaMatchesPublishedIndex() throws Exception {
+        var shared = tempDir.resolve("shared");
+        var node1 = new Node(tempDir.resolve("node1"), shared);
+        var node2 = new Node(tempDir.resolve("node2"), shared);
+
+        node1.store.rebuild(KNOWLEDGE_BASE, INDEX_VERSION, List.of(
+            chunk("a-0", "a", "Lucene 索引复制测试", 1, 0, 0),
+            chunk("b-0", "b", "Halo 插件说明", 0, 1, 0))).block();
+        node2.replicator.pull(shared);
+
+        var manifest = readManifest(shared);
+        assertEquals(INDEX_VERSION, manifest.indexVersion());
+        assertEquals(manifest.generation(), node2.applied().generation());
+        assertEquals(INDEX_VERSION, node2.applied().indexVersion());
+        var live = node2.paths.index(KNOWLEDGE_BASE, INDEX_VERSION);
+        assertEquals(node2.paths.replica(KNOWLEDGE_BASE, INDEX_VERSION, manifest.generation()),
+            live);
+        assertEquals(checksums(node1.paths.index(KNOWLEDGE_BASE, INDEX_VERSION)),
+            checksums(live));
+        assertEquals(manifest.files().stream().collect(Collectors.toMap(
+            RagIndexReplicator.FileEntry::name, RagIndexReplicator.FileEntry::sha256)),
+            checksums(live));
+
+        var keywordHits = node2.store.keywordSearch(KNOWLEDGE_BASE, INDEX_VERSION, "复制", 5)
+            .block();
+        assertEquals(List.of("a"), documentNames(keywordHits));
+        var vectorHits = node2.store.vectorSearch(KNOWLEDGE_BASE, INDEX_VERSION,
+            new float[] {0, 1, 0}, 1).block();
+        assertEquals(List.of("b"), documentNames(vectorHits));
+    }
+
+    @Test
+    void newGenerationSwitchesPointerWithoutTouchingLiveDirectory() throws Exception {
+        var shared = tempDir.resolve("shared");
+        var node1 = new Node(tempDir.resolve("node1"), shared);
+        var node2 = new Node(tempDir.resolve("node2"), shared);
+        node1.store.rebuild(KNOWLEDGE_BASE, INDEX_VERSION, List.of(
+            chunk("a-0", "a", "第一篇文档", 1, 0, 0))).block();
+        node2.replicator.pull(shared);
+        var first = node2.paths.index(KNOWLEDGE_BASE, INDEX_VERSION);
+        var firstChecksums = checksums(first);
+
+        node1.store.replaceDocuments(KNOWLEDGE_BASE, INDEX_VERSION, List.of("c"),
+            List.of(chunk("c-0", "c", "第二次发布新增", 0, 0, 1))).block();
+        node2.replicator.pull(shared);
+
+        var second = node2.paths.index(KNOWLEDGE_BASE, INDEX_VERSION);
+        assertNotEquals(first, second);
+        assertEquals(firstChecksums, checksums(first));
+        assertEquals(checksums(node1.paths.index(KNOWLEDGE_BASE, INDEX_VERSION)),
+            checksums(second));
+        assertEquals(readManifest(shared).generation(), node2.applied().generation());
+        assertEquals(List.of("c"), documentNames(node2.store.vectorSearch(KNOWLEDGE_BASE,
+            INDEX_VERSION, new float[] {0, 0, 1}, 1).block()));
+
+        node1.store.replaceDocuments(KNOWLEDGE_BASE, INDEX_VERSION, List.of("c"), List.of())
+            .block();
+        node2.replicator.pull(shared);
+
+        assertFalse(Files.exists(first));
+        assertTrue(Files.isDirectory(second));
+        assertEquals(List.of("a"), documentNames(node2.store.vectorSearch(KNOWLEDGE_BASE,
+            INDEX_VERSION, new float[] {0, 0, 1}, 1).block()));
+    }
+
+    private static RagIndexedChunk chunk(String id, String documentName, String content,
+        float... vector) {
+        return RagIndexedChunk.builder()
+            .id(id)
+            .knowledgeBase(KNOWLEDGE_BASE)
+            .documentName(documentName)
+            .sourceType("DOCUMENT")
+            .title(content)
+            .content(content)
+            .tags(List.of())
+            .categories(List.of())
+            .vector(vector)
+            .build();
+    }
+
+    private static List<String> documentNames(List<RagSearchResult> results) {
+        return results.stream().map(RagSearchResult::getDocumentName).toList();
+    }
+
+    private static RagIndexReplicator.Manifest readManifest(Path shared) throws IOException {
+        return Unstructured.OBJECT_MAPPER.readValue(
+            shared.resolve("manifests").resolve(KNOWLEDGE_BASE + ".json").toFile(),
+            RagIndexReplicator.Manifest.class);
+    }
+
+    private static Map<String, String> checksums(Path directory) throws Exception {
+        try (var stream = Files.list(directory)) {
+            var files = stream.filter(Files::isRegularFile)
+                .filter(path -> !"write.lock".equals(path.getFileName().toString()))
+                .toList();
+            var checksums = new TreeMap<String, String>();
+            for (var file : files) {
+                checksums.put(file.getFileName().toString(), HexFormat.of().formatHex(
+                    MessageDigest.getInstance("SHA-256").digest(Files.readAllBytes(file))));
+            }
+            return checksums;
+        }
+    }
+
+    private static final class Node {
+        private final RagIndexPaths paths;
+        private final RagIndexReplicator replicator;
+        private final LuceneRagVectorStore store;
+
+        private Node(Path home, Path shared) {
+            var pluginsRootGetter = mock(PluginsRootGetter.class);
+            when(pluginsRootGetter.get()).thenReturn(home.resolve("plugins"));
+            var ragConfig = new SettingConfigGetter.RagConfig();
+            ragConfig.setReplicationMode(RagIndexReplicator.MODE_SHARED);
+            ragConfig.setReplicationSharedPath(shared.toString());
+            var settingConfigGetter = mock(SettingConfigGetter.class);
+            when(settingConfigGetter.getRagConfig()).thenReturn(Mono.just(ragConfig));
+            paths = new RagIndexPaths(pluginsRootGetter);
+            replicator = new RagIndexReplicator(paths, settingConfigGetter);
+            store = new LuceneRagVectorStore(paths, replicator);
+        }
+
+        private RagIndexReplicator.Applied applied() throws IOException {
+            return Unstructured.OBJECT_MAPPER.readValue(
+                paths.knowledgeBase(KNOWLEDGE_BASE).resolve("replication.json").toFile(),
+                RagIndexReplicator.Applied.class);
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package com.handsome.summary.support;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.HexFormat;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+/**
+ * SHA-256 与 JDK 摘要逐字比较；指纹与按字节实现的参考 MurmurHash3 x64 128（UTF-16LE 编码）比较。
+ */
+class HashingTest {
+
+    @Test
+    void sha256HexMatchesMessageDigest() throws Exception {
+        var random = new Random(35);
+        for (var i = 0; i < 500; i++) {
+            var value = randomText(random, random.nextInt(200));
+            var expected = HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256")
+                .digest(value.getBytes(StandardCharsets.UTF_8)));
+            assertEquals(expected, Hashing.sha256Hex(value));
+            assertEquals(expected.substring(0, 16), Hashing.sha256Hex(value, 8));
+        }
+        assertEquals(Hashing.sha256Hex(""), Hashing.sha256Hex(null));
+        assertEquals(64, Hashing.sha256Hex("x", 64).length());
+    }
+
+    @Test
+    void fingerprintMatchesReferenceMurmur3() {
+        var random = new Random(3);
+        for (var length = 0; length < 64; length++) {
+            for (var round = 0; round < 20; round++) {
+                var value = randomText(random, length);
+                assertEquals(referenceMurmur3(utf16le(value)), Hashing.fingerprint(value),
+                    "length=" + length);
+            }
+        }
+        assertEquals("00000000000000000000000000000000", Hashing.fingerprint(""));
+        assertEquals(Hashing.fingerprint(""), Hashing.fingerprint(null));
+        assertEquals(Hashing.fingerprint("正文"), Hashing.fingerprint(new StringBuilder("正文")));
+    }
+
+    private static String randomText(Random random, int length) {
+        var builder = new StringBuilder(length);
+        for (var i = 0; i < length; i++) {
+            var roll = random.nextInt(4);
+            builder.append(roll == 0 ? (char) ('a' + random.nextInt(26))
+                : roll == 1 ? (char) (0x4e00 + random.nextInt(0x5000))
+                : roll == 2 ? (char) random.nextInt(0x80) : (char) random.nextInt(0x10000));
+        }
+        return builder.toString();
+    }
+
+    /**
+     * 逐字符编码，保留 {@link String#getBytes} 会替换掉的孤立代理字符。
+     */
+    private static byte[] utf16le(String value) {
+        var buffer = ByteBuffer.allocate(value.length() * 2).order(ByteOrder.LITTLE_ENDIAN);
+        for (var i = 0; i < value.length(); i++) {
+            buffer.putChar(value.charAt(i));
+        }
+        return buffer.array();
+    }
+
+    private static String referenceMurmur3(byte[] data) {
+        final long c1 = 0x87c37b91114253d5L;
+        final long c2 = 0x4cf5ad432745937fL;
+        var buffer = ByteBuffer.wrap(data).order(ByteOrder.LITTLE_ENDIAN);
+        long h1 = 0;
+        long h2 = 0;
+        var blocks = data.length / 16;
+        for (var i = 0; i < blocks; i++) {
+            var k1 = buffer.getLong(i * 16);
+            var k2 = buffer.getLong(i * 16 + 8);
+            k1 *= c1;
+            k1 = Long.rotateLeft(k1, 31);
+            k1 *= c2;
+            h1 ^= k1;
+            h1 = Long.rotateLeft(h1, 27);
+            h1 += h2;
+            h1 = h1 * 5 + 0x52dce729;
+            k2 *= c2;
+            k2 = Long.rotateLeft(k2, 33);
+            k2 *= c1;
+            h2 ^= k2;
+            h2 = Long.rotateLeft(h2, 31);
+            h2 += h1;
+            h2 = h2 * 5 + 0x38495ab5;
+        }
+        var tail = blocks * 16;
+        long k1 = 0;
+        long k2 = 0;
+        for (var i = data.length - 1; i >= tail; i--) {
+            var value = (long) (data[i] & 0xff);
+            if (i - tail >= 8) {
+                k2 |= value << (8 * (i - tail - 8));
+            } else {
+                k1 |= value << (8 * (i - tail));
+            }
+        }
+        if (data.length - tail > 8) {
+            k2 *= c2;
+            k2 = Long.rotateLeft(k2, 33);
+            k2 *= c1;
+            h2 ^= k2;
+        }
+        if (data.length - tail > 0) {
+            k1 *= c1;
+            k1 = Long.rotateLeft(k1, 31);
+            k1 *= c2;
+            h1 ^= k1;
+        }
+        h1 ^= data.length;
+        h2 ^= data.length;
+        h1 += h2;
+        h2 += h1;
+        h1 = fmix(h1);
+        h2 = fmix(h2);
+        h1 += h2;
+        h2 += h1;
+        return String.format("%016x%016x", h1, h2);
+    }
+
+    private static long fmix(long k) {
+        k ^= k >>> 33;
+        k *= 0xff51afd7ed558ccdL;
+        k ^= k >>> 33;
+        k *= 0xc4ceb9fe1a85ec53L;
+        k ^= k >>> 33;
+        return k;
+    }
+}
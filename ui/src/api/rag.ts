@@ -62,6 +62,7 @@ export interface RagStats {
   docsmeDocuments?: number
   chunkCount: number
   staleDocuments: number
+  categoryCount?: number
   needsRebuild: boolean
 }
 
@@ -189,6 +190,7 @@ export interface SaveDocumentRequest {
 export interface RagIndexSummary {
   documentCount: number
   chunkCount: number
+  duplicateChunkCount?: number
   embeddingDimensions: number
   indexVersion: string
   durationMillis: number
@@ -209,18 +211,42 @@ export interface RagIndexTask {
     message?: string
     summary?: RagIndexSummary
     errorMessage?: string
+    queuePosition?: number
+    completedBatches?: number
+    totalBatches?: number
+    resumedFromBatch?: number
     startedAt?: string
     completedAt?: string
+    ownerNode?: string
+    leaseExpiresAt?: string
   }
 }
 
 export interface RagImportResponse {
   knowledgeBase: string
   imported: number
+  created: number
+  updated: number
+  unchanged: number
   summary?: RagIndexSummary
   task?: RagIndexTask
 }
 
+export type RagImportProgressEventType = 'start' | 'progress' | 'done' | 'error'
+
+export interface RagImportProgressEvent {
+  type: RagImportProgressEventType
+  total: number
+  processed: number
+  created: number
+  updated: number
+  unchanged: number
+  cursor?: string
+  documentNames?: string[]
+  task?: RagIndexTask
+  error?: string
+}
+
 export interface RagMutationResponse {
   affected: number
   summary?: RagIndexSummary
@@ -267,12 +293,23 @@ export const ragApi = {
     await axiosInstance.delete(`${API_PREFIX}/ragKnowledgeBases/${name}`)
   },
 
-  async listDocuments(params: { knowledgeBase: string; keyword?: string; sourceType?: string }) {
-    const { data } = await axiosInstance.get<{ items: RagDocument[] }>(
+  async listDocuments(params: {
+    knowledgeBase: string
+    keyword?: string
+    sourceType?: string
+    enabled?: boolean
+    page?: number
+    size?: number
+    sort?: string
+  }) {
+    const { data } = await axiosInstance.get<{ items: RagDocument[]; total: number }>(
       `${API_PREFIX}/ragDocuments`,
       { params },
     )
-    return data.items || []
+    return {
+      items: data.items || [],
+      total: data.total || 0,
+    }
   },
 
   async stats(knowledgeBase: string) {
@@ -344,6 +381,31 @@ export const ragApi = {
     return data
   },
 
+  async importPostsStream(
+    knowledgeBase: string,
+    postNames: string[] = [],
+    options: { rebuildAfterImport?: boolean; resumeAfter?: string },
+    onEvent: (event: RagImportProgressEvent) => void,
+    signal?: AbortSignal,
+  ) {
+    const response = await fetch(`${API_PREFIX}/ragImportPostsStream`, {
+      method: 'POST',
+      credentials: 'same-origin',
+      signal,
+      headers: {
+        'Content-Type': 'application/json',
+      },
+      body: JSON.stringify({
+        knowledgeBase,
+        postNames,
+        rebuildAfterImport: options.rebuildAfterImport,
+        resumeAfter: options.resumeAfter,
+      }),
+    })
+
+    await readSseStream(response, (data) => onEvent(JSON.parse(data) as RagImportProgressEvent))
+  },
+
   async importDocsmeDocuments(
     knowledgeBase: string,
     docNames: string[] = [],
@@ -501,20 +563,7 @@ export const ragApi = {
       body: JSON.stringify(payload),
     })
 
-    if (!response.ok || !response.body) {
-      throw new Error(`HTTP ${response.status}`)
-    }
-
-    const reader = response.body.getReader()
-    const decoder = new TextDecoder()
-    let buffer = ''
-
-    const dispatch = (frame: string) => {
-      const data = parseSseFrame(frame)
-      if (!data) {
-        return
-      }
-
+    await readSseStream(response, (data) => {
       const event = JSON.parse(data) as RagChatStreamEvent
       if (event.type === 'conversation') {
         if (event.conversationId) {
@@ -529,25 +578,42 @@ export const ragApi = {
       } else if (event.type === 'error') {
         handlers.onError?.(event.error || 'RAG 问答失败')
       }
-    }
+    })
+  },
+}
 
-    for (;;) {
-      const { done, value } = await reader.read()
-      if (done) {
-        buffer += decoder.decode()
-        break
-      }
+const readSseStream = async (response: Response, onData: (data: string) => void) => {
+  if (!response.ok || !response.body) {
+    throw new Error(`HTTP ${response.status}`)
+  }
+
+  const reader = response.body.getReader()
+  const decoder = new TextDecoder()
+  let buffer = ''
 
-      buffer += decoder.decode(value, { stream: true })
-      const frames = buffer.split(/\r?\n\r?\n/)
-      buffer = frames.pop() || ''
-      frames.forEach(dispatch)
+  const dispatch = (frame: string) => {
+    const data = parseSseFrame(frame)
+    if (data) {
+      onData(data)
     }
+  }
 
-    if (buffer.trim()) {
-      dispatch(buffer)
+  for (;;) {
+    const { done, value } = await reader.read()
+    if (done) {
+      buffer += decoder.decode()
+      break
     }
-  },
+
+    buffer += decoder.decode(value, { stream: true })
+    const frames = buffer.split(/\r?\n\r?\n/)
+    buffer = frames.pop() || ''
+    frames.forEach(dispatch)
+  }
+
+  if (buffer.trim()) {
+    dispatch(buffer)
+  }
 }
 
 const parseSseFrame = (frame: string) => {